@@ -0,0 +1,84 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import java.util.concurrent.TimeUnit;
+
+import hudson.util.ArgumentListBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rewriting the Maven arguments of a release build, with and without the incremental build arguments
+ * Jenkins adds for a multi-module project of <code>modules</code> changed modules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class M2ReleaseArgumentInterceptorActionBenchmark {
+
+	@Param({"1", "500"})
+	public int modules;
+
+	private M2ReleaseArgumentInterceptorAction action;
+	private ArgumentListBuilder incrementalArguments;
+
+
+	@Setup
+	public void setUp() {
+		action = new M2ReleaseArgumentInterceptorAction("release:prepare release:perform", "secret");
+		StringBuilder moduleList = new StringBuilder();
+		for (int i = 0; i < modules; i++) {
+			if (i > 0) {
+				moduleList.append(',');
+			}
+			moduleList.append("org.wso2.carbon:module-").append(i);
+		}
+		incrementalArguments = new ArgumentListBuilder();
+		incrementalArguments.add("-B").add("-f").add("pom.xml");
+		incrementalArguments.add("-Dmaven.repo.local=/var/lib/jenkins/.m2/repository");
+		incrementalArguments.add("-Dusername=jenkins").add("-Dpassword=secret", true);
+		incrementalArguments.add("-amd").add("-pl").add(moduleList.toString());
+		incrementalArguments.add("release:prepare").add("release:perform");
+	}
+
+
+	@Benchmark
+	public ArgumentListBuilder incrementalBuild() {
+		return action.internalIntercept(incrementalArguments, true);
+	}
+
+
+	@Benchmark
+	public ArgumentListBuilder fullBuild() {
+		return action.internalIntercept(incrementalArguments, false);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PollingLogParser} on SCM polling logs of <code>lines</code> lines with the interesting lines at the
+ * end, the worst case for the early exit. At 100000 lines the log is several megabytes, which is what a job polling
+ * many repositories with verbose credentials output ends up with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PollingLogParserBenchmark {
+
+	@Param({"100", "10000", "100000"})
+	public int lines;
+
+	private String pollingLog;
+	private File pollingLogFile;
+
+
+	@Setup
+	public void setUp() throws IOException {
+		StringBuilder log = new StringBuilder("Started on Oct 17, 2016 10:00:00 AM\n");
+		for (int i = 0; i < lines; i++) {
+			log.append("using credential ").append(i).append(" > git ls-remote -h https://github.com/wso2/repo")
+			   .append(i).append(".git # timeout=10\n");
+		}
+		log.append("[poll] Latest remote head revision on refs/heads/master is: ")
+		   .append("3b9f0e9b5a0c6e1d2f3a4b5c6d7e8f9a0b1c2d3e\n");
+		log.append("Done. Took 0.52 sec\nChanges found\n");
+		pollingLog = log.toString();
+
+		pollingLogFile = File.createTempFile("polling", ".log");
+		OutputStream out = new FileOutputStream(pollingLogFile);
+		try {
+			out.write(pollingLog.getBytes());
+		}
+		finally {
+			out.close();
+		}
+	}
+
+
+	@TearDown
+	public void tearDown() {
+		pollingLogFile.delete();
+	}
+
+
+	@Benchmark
+	public Object parseString() {
+		return PollingLogParser.parse(pollingLog);
+	}
+
+
+	@Benchmark
+	public Object parseFile() throws IOException {
+		return PollingLogParser.parse(pollingLogFile);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PomVersionReader} on a root pom with <code>size</code> modules and dependencies. The version is
+ * either at the end of the pom, the worst case for the streaming reader, or right after the parent as most poms
+ * declare it. <code>parse</code> reads the file each time, <code>cached</code> goes through the per-node cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PomVersionReaderBenchmark {
+
+	@Param({"100", "10000"})
+	public int size;
+
+	@Param({"true", "false"})
+	public boolean versionLast;
+
+	private File pom;
+
+
+	@Setup
+	public void setUp() throws IOException {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<project>\n");
+		xml.append("  <modelVersion>4.0.0</modelVersion>\n  <parent>\n    <groupId>org.wso2</groupId>\n");
+		xml.append("    <artifactId>wso2</artifactId>\n    <version>1</version>\n  </parent>\n");
+		xml.append("  <groupId>org.wso2.carbon</groupId>\n  <artifactId>carbon-parent</artifactId>\n");
+		if (!versionLast) {
+			xml.append("  <version>4.4.10-SNAPSHOT</version>\n");
+		}
+		xml.append("  <packaging>pom</packaging>\n  <modules>\n");
+		for (int i = 0; i < size; i++) {
+			xml.append("    <module>components/module-").append(i).append("</module>\n");
+		}
+		xml.append("  </modules>\n  <dependencyManagement>\n    <dependencies>\n");
+		for (int i = 0; i < size; i++) {
+			xml.append("      <dependency>\n        <groupId>org.wso2.carbon</groupId>\n        <artifactId>module-")
+			   .append(i).append("</artifactId>\n        <version>${project.version}</version>\n")
+			   .append("      </dependency>\n");
+		}
+		xml.append("    </dependencies>\n  </dependencyManagement>\n");
+		if (versionLast) {
+			xml.append("  <version>4.4.10-SNAPSHOT</version>\n");
+		}
+		xml.append("</project>\n");
+		pom = write("pom", ".xml", xml.toString());
+	}
+
+
+	@TearDown
+	public void tearDown() {
+		pom.delete();
+	}
+
+
+	@Benchmark
+	public String parse() throws Exception {
+		return PomVersionReader.readVersion(pom);
+	}
+
+
+	@Benchmark
+	public String cached() throws Exception {
+		return new PomVersionReader().invoke(pom, null);
+	}
+
+
+	private static File write(String prefix, String suffix, String content) throws IOException {
+		File file = File.createTempFile(prefix, suffix);
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		}
+		finally {
+			out.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading the recent releases of a dashboard from the {@link ReleaseFeed} over a synthetic history of
+ * <code>jobs</code> jobs with <code>releases</code> releases each, read for a dashboard showing half of the jobs.
+ * The jobs and runs are Mockito mocks as they can not be created without a running Jenkins, so the numbers include
+ * the cost of the mocks and are only comparable between runs of this benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReleaseFeedBenchmark {
+
+	@Param({"10", "400"})
+	public int jobs;
+
+	@Param({"10", "100"})
+	public int releases;
+
+	private ReleaseFeed feed;
+	private List<Job> dashboard;
+
+
+	@Setup
+	public void setUp() {
+		feed = new ReleaseFeed(ReleaseFeed.DEFAULT_CAPACITY);
+		dashboard = new ArrayList<Job>();
+		long now = System.currentTimeMillis();
+		for (int j = 0; j < jobs; j++) {
+			Job job = mock(Job.class);
+			doReturn("job-" + j).when(job).getFullName();
+			for (int b = 1; b <= releases; b++) {
+				Run run = mock(Run.class);
+				doReturn(job).when(run).getParent();
+				doReturn(Integer.valueOf(b)).when(run).getNumber();
+				// interleave the releases of the jobs.
+				doReturn(Long.valueOf(now - TimeUnit.HOURS.toMillis(releases - b) + j)).when(run).getTimeInMillis();
+				doReturn(run).when(job).getBuildByNumber(b);
+				feed.add(run);
+			}
+			if (j % 2 == 0) {
+				dashboard.add(job);
+			}
+		}
+	}
+
+
+	@Benchmark
+	public Collection<Run> recentReleases() {
+		return feed.getRecentReleases(dashboard, 20);
+	}
+}
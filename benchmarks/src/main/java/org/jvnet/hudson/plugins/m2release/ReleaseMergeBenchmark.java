@@ -0,0 +1,101 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import hudson.model.Result;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures ranking the 20 newest releases of <code>jobs</code> jobs with <code>depth</code> releases each with the
+ * bounded heap merge of {@link ReleaseFeed}, against sorting all releases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReleaseMergeBenchmark {
+
+	@Param({"10", "100", "400"})
+	public int jobs;
+
+	@Param({"10", "100", "1000"})
+	public int depth;
+
+	private Map<String, List<ReleaseBuildIndex.Entry>> histories;
+
+
+	@Setup
+	public void setUp() {
+		histories = new HashMap<String, List<ReleaseBuildIndex.Entry>>();
+		long now = System.currentTimeMillis();
+		for (int j = 0; j < jobs; j++) {
+			List<ReleaseBuildIndex.Entry> releases = new ArrayList<ReleaseBuildIndex.Entry>(depth);
+			for (int b = depth; b > 0; b--) {
+				// interleave the releases of the jobs.
+				long timestamp = now - TimeUnit.HOURS.toMillis(depth - b) + j;
+				ReleaseSummary summary =
+				      new ReleaseSummary("1.0." + b, "v1.0." + b, false, Result.SUCCESS, timestamp, 60000L, null);
+				releases.add(new ReleaseBuildIndex.Entry(b, summary, false));
+			}
+			histories.put("job-" + j, releases);
+		}
+	}
+
+
+	@Benchmark
+	public List<ReleaseFeed.Item> boundedHeapMerge() {
+		return ReleaseFeed.mergeNewest(histories, 20);
+	}
+
+
+	@Benchmark
+	public List<ReleaseBuildIndex.Entry> sortAll() {
+		List<ReleaseBuildIndex.Entry> all = new ArrayList<ReleaseBuildIndex.Entry>();
+		for (List<ReleaseBuildIndex.Entry> releases : histories.values()) {
+			all.addAll(releases);
+		}
+		Collections.sort(all, new Comparator<ReleaseBuildIndex.Entry>() {
+
+			public int compare(ReleaseBuildIndex.Entry a, ReleaseBuildIndex.Entry b) {
+				return a.getTimestamp() > b.getTimestamp() ? -1 : (a.getTimestamp() == b.getTimestamp() ? 0 : 1);
+			}
+		});
+		return all.subList(0, Math.min(20, all.size()));
+	}
+}
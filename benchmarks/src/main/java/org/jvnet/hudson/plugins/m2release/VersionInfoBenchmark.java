@@ -0,0 +1,59 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.shared.release.versions.VersionInfo;
+import org.apache.maven.shared.release.versions.VersionParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing the next development versions of products and forked repositories and computing the release
+ * and next versions from them, as done for every release form that is rendered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VersionInfoBenchmark {
+
+	@Benchmark
+	public VersionInfo productVersion() throws VersionParseException {
+		return new ProductVersionInfo("5.2.0-update12-SNAPSHOT");
+	}
+
+
+	@Benchmark
+	public String forkedRepoReleaseVersion() throws VersionParseException {
+		return new ForkedRepoVersionInfo("2.2.3-wso2v120-SNAPSHOT").getReleaseVersionString();
+	}
+
+
+	@Benchmark
+	public VersionInfo forkedRepoNextVersion() throws VersionParseException {
+		return new ForkedRepoVersionInfo("2.2.3-wso2v120-SNAPSHOT").getNextVersion();
+	}
+}
@@ -0,0 +1,85 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building the request bodies of the staging actions. The description is repeated <code>lines</code>
+ * times to cover the long, multi-line descriptions that release builds pass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StageClientBenchmark {
+
+	@Param({"1", "100"})
+	public int lines;
+
+	private StageClient client;
+	private Stage stage;
+	private List<Stage> stages;
+	private String description;
+
+
+	@Setup
+	public void setUp() throws IOException {
+		client = new StageClient(new URL("http://localhost:8081/nexus/"), "benchmark", "benchmark");
+		stage = new Stage("3e1e1b9d4ee0e", "test-001");
+		stages = new ArrayList<Stage>();
+		for (int i = 0; i < 50; i++) {
+			stages.add(new Stage("3e1e1b9d4ee0e", "test-" + (1000 + i)));
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			sb.append("Release of org.wso2.carbon:carbon-kernel:4.4.").append(i).append(" <by jenkins & co>\n");
+		}
+		description = sb.toString();
+	}
+
+
+	@Benchmark
+	public String promoteRequestPayload() throws StageException {
+		return client.createPromoteRequestPayload(stage, description, Boolean.FALSE);
+	}
+
+
+	@Benchmark
+	public String bulkRequestPayload() {
+		return client.createBulkRequestPayload(stages, description, Boolean.FALSE);
+	}
+}
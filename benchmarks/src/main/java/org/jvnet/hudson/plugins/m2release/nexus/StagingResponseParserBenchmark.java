@@ -0,0 +1,149 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Compares the DOM + XPath parsing that {@link StageClient} used to do with the {@link StagingResponseParser}s.
+ * The test fixtures are repeated <code>copies</code> times to get responses the size of a busy server. Run with
+ * <code>-prof gc</code> to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StagingResponseParserBenchmark {
+
+	@Param({"1", "1000"})
+	public int copies;
+
+	private byte[] profileRepositories;
+	private byte[] activity;
+	private StageClient client;
+
+
+	@Setup
+	public void setUp() throws IOException {
+		profileRepositories = repeat("stageClientTest/profile_repositories.xml", "<data>", "</data>", copies);
+		activity = repeat("stageClientTest/activity__closed_failed.xml", "<list>", "</list>", copies);
+		client = new StageClient(new URL("http://localhost:8081/nexus/"), "benchmark", "benchmark");
+	}
+
+
+	@Benchmark
+	public List<Stage> openStagesDom() throws Exception {
+		Document doc =
+		      DocumentBuilderFactory.newInstance().newDocumentBuilder()
+		                            .parse(new ByteArrayInputStream(profileRepositories));
+		return client.getOpenStageIDs(doc);
+	}
+
+
+	@Benchmark
+	public List<Stage> openStagesStax() throws Exception {
+		return StagingResponseParser.OPEN_STAGES.parse(new ByteArrayInputStream(profileRepositories));
+	}
+
+
+	@Benchmark
+	public Object lastCloseActivityDom() throws Exception {
+		Document doc =
+		      DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(activity));
+		XPath xpath = XPathFactory.newInstance().newXPath();
+		Node lastClose =
+		      (Node) xpath.evaluate("(/list/stagingActivity[name='close'])[last()]", doc, XPathConstants.NODE);
+		Node failed =
+		      (Node) xpath.evaluate("events/stagingActivityEvent[name='repositoryCloseFailed']", lastClose,
+		                            XPathConstants.NODE);
+		xpath.evaluate("properties/stagingProperty[name='cause']/value", failed, XPathConstants.STRING);
+		return xpath.evaluate("events/stagingActivityEvent[name='ruleFailed']/properties/stagingProperty[name='failureMessage']/value",
+		                      lastClose, XPathConstants.NODESET);
+	}
+
+
+	@Benchmark
+	public Object lastCloseActivityStax() throws Exception {
+		return StagingResponseParser.LAST_CLOSE_ACTIVITY.parse(new ByteArrayInputStream(activity));
+	}
+
+
+	/**
+	 * Load a fixture and repeat the content between <code>start</code> and <code>end</code>.
+	 */
+	private static byte[] repeat(String resource, String start, String end, int copies) throws IOException {
+		String xml = new String(read(resource), "UTF-8");
+		int from = xml.indexOf(start) + start.length();
+		int to = xml.lastIndexOf(end);
+		String body = xml.substring(from, to);
+		StringBuilder sb = new StringBuilder(xml.length() + body.length() * copies);
+		sb.append(xml, 0, from);
+		for (int i = 0; i < copies; i++) {
+			sb.append(body);
+		}
+		sb.append(xml, to, xml.length());
+		return sb.toString().getBytes("UTF-8");
+	}
+
+
+	private static byte[] read(String resource) throws IOException {
+		InputStream in = StagingResponseParserBenchmark.class.getResourceAsStream(resource);
+		if (in == null) {
+			throw new IOException("Missing benchmark resource " + resource);
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			int len;
+			while ((len = in.read(buf)) != -1) {
+				out.write(buf, 0, len);
+			}
+			return out.toByteArray();
+		}
+		finally {
+			in.close();
+		}
+	}
+}
@@ -21,6 +21,12 @@ public class Constants {
 
     public static final String LAST_RELEASE_REVISION_NUMBER = "lastReleaseRevisionNumber";
 
+    public static final String RELEASE_BUILD_INDEX = "releaseBuilds.xml";
+
+    public static final String RELEASE_JOURNAL = "releaseJournal.xml";
+
+    public static final String RELEASE_RESUME_LOG = "releaseResume.log";
+
     public static final String DEFAULT_SCM_TAG_PREFIX = "v";
 
 }
@@ -0,0 +1,152 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import java.io.PrintStream;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of release finalizations that close and release staging repositories on a Nexus server at the
+ * same time, so that a burst of releases does not make the staging actions of all of them time out. Finalizations
+ * that have to wait are let in first come, first served and their position in the queue is printed to the build
+ * log whilst they wait.
+ * <p>
+ * This is a second limit on top of the one of {@link ReleaseGovernor}, which already keeps releases in the queue.
+ * It is still needed because the governor does not count finalizations resumed from the build page against the
+ * Nexus limit. A waiting finalization holds the executor of its build, so the gate only covers the close and
+ * release of the staging repositories, not the Maven build.
+ */
+public final class FinalizationGate {
+
+    /** How often a waiting finalization reports its position, even if it did not change. */
+    private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toMillis(60);
+
+    private static final ConcurrentMap<String, FinalizationGate> GATES =
+            new ConcurrentHashMap<String, FinalizationGate>();
+
+    private final String nexusURL;
+
+    /** The finalizations that are waiting, in the order they arrived. */
+    private final LinkedList<Permit> waiting = new LinkedList<Permit>();
+
+    private int running;
+
+    FinalizationGate(String nexusURL) {
+        this.nexusURL = nexusURL;
+    }
+
+    /**
+     * Get the gate of the Nexus server at the given URL.
+     */
+    public static FinalizationGate forNexus(String nexusURL) {
+        FinalizationGate gate = GATES.get(nexusURL);
+        if (gate == null) {
+            FinalizationGate created = new FinalizationGate(nexusURL);
+            gate = GATES.putIfAbsent(nexusURL, created);
+            if (gate == null) {
+                gate = created;
+            }
+        }
+        return gate;
+    }
+
+    /**
+     * Wait until the finalization may start. The permit must be released once the finalization is done.
+     *
+     * @param limit the maximum number of finalizations at the same time, 0 or less for no limit.
+     * @param logger the build log that the position in the queue is printed to.
+     * @throws InterruptedException if the build was aborted whilst waiting.
+     */
+    public Permit acquire(int limit, PrintStream logger) throws InterruptedException {
+        Permit permit = new Permit(this);
+        synchronized (this) {
+            if (limit <= 0 || (waiting.isEmpty() && running < limit)) {
+                running++;
+                permit.held = true;
+                return permit;
+            }
+            long start = System.currentTimeMillis();
+            waiting.add(permit);
+            try {
+                int reported = 0;
+                long reportedAt = 0L;
+                while (waiting.getFirst() != permit || running >= limit) {
+                    int position = waiting.indexOf(permit) + 1;
+                    long now = System.currentTimeMillis();
+                    if (position != reported || now - reportedAt >= REPORT_INTERVAL) {
+                        logger.println("[WSO2 Maven Release] Waiting for one of the " + running
+                                + " release finalizations against " + nexusURL + " to finish, position " + position
+                                + " of " + waiting.size() + " in the queue");
+                        reported = position;
+                        reportedAt = now;
+                    }
+                    wait(REPORT_INTERVAL);
+                }
+            } finally {
+                waiting.remove(permit);
+                // the others have moved up the queue.
+                notifyAll();
+            }
+            running++;
+            permit.held = true;
+            logger.println("[WSO2 Maven Release] Starting the release finalization after waiting "
+                    + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - start) + " s");
+            return permit;
+        }
+    }
+
+    private synchronized void release(Permit permit) {
+        if (permit.held) {
+            permit.held = false;
+            running--;
+            notifyAll();
+        }
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    /**
+     * The right of a finalization to talk to Nexus.
+     */
+    public static final class Permit {
+
+        private final FinalizationGate gate;
+
+        private boolean held;
+
+        Permit(FinalizationGate gate) {
+            this.gate = gate;
+        }
+
+        /**
+         * Let the next finalization in. Releasing a permit more than once has no effect.
+         */
+        public void release() {
+            gate.release(this);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.EnvVars;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.InvisibleAction;
+import hudson.model.TaskListener;
+import hudson.plugins.git.GitException;
+import hudson.plugins.git.GitSCM;
+import hudson.plugins.git.UserRemoteConfig;
+import hudson.plugins.git.util.GitUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.URIish;
+import org.jenkinsci.plugins.gitclient.GitClient;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Git client of a release build. The poll environment and the client are created once when the release is set
+ * up and used for every git operation of the release, and rev-parse results are kept until an operation moves the
+ * refs. The session is attached to the build but nothing of it is saved with the build.
+ */
+public class GitReleaseSession extends InvisibleAction {
+
+    private final transient GitSCM scm;
+    private final transient EnvVars environment;
+    private final transient GitClient client;
+    private final transient Map<String, ObjectId> revisions = new HashMap<String, ObjectId>();
+
+    private GitReleaseSession(GitSCM scm, EnvVars environment, GitClient client) {
+        this.scm = scm;
+        this.environment = environment;
+        this.client = client;
+    }
+
+    /**
+     * Get the session of the build, opening it if needed.
+     *
+     * @return the session, or <code>null</code> if the project does not use Git.
+     */
+    public static GitReleaseSession open(AbstractBuild<?, ?> build, Launcher launcher, TaskListener listener)
+            throws IOException, InterruptedException {
+        GitReleaseSession session = build.getAction(GitReleaseSession.class);
+        if (session != null && session.client != null) {
+            return session;
+        }
+        // a session read back with the build after a restart has lost its client, replace it.
+        build.getActions().removeAll(build.getActions(GitReleaseSession.class));
+        if (!(build.getProject().getScm() instanceof GitSCM)) {
+            return null;
+        }
+        GitSCM gitSCM = (GitSCM) build.getProject().getScm();
+        EnvVars environment = GitUtils.getPollEnvironment(build.getProject(), build.getWorkspace(), launcher, listener);
+        GitClient client = gitSCM.createClient(listener, environment, build, build.getWorkspace());
+        session = new GitReleaseSession(gitSCM, environment, client);
+        build.addAction(session);
+        return session;
+    }
+
+    public GitSCM getScm() {
+        return scm;
+    }
+
+    public EnvVars getEnvironment() {
+        return environment;
+    }
+
+    public GitClient getClient() {
+        return client;
+    }
+
+    /**
+     * Resolve a revision, reusing the result until a checkout, fetch or merge of this session.
+     */
+    public synchronized ObjectId revParse(String revision) throws GitException, InterruptedException {
+        ObjectId id = revisions.get(revision);
+        if (id == null) {
+            id = client.revParse(revision);
+            revisions.put(revision, id);
+        }
+        return id;
+    }
+
+    public void checkoutBranch(String branch, String ref) throws GitException, InterruptedException {
+        try {
+            client.checkoutBranch(branch, ref);
+        } finally {
+            invalidateRevisions();
+        }
+    }
+
+    public void fetch(URIish remote, RefSpec refSpec) throws GitException, InterruptedException {
+        try {
+            client.fetch_().from(remote, Collections.singletonList(refSpec)).execute();
+        } finally {
+            invalidateRevisions();
+        }
+    }
+
+    public void merge(ObjectId revision) throws GitException, InterruptedException {
+        try {
+            client.merge().setRevisionToMerge(revision).execute();
+        } finally {
+            invalidateRevisions();
+        }
+    }
+
+    /**
+     * Check which of the given refs exist on the remote of the project, with ls-remote queries filtered to each
+     * ref so only matching refs are transferred.
+     *
+     * @param refs full names of the refs, e.g. <code>refs/heads/release-1.0</code>.
+     * @return the refs that exist on the remote.
+     */
+    public Set<String> findRemoteRefs(String... refs) throws GitException, InterruptedException {
+        Set<String> found = new HashSet<String>();
+        List<UserRemoteConfig> remotes = scm.getUserRemoteConfigs();
+        if (remotes.isEmpty()) {
+            return found;
+        }
+        String remoteUrl = remotes.get(0).getUrl();
+        for (String ref : refs) {
+            Map<String, ObjectId> matches = client.getRemoteReferences(remoteUrl, ref,
+                    ref.startsWith("refs/heads/"), ref.startsWith("refs/tags/"));
+            // ls-remote matches the end of the ref names, so refs/heads/a/refs/heads/b could match too
+            if (matches.containsKey(ref)) {
+                found.add(ref);
+            }
+        }
+        return found;
+    }
+
+    private synchronized void invalidateRevisions() {
+        revisions.clear();
+    }
+}
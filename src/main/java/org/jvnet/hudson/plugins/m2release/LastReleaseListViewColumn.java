@@ -24,13 +24,14 @@
 package org.jvnet.hudson.plugins.m2release;
 
 import hudson.Extension;
+import hudson.Util;
 import hudson.maven.AbstractMavenProject;
-import hudson.model.AbstractBuild;
-import hudson.model.Run;
 import hudson.views.ListViewColumn;
 import hudson.views.ListViewColumnDescriptor;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import java.util.Date;
+
 /**
  * {@link ListViewColumn} that shows the last released version and date.
  *
@@ -43,22 +44,46 @@ public LastReleaseListViewColumn() {
 
     /**
      * Finds the last release information of the given project.
+     * This reads the release build index of the project, so no build records are loaded. Nothing is shown while
+     * the index is still being built.
      */
     public Info getLastReleaseInfoOf(AbstractMavenProject<?,?> project) {
-        Run<?,?> r = LastReleasePermalink.INSTANCE.resolve(project);
-        if (r!=null)
-            return new Info((AbstractBuild<?,?>)r);
+        if (!ReleaseBuildIndex.isReleaseJob(project))
+            return null;
+        ReleaseBuildIndex index = ReleaseBuildIndex.getIfReady(project);
+        if (index == null)
+            return null;
+        ReleaseBuildIndex.Entry release = index.getLastRelease();
+        if (release!=null)
+            return new Info(release);
         return null;
     }
     
     public static class Info {
-        public final AbstractBuild<?,?> build;
-        public final M2ReleaseBadgeAction action;
+        public final int number;
+        public final ReleaseSummary summary;
+        public final String version;
+        public final long timestamp;
+
+        Info(ReleaseBuildIndex.Entry release) {
+            this.number = release.getNumber();
+            this.summary = release.getSummary();
+            this.version = summary.getVersion();
+            this.timestamp = summary.getTimestamp();
+        }
+
+        /**
+         * @return how long ago the release was, e.g. "3 days 2 hr".
+         */
+        public String getTimestampString() {
+            return Util.getPastTimeString(System.currentTimeMillis() - timestamp);
+        }
 
-        Info(AbstractBuild<?,?> build) {
-            this.build = build;
-            this.action = build.getAction(M2ReleaseBadgeAction.class);
-            assert action!=null;
+        /**
+         * @return the time of the release in the XML schema format, for sorting the column.
+         */
+        public String getTimestampString2() {
+            return Util.XS_DATETIME_FORMATTER.format(new Date(timestamp));
         }
     }
 
@@ -77,6 +77,7 @@ public class M2ReleaseAction implements PermalinkProjectAction {
 	private boolean isProduct = false;
 	private boolean isForkedRepo = false;
 	private Pattern nextDevelopmentVersionPattern;
+	private transient volatile ReleaseProposal proposal;
 	public M2ReleaseAction(MavenModuleSet project, boolean selectCustomScmCommentPrefix, boolean selectAppendHudsonUsername, boolean selectScmCredentials, boolean isProduct, boolean isForkedRepo) {
 
 		this.project = project;
@@ -166,26 +167,7 @@ public String computeReleaseVersion() {
 	}
 
 	public String computeReleaseVersion(String rootPomVersion) {
-		String version;
-		final MavenModule rootModule = getRootModule();
-		if ((rootPomVersion == null || rootPomVersion.isEmpty())
-				&& rootModule != null && StringUtils.isNotBlank(rootModule.getVersion())) {
-			rootPomVersion = rootModule.getVersion();
-		}
-
-		if (rootPomVersion == null){
-			throw new IllegalArgumentException("Cannot proceed with release. Pom version cannot be determined");
-		}
-
-		try {
-			VersionInfo dvi = getVersionInfoObj(rootPomVersion);
-			version = dvi.getReleaseVersionString();
-		} catch (VersionParseException vpEx) {
-			LOGGER.log(Level.WARNING, "Failed to compute Release version.", vpEx);
-			version = rootPomVersion.replace("-SNAPSHOT", "");
-		}
-
-		return version;
+		return getProposal(rootPomVersion).getReleaseVersion();
 	}
 
 	public String computeRepoDescription() {
@@ -200,20 +182,10 @@ public String computeRepoDescription(AbstractBuild build, String releaseVersion,
 		StringBuilder descriptionBuilder = new StringBuilder();
 		descriptionBuilder.append("Jenkins build: ").append(url);  //deprecated only for html rendering
 
-		MavenModule mavenModule = project.getRootModule();
-		String moduleName;
-		if (mavenModule == null) {
-			try {
-				Field field = project.getClass().getDeclaredField("rootModule");
-				field.setAccessible(true);
-				moduleName = field.get(project).toString();
-			} catch (NoSuchFieldException e) {
-				return descriptionBuilder.toString();
-			} catch (IllegalAccessException e) {
-				return descriptionBuilder.toString();
-			}
-		} else {
-			moduleName = mavenModule.getName();
+		ReleaseProposal current = proposal;
+		String moduleName = current != null ? current.getModuleName() : rootModuleName(getRootModule());
+		if (moduleName == null) {
+			return descriptionBuilder.toString();
 		}
 		descriptionBuilder.append(ls).append(ls).
 				append("  - Git Tag: ").append(scmTag).append(ls).append(ls).
@@ -225,11 +197,11 @@ public String computeRepoDescription(AbstractBuild build, String releaseVersion,
 
 	public String computeScmTag() {
 		// maven default is artifact-version. WSO2 uses v<version>
-		return Constants.DEFAULT_SCM_TAG_PREFIX + computeReleaseVersion("");
+		return getProposal("").getScmTag();
 	}
 
 	public String computeScmTag(String rootPomVersion) {
-		return Constants.DEFAULT_SCM_TAG_PREFIX + computeReleaseVersion(rootPomVersion);
+		return getProposal(rootPomVersion).getScmTag();
 	}
 
 	public String computeNextVersion() {
@@ -237,6 +209,14 @@ public String computeNextVersion() {
 	}
 
 	public String computeNextVersion(String rootPomVersion) {
+		return getProposal(rootPomVersion).getNextVersion();
+	}
+
+	/**
+	 * Returns the release proposal for the given root pom version, or for the version of the root module when none
+	 * is given. The last proposal is reused for as long as the root version does not change.
+	 */
+	ReleaseProposal getProposal(String rootPomVersion) {
 		final MavenModule rootModule = getRootModule();
 		if ((rootPomVersion == null || rootPomVersion.isEmpty())
 				&& rootModule != null && StringUtils.isNotBlank(rootModule.getVersion())) {
@@ -247,15 +227,47 @@ public String computeNextVersion(String rootPomVersion) {
 			throw new IllegalArgumentException("Cannot proceed with release. Pom version cannot be determined");
 		}
 
-		String version = "NaN-SNAPSHOT";
+		ReleaseProposal current = proposal;
+		if (current != null && current.getRootPomVersion().equals(rootPomVersion)) {
+			return current;
+		}
+		current = new ReleaseProposal(rootPomVersion, releaseVersionOf(rootPomVersion),
+				nextVersionOf(rootPomVersion), rootModuleName(rootModule));
+		proposal = current;
+		return current;
+	}
+
+	private String releaseVersionOf(String rootPomVersion) {
 		try {
-			VersionInfo dvi = getVersionInfoObj(rootPomVersion);
-			version = dvi.getNextVersion().getSnapshotVersionString();
+			return getVersionInfoObj(rootPomVersion).getReleaseVersionString();
+		} catch (VersionParseException vpEx) {
+			LOGGER.log(Level.WARNING, "Failed to compute Release version.", vpEx);
+			return rootPomVersion.replace("-SNAPSHOT", "");
+		}
+	}
+
+	private String nextVersionOf(String rootPomVersion) {
+		try {
+			return getVersionInfoObj(rootPomVersion).getNextVersion().getSnapshotVersionString();
 		} catch (Exception vpEx) {
 			LOGGER.log(Level.WARNING, "Failed to compute next development version.", vpEx);
+			return "NaN-SNAPSHOT";
 		}
+	}
 
-		return version;
+	private String rootModuleName(MavenModule rootModule) {
+		if (rootModule != null) {
+			return rootModule.getName();
+		}
+		try {
+			Field field = project.getClass().getDeclaredField("rootModule");
+			field.setAccessible(true);
+			return String.valueOf(field.get(project));
+		} catch (NoSuchFieldException e) {
+			return null;
+		} catch (IllegalAccessException e) {
+			return null;
+		}
 	}
 
 	// Select correct version logic according to the repo type
@@ -61,6 +61,9 @@ public class M2ReleaseArgumentsAction implements Action {
 	private transient String scmCommentPrefix;
 	private String scmTagName;
 
+	/** ID of the Nexus staging repository the release was deployed to. */
+	private String stageID;
+
 	private transient boolean appendHusonUserName;
 	private transient String hudsonUserName;
 
@@ -180,6 +183,14 @@ public void setScmTagName(String scmTagName) {
 		this.scmTagName = scmTagName;
 	}
 
+	public String getStageID() {
+		return stageID;
+	}
+
+	public void setStageID(String stageID) {
+		this.stageID = stageID;
+	}
+
 	public boolean isAppendHusonUserName() {
 		return appendHusonUserName;
 	}
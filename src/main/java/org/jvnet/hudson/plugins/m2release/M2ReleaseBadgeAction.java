@@ -55,6 +55,9 @@ public class M2ReleaseBadgeAction implements BuildBadgeAction, RunAction2 {
 	@Deprecated
 	private transient String versionNumber; // kept for backwards compatibility
 
+	/** Summary of the completed release, from the release build index of the job. */
+	private transient ReleaseSummary summary;
+
 	/**
 	 * Construct a new BadgeIcon to a Maven release build.
 	 */
@@ -120,6 +123,14 @@ public String getTooltipText() {
 	 * Gets the version number that was released.
 	 */
 	public String getVersionNumber() {
+		ReleaseSummary s = getSummary();
+		return s != null ? s.getVersion() : readVersionNumber();
+	}
+
+	/**
+	 * Reads the version number from the build.
+	 */
+	String readVersionNumber() {
 		if (versionNumber != null) {
 			return versionNumber;
 		}
@@ -135,6 +146,14 @@ public String getVersionNumber() {
 	 * Returns if the release was a dryRun or not.
 	 */
 	public boolean isDryRun() {
+		ReleaseSummary s = getSummary();
+		return s != null ? s.isDryRun() : readDryRun();
+	}
+
+	/**
+	 * Reads if the release was a dryRun from the build.
+	 */
+	boolean readDryRun() {
 		if (isDryRun != null) {
 			return isDryRun;
 		}
@@ -162,6 +181,21 @@ private boolean isSuccessfulBuild(Run<?, ?> run) {
 		}
 	}
 
+	/**
+	 * Gets the summary of the release from the release build index, once the build has completed.
+	 * 
+	 * @return the summary, or <code>null</code> if the build is still running or not indexed (yet).
+	 */
+	private ReleaseSummary getSummary() {
+		if (summary == null && run != null && !run.isBuilding()) {
+			ReleaseBuildIndex index = ReleaseBuildIndex.getIfReady(run.getParent());
+			if (index != null) {
+				summary = index.getSummary(run.getNumber());
+			}
+		}
+		return summary;
+	}
+
 	public void onAttached(Run<?, ?> run) {
 		this.run = run;
 	}
@@ -41,11 +41,8 @@
 import hudson.model.Item;
 import hudson.model.Job;
 import hudson.model.TaskListener;
-import hudson.plugins.git.Branch;
 import hudson.plugins.git.GitSCM;
 import hudson.plugins.git.extensions.impl.RelativeTargetDirectory;
-import hudson.plugins.git.util.GitUtils;
-import hudson.remoting.VirtualChannel;
 import hudson.security.Permission;
 import hudson.security.PermissionGroup;
 import hudson.tasks.BuildWrapper;
@@ -55,9 +52,14 @@
 import hudson.triggers.TimerTrigger;
 import hudson.util.FormValidation;
 import net.sf.json.JSONObject;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
-import org.jenkinsci.plugins.gitclient.GitClient;
+import org.jvnet.hudson.plugins.m2release.PollingLogParser.RemoteScmInfo;
+import org.jvnet.hudson.plugins.m2release.nexus.Backoff;
+import org.jvnet.hudson.plugins.m2release.nexus.CircuitBreaker;
+import org.jvnet.hudson.plugins.m2release.nexus.NexusCapabilityCache;
+import org.jvnet.hudson.plugins.m2release.nexus.NexusConnectionSettings;
+import org.jvnet.hudson.plugins.m2release.nexus.NexusTransports;
+import org.jvnet.hudson.plugins.m2release.nexus.RetryPolicy;
 import org.jvnet.hudson.plugins.m2release.nexus.StageClient;
 import org.jvnet.hudson.plugins.m2release.nexus.StageException;
 import org.jvnet.localizer.Localizable;
@@ -66,8 +68,6 @@
 import org.kohsuke.stapler.StaplerRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
 
 import java.io.File;
 import java.io.IOException;
@@ -77,21 +77,12 @@
 import java.lang.reflect.InvocationTargetException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.servlet.ServletException;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 //import jenkins.triggers.SCMTriggerItem.SCMTriggerItems;
 
@@ -221,8 +212,15 @@ public Environment setUp(@SuppressWarnings("rawtypes") final AbstractBuild build
 
 
 
+		ReleaseMetricsAction metrics = ReleaseMetricsAction.of(build);
+		// one git client for all the git operations of this release
+		GitReleaseSession gitSession = GitReleaseSession.open(build, launcher, listener);
+
         //validate
-		if (!validateRelease(build, launcher, listener, args)) {
+		long validationStart = System.nanoTime();
+		boolean valid = validateRelease(build, gitSession, listener, args);
+		metrics.record(ReleaseMetricsAction.Phase.VALIDATION, validationStart);
+		if (!valid) {
 			return new DefaultEnvironment();
 		}
 		/* END WSO2 changes */
@@ -260,11 +258,14 @@ public Environment setUp(@SuppressWarnings("rawtypes") final AbstractBuild build
 		build.addAction(new M2ReleaseBadgeAction());
 
 		/* START WSO2 changes */
-		String releaseBranch = checkoutReleaseBranch(args, build, launcher, listener);
+		long checkoutStart = System.nanoTime();
+		String releaseBranch = checkoutReleaseBranch(args, gitSession, listener);
+		metrics.record(ReleaseMetricsAction.Phase.BRANCH_CHECKOUT, checkoutStart);
+		metrics.mavenStarted();
 		/* END WSO2 changes */
 
 		return new ReleaseEnvironment(this, releaseBranch, remoteBranch, remoteRevision,
-				args.getReleaseVersion(), launcher);
+				args.getReleaseVersion(), launcher, gitSession);
 	}
 
     /**
@@ -294,21 +295,15 @@ private String getRemoteBranch(String branch) {
 
 	}
 
-	private String checkoutReleaseBranch(M2ReleaseArgumentsAction args, AbstractBuild build, Launcher launcher,
+	private String checkoutReleaseBranch(M2ReleaseArgumentsAction args, GitReleaseSession gitSession,
 			TaskListener listener) throws InterruptedException, IOException {
 		//checkout a new release branch
 		int randomNumber = (int) (new Random().nextDouble() * 1000);
 		String randomString = "-" + String.valueOf((char)(randomNumber % 26 + 97)) + randomNumber; // -g242
 		String releaseBranch =
 				DEFAULT_SCM_RELEASE_BRANCH_PREFIX + args.getReleaseVersion() + randomString;
-		if (build.getProject().getScm() instanceof GitSCM) {
-			GitSCM gitSCM = (GitSCM) build.getProject().getScm();
-			AbstractProject project = build.getProject();
-
-			final EnvVars environment = GitUtils.getPollEnvironment(project, build.getWorkspace(), launcher, listener);
-			GitClient gitClient = gitSCM.createClient(listener, environment, build, build.getWorkspace());
-
-			gitClient.checkoutBranch(releaseBranch, DEFAULT_REF);
+		if (gitSession != null) {
+			gitSession.checkoutBranch(releaseBranch, DEFAULT_REF);
 			listener.getLogger().println("[WSO2 Maven Release] Checked out the branch : " + releaseBranch);
 		}
 
@@ -317,7 +312,7 @@ private String checkoutReleaseBranch(M2ReleaseArgumentsAction args, AbstractBuil
 
 
 
-	private boolean validateRelease(AbstractBuild build, Launcher launcher, BuildListener listener,
+	private boolean validateRelease(AbstractBuild build, GitReleaseSession gitSession, BuildListener listener,
 			M2ReleaseArgumentsAction args) throws IOException, InterruptedException {
 		if (args == null) {
 			ReleaseUtils.printSeparator(listener);
@@ -336,27 +331,23 @@ private boolean validateRelease(AbstractBuild build, Launcher launcher, BuildLis
 			return false;
 		}
 
-		if (build.getProject().getScm() instanceof GitSCM) {
+		if (gitSession != null) {
 			final String releaseBranch = DEFAULT_SCM_RELEASE_BRANCH_PREFIX + args.getReleaseVersion();
-			GitSCM gitSCM = (GitSCM) build.getProject().getScm();
-			AbstractProject project = build.getProject();
+			final String releaseBranchRef = "refs/heads/" + releaseBranch;
+			final String releaseTagRef = "refs/tags/" + args.getScmTagName();
 
-			final EnvVars environment = GitUtils.getPollEnvironment(project, build.getWorkspace(), launcher, listener);
-			GitClient gitClient = gitSCM.createClient(listener, environment, build, build.getWorkspace());
-
-			Set<Branch> remoteBranches = gitClient.getRemoteBranches();
-			for (Branch aRemoteBranch : remoteBranches) {
-				if (aRemoteBranch.getName().equalsIgnoreCase(releaseBranch)) {
-					ReleaseUtils.printSeparator(listener);
-					ReleaseUtils.printInfoIntoBuildLog("[ERROR] Release branch " + releaseBranch +
-							" already exists. " + RELEASE_BUILD_ABORTED_MESSAGE, listener.getLogger());
-					ReleaseUtils.printSeparator(listener);
-					return false;
-				}
+			// ask the remote for just the release branch and tag instead of listing every branch
+			Set<String> existingRefs = gitSession.findRemoteRefs(releaseBranchRef, releaseTagRef);
+			if (existingRefs.contains(releaseBranchRef)) {
+				ReleaseUtils.printSeparator(listener);
+				ReleaseUtils.printInfoIntoBuildLog("[ERROR] Release branch " + releaseBranch +
+						" already exists. " + RELEASE_BUILD_ABORTED_MESSAGE, listener.getLogger());
+				ReleaseUtils.printSeparator(listener);
+				return false;
 			}
 
 			//validate the tag does not exist
-			if (gitClient.tagExists(args.getScmTagName())) {
+			if (existingRefs.contains(releaseTagRef)) {
 				ReleaseUtils.printSeparator(listener);
 				ReleaseUtils.printInfoIntoBuildLog("[ERROR] Release Tag " + args.getScmTagName() +
 						"already exists. " + RELEASE_BUILD_ABORTED_MESSAGE, listener.getLogger());
@@ -400,14 +391,13 @@ private M2ReleaseArgumentsAction populateMissingArguments(M2ReleaseArgumentsActi
 		}
 
 
-		M2ReleaseAction m2ReleaseAction = new M2ReleaseAction(mms, false, false, false, isProduct, isForkedRepo);
+		M2ReleaseAction m2ReleaseAction = getReleaseAction(mms);
+		ReleaseProposal proposal = m2ReleaseAction.getProposal(rootPomVersion);
 		if (args.getDevelopmentVersion() == null) {
-			String nextDevelopmentVersion = m2ReleaseAction.computeNextVersion(rootPomVersion);
-			args.setDevelopmentVersion(nextDevelopmentVersion);
+			args.setDevelopmentVersion(proposal.getNextVersion());
 		}
 		if (args.getReleaseVersion() == null) {
-			String releaseVersion = m2ReleaseAction.computeReleaseVersion(rootPomVersion);
-			args.setReleaseVersion(releaseVersion);
+			args.setReleaseVersion(proposal.getReleaseVersion());
 		}
 		if (args.getScmTagName() == null) {
 			String scmTag = Constants.DEFAULT_SCM_TAG_PREFIX + args.getReleaseVersion();
@@ -440,6 +430,18 @@ private M2ReleaseArgumentsAction populateMissingArguments(M2ReleaseArgumentsActi
 		return args;
 	}
 
+	/**
+	 * Returns the release action of the project so that timer and push triggered releases share the release
+	 * proposal with the release form, or a new action if the project does not have one yet.
+	 */
+	private M2ReleaseAction getReleaseAction(MavenModuleSet mms) {
+		M2ReleaseAction action = mms.getAction(M2ReleaseAction.class);
+		if (action == null) {
+			action = new M2ReleaseAction(mms, false, false, false, isProduct, isForkedRepo);
+		}
+		return action;
+	}
+
 	private String getRootPomVersion(MavenModuleSet mms, AbstractBuild build, TaskListener listener) {
 		String pomVersion = null;
 
@@ -491,47 +493,6 @@ private String getRootPomVersion(MavenModuleSet mms, AbstractBuild build, TaskLi
 		return pomVersion;
 	}
 
-	/**
-	 * Manually read the pom version if the Jenkins rootModule is not available.
-	 * This reads the pom file transparent from the actual remote slave.
-	 */
-	private static class PomVersionReader implements FilePath.FileCallable<String> {
-		private static final long serialVersionUID = 1L;
-
-		/**
-		 * Manually read the pom version if the Jenkins rootModule is not available.
-		 */
-		public String invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
-			String version = NOT_A_NUMBER;
-			try {
-				if (file.isFile()) {
-					DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-					DocumentBuilder db = dbf.newDocumentBuilder();
-					Document doc = db.parse(file);
-
-					XPath xPath = XPathFactory.newInstance().newXPath();
-					version = (String) xPath
-							.evaluate("/project/version/text()", doc.getDocumentElement(), XPathConstants.STRING);
-
-					if (version == null || version.isEmpty()) {
-						version = (String) xPath.evaluate("/project/parent/version/text()", doc.getDocumentElement(),
-								XPathConstants.STRING);
-					}
-					return version;
-
-				}
-			} catch (ParserConfigurationException e) {
-				throw new IOException(e.getMessage(), e);
-			} catch (SAXException e) {
-				throw new IOException(e.getMessage(), e);
-			} catch (XPathExpressionException e) {
-				throw new IOException(e.getMessage(), e);
-			}
-			return version;
-		}
-
-	}
-
 	public boolean isSelectCustomScmCommentPrefix() {
 		return selectCustomScmCommentPrefix;
 	}
@@ -621,6 +582,16 @@ private boolean isTriggeredByGitPush(AbstractBuild build) {
 		return false;
 	}
 
+	/**
+	 * @return <code>true</code> if a build with the given cause is a release - started from the release action, by
+	 *         the release timer or by a push.
+	 */
+	static boolean isReleaseCause(Object cause) {
+		return cause instanceof ReleaseCause
+		       || cause instanceof TimerBasedReleaseTrigger.TimerBasedReleaseTriggerCause
+		       || GITHUB_PUSH_CAUSE.equals(cause.getClass().getName());
+	}
+
 	/** Recreate the logger on de-serialisation. */
 	private Object readResolve() {
 		log = LoggerFactory.getLogger(M2ReleaseBuildWrapper.class);
@@ -723,6 +694,15 @@ public static class DescriptorImpl extends BuildWrapperDescriptor {
 		public static final boolean    DEFAULT_SELECT_SCM_CREDENTIALS           = false;
 
 		public static final int        DEFAULT_NUMBER_OF_RELEASE_BUILDS_TO_KEEP = 1;
+		public static final int        DEFAULT_NEXUS_LOOKUP_CONCURRENCY         = 4;
+		public static final int        DEFAULT_NEXUS_ACTION_TIMEOUT             = 30;
+		public static final int        DEFAULT_NEXUS_RETRY_ATTEMPTS             = 5;
+		public static final int        DEFAULT_NEXUS_RETRY_MAX_DELAY            = 300;
+		public static final int        DEFAULT_NEXUS_CIRCUIT_BREAKER_THRESHOLD  = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+		public static final int        DEFAULT_NEXUS_MAX_CONCURRENT_RELEASES    = 8;
+		public static final int        DEFAULT_NEXUS_MAX_CONCURRENT_FINALIZATIONS = 4;
+		/** The first delay in seconds before a failed staging operation is retried. */
+		private static final int       NEXUS_RETRY_INITIAL_DELAY                = 15;
 		//Product release changes
 		public static final boolean DEFAULT_IS_PRODUCT = false;
 		public static final boolean DEFAULT_IS_FORKED_REPO = false;
@@ -732,6 +712,18 @@ public static class DescriptorImpl extends BuildWrapperDescriptor {
 		private String  nexusUser     = "deployment";                                    //$NON-NLS-1$
 		private String  nexusPassword = "deployment123";                                 //$NON-NLS-1$
 
+		private int     nexusMaxConnectionsPerHost = NexusConnectionSettings.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+		private int     nexusConnectTimeout        = NexusConnectionSettings.DEFAULT_CONNECT_TIMEOUT_SECONDS;
+		private int     nexusReadTimeout           = NexusConnectionSettings.DEFAULT_READ_TIMEOUT_SECONDS;
+		private int     nexusLookupConcurrency     = DEFAULT_NEXUS_LOOKUP_CONCURRENCY;
+		private boolean nexusLookupDetectDuplicates = false;
+		private int     nexusActionTimeout         = DEFAULT_NEXUS_ACTION_TIMEOUT;
+		private int     nexusRetryAttempts         = DEFAULT_NEXUS_RETRY_ATTEMPTS;
+		private int     nexusRetryMaxDelay         = DEFAULT_NEXUS_RETRY_MAX_DELAY;
+		private int     nexusCircuitBreakerThreshold = DEFAULT_NEXUS_CIRCUIT_BREAKER_THRESHOLD;
+		private int     nexusMaxConcurrentReleases = DEFAULT_NEXUS_MAX_CONCURRENT_RELEASES;
+		private int     nexusMaxConcurrentFinalizations = DEFAULT_NEXUS_MAX_CONCURRENT_FINALIZATIONS;
+
 
 
 		public DescriptorImpl() {
@@ -740,6 +732,8 @@ public DescriptorImpl() {
 			if (nexusURL != null && !nexusURL.endsWith("/")) {
 				nexusURL = nexusURL + "/";
 			}
+			NexusTransports.configure(getNexusConnectionSettings());
+			CircuitBreaker.configure(nexusCircuitBreakerThreshold, CircuitBreaker.DEFAULT_OPEN_TIME);
 		}
 
 
@@ -759,8 +753,31 @@ public boolean configure(StaplerRequest staplerRequest, JSONObject json) throws
 				}
 				nexusUser = Util.fixEmpty(nexusParams.getString("nexusUser")); //$NON-NLS-1$
 				nexusPassword = nexusParams.getString("nexusPassword"); //$NON-NLS-1$
+				nexusMaxConnectionsPerHost = nexusParams.optInt("nexusMaxConnectionsPerHost", //$NON-NLS-1$
+				                                                NexusConnectionSettings.DEFAULT_MAX_CONNECTIONS_PER_HOST);
+				nexusConnectTimeout = nexusParams.optInt("nexusConnectTimeout", //$NON-NLS-1$
+				                                         NexusConnectionSettings.DEFAULT_CONNECT_TIMEOUT_SECONDS);
+				nexusReadTimeout = nexusParams.optInt("nexusReadTimeout", //$NON-NLS-1$
+				                                      NexusConnectionSettings.DEFAULT_READ_TIMEOUT_SECONDS);
+				nexusLookupConcurrency = nexusParams.optInt("nexusLookupConcurrency", //$NON-NLS-1$
+				                                            DEFAULT_NEXUS_LOOKUP_CONCURRENCY);
+				nexusLookupDetectDuplicates = nexusParams.optBoolean("nexusLookupDetectDuplicates"); //$NON-NLS-1$
+				nexusActionTimeout = nexusParams.optInt("nexusActionTimeout", DEFAULT_NEXUS_ACTION_TIMEOUT); //$NON-NLS-1$
+				nexusRetryAttempts = Math.max(1, nexusParams.optInt("nexusRetryAttempts", //$NON-NLS-1$
+				                                                    DEFAULT_NEXUS_RETRY_ATTEMPTS));
+				nexusRetryMaxDelay = nexusParams.optInt("nexusRetryMaxDelay", DEFAULT_NEXUS_RETRY_MAX_DELAY); //$NON-NLS-1$
+				nexusCircuitBreakerThreshold = nexusParams.optInt("nexusCircuitBreakerThreshold", //$NON-NLS-1$
+				                                                  DEFAULT_NEXUS_CIRCUIT_BREAKER_THRESHOLD);
+				nexusMaxConcurrentReleases = nexusParams.optInt("nexusMaxConcurrentReleases", //$NON-NLS-1$
+				                                                DEFAULT_NEXUS_MAX_CONCURRENT_RELEASES);
+				nexusMaxConcurrentFinalizations = nexusParams.optInt("nexusMaxConcurrentFinalizations", //$NON-NLS-1$
+				                                                     DEFAULT_NEXUS_MAX_CONCURRENT_FINALIZATIONS);
 			}
 			save();
+			NexusTransports.configure(getNexusConnectionSettings());
+			CircuitBreaker.configure(nexusCircuitBreakerThreshold, CircuitBreaker.DEFAULT_OPEN_TIME);
+			// the credentials may have changed.
+			NexusCapabilityCache.clear();
 			return true; // indicate that everything is good so far
 		}
 
@@ -789,6 +806,88 @@ public boolean isNexusSupport() {
 			return nexusSupport;
 		}
 
+
+		public int getNexusMaxConnectionsPerHost() {
+			return nexusMaxConnectionsPerHost;
+		}
+
+
+		public int getNexusConnectTimeout() {
+			return nexusConnectTimeout;
+		}
+
+
+		public int getNexusReadTimeout() {
+			return nexusReadTimeout;
+		}
+
+
+		public int getNexusLookupConcurrency() {
+			return nexusLookupConcurrency;
+		}
+
+
+		public boolean isNexusLookupDetectDuplicates() {
+			return nexusLookupDetectDuplicates;
+		}
+
+
+		public int getNexusActionTimeout() {
+			return nexusActionTimeout;
+		}
+
+
+		public int getNexusRetryAttempts() {
+			return nexusRetryAttempts;
+		}
+
+
+		public int getNexusRetryMaxDelay() {
+			return nexusRetryMaxDelay;
+		}
+
+
+		public int getNexusCircuitBreakerThreshold() {
+			return nexusCircuitBreakerThreshold;
+		}
+
+
+		/**
+		 * @return the maximum number of release builds against the Nexus server at the same time, 0 for no limit.
+		 */
+		public int getNexusMaxConcurrentReleases() {
+			return nexusMaxConcurrentReleases;
+		}
+
+
+		/**
+		 * @return the maximum number of releases closing and releasing staging repositories at the same time, 0 for
+		 *         no limit.
+		 */
+		public int getNexusMaxConcurrentFinalizations() {
+			return nexusMaxConcurrentFinalizations;
+		}
+
+
+		/**
+		 * @return the policy for retrying a whole staging operation (e.g. closing the stages) that failed for a
+		 *         transient reason - the delay starts at 15 seconds and doubles up to the configured maximum.
+		 */
+		public RetryPolicy getNexusRetryPolicy() {
+			long initialDelay = NEXUS_RETRY_INITIAL_DELAY * 1000L;
+			long maxDelay = Math.max(initialDelay, nexusRetryMaxDelay * 1000L);
+			return new RetryPolicy(Math.max(1, nexusRetryAttempts), new Backoff(initialDelay, maxDelay, 2.0d, 0.25d));
+		}
+
+
+		/**
+		 * @return the settings for the connections to each Nexus host that are shared between builds.
+		 */
+		public NexusConnectionSettings getNexusConnectionSettings() {
+			return new NexusConnectionSettings(nexusMaxConnectionsPerHost, nexusConnectTimeout * 1000,
+			                                   nexusReadTimeout * 1000);
+		}
+
 		/**
 		 * Checks if the Nexus URL exists and we can authenticate against it.
 		 */
@@ -820,7 +919,8 @@ public FormValidation doUrlCheck(@QueryParameter String urlValue,
 					return FormValidation.error("protocol must be http or https");
 				}
 				StageClient client = new StageClient(new URL(testURL), usernameValue, passwordValue);
-				client.checkAuthentication();
+				// releases against this server can skip these checks for a while.
+				client.refreshCapabilities();
 			}
 			catch (MalformedURLException ex) {
 				return FormValidation.error(url + " is not a valid URL");
@@ -835,64 +935,11 @@ public FormValidation doUrlCheck(@QueryParameter String urlValue,
 	}
 
 	public RemoteScmInfo getRemoteScmInfo(String pollingLog) {
-		Iterator it = Arrays.asList(pollingLog.split("\n")).iterator();
-		return getRemoteScmInfo(it);
+		return PollingLogParser.parse(pollingLog);
 	}
 
 	public RemoteScmInfo getRemoteScmInfo(File pollingLogFile) throws IOException {
-		Iterator iterator = FileUtils.lineIterator(pollingLogFile);
-		return getRemoteScmInfo(iterator);
-	}
-
-	private RemoteScmInfo getRemoteScmInfo(Iterator pollingLogIterator) {
-		String remoteRevision = null;
-		String remoteBranch = null;
-		Boolean changesFound = null;
-		while (pollingLogIterator.hasNext()) {
-			String line = (String) pollingLogIterator.next();
-			String pollHeadRegex = "(\\[poll\\] Latest remote head revision on ([^\\s]*) is: ([0-9a-f]*))|(Changes found)";
-			Pattern pattern = Pattern.compile(pollHeadRegex);
-			Matcher matcher = pattern.matcher(line);
-
-			if (matcher.matches()) {
-				if (matcher.group(1) != null) {
-					remoteBranch = matcher.group(2);
-					remoteRevision = matcher.group(3);
-				} else if (matcher.group(4) != null) {
-					changesFound = true;
-				}
-			}
-
-			if (remoteBranch != null && changesFound != null) {
-				break;
-			}
-		}
-		return new RemoteScmInfo(remoteRevision, remoteBranch, changesFound);
-	}
-
-	private class RemoteScmInfo {
-		private String remoteRevision;
-		private String remoteBranch;
-		private Boolean changesFound;
-
-		public RemoteScmInfo(String remoteRevision, String remoteBranch, Boolean changesFound) {
-			this.remoteRevision = remoteRevision;
-			this.remoteBranch = remoteBranch;
-			this.changesFound = changesFound;
-		}
-
-		public String getRemoteRevision() {
-			return remoteRevision;
-		}
-
-		public String getRemoteBranch() {
-			return remoteBranch;
-		}
-
-		public Boolean getChangesFound() {
-			return changesFound;
-		}
-
+		return PollingLogParser.parse(pollingLogFile);
 	}
 
 }
@@ -24,7 +24,11 @@
 package org.jvnet.hudson.plugins.m2release;
 
 import hudson.Plugin;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import org.jvnet.hudson.plugins.m2release.M2ReleaseBuildWrapper.DescriptorImpl;
+import org.jvnet.hudson.plugins.m2release.nexus.NexusTransports;
+import org.jvnet.hudson.plugins.m2release.nexus.StageTransitionWatcher;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -38,5 +42,24 @@ public void start() throws Exception {
         // As a work around, force loading of this permission so that by the time we start loading ACLs,
         // we have this instance already registered, thereby avoiding a lookup.
         DescriptorImpl.CREATE_RELEASE.toString();
+
+        // builds wait for their staging repositories through one shared poller.
+        StageTransitionWatcher.start();
+    }
+
+    /**
+     * Load the release build indexes once the jobs are loaded, so list views and dashboards do not have to.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void warmReleaseIndexes() {
+        // seeding the feed reads the existing indexes, missing ones are built in the background.
+        ReleaseFeed.getInstance();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        StageTransitionWatcher.stop();
+        // forget the transports so no new requests are throttled by the stopped plugin.
+        NexusTransports.shutdown();
     }
 }
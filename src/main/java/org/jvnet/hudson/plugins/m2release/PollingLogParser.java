@@ -0,0 +1,133 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the remote head revision and whether changes were found in the SCM polling log of a push triggered build.
+ * The log is read line by line and reading stops as soon as both are known.
+ */
+public final class PollingLogParser {
+
+    private static final String HEAD_PREFIX = "[poll] Latest remote head revision on ";
+
+    private static final String CHANGES_FOUND = "Changes found";
+
+    private static final Pattern HEAD_PATTERN =
+            Pattern.compile("\\[poll\\] Latest remote head revision on ([^\\s]*) is: ([0-9a-f]*)");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private PollingLogParser() {
+    }
+
+    /**
+     * Parse a polling log file.
+     */
+    public static RemoteScmInfo parse(File pollingLog) throws IOException {
+        FileInputStream in = new FileInputStream(pollingLog);
+        try {
+            FileChannel channel = in.getChannel();
+            // the polling log is written in the default encoding of the controller, but may contain output of git in
+            // another encoding that must not stop the parsing.
+            CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            return parse(new BufferedReader(Channels.newReader(channel, decoder, BUFFER_SIZE), BUFFER_SIZE));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Parse the content of a polling log.
+     */
+    public static RemoteScmInfo parse(String pollingLog) {
+        try {
+            return parse(new BufferedReader(new StringReader(pollingLog)));
+        } catch (IOException e) {
+            // can not happen reading from a String
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static RemoteScmInfo parse(BufferedReader reader) throws IOException {
+        String remoteRevision = null;
+        String remoteBranch = null;
+        Boolean changesFound = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(HEAD_PREFIX)) {
+                Matcher matcher = HEAD_PATTERN.matcher(line);
+                if (matcher.matches()) {
+                    remoteBranch = matcher.group(1);
+                    remoteRevision = matcher.group(2);
+                }
+            } else if (line.equals(CHANGES_FOUND)) {
+                changesFound = Boolean.TRUE;
+            }
+
+            if (remoteBranch != null && changesFound != null) {
+                break;
+            }
+        }
+        return new RemoteScmInfo(remoteRevision, remoteBranch, changesFound);
+    }
+
+    /**
+     * What the polling log says about the remote.
+     */
+    public static final class RemoteScmInfo {
+        private final String remoteRevision;
+        private final String remoteBranch;
+        private final Boolean changesFound;
+
+        RemoteScmInfo(String remoteRevision, String remoteBranch, Boolean changesFound) {
+            this.remoteRevision = remoteRevision;
+            this.remoteBranch = remoteBranch;
+            this.changesFound = changesFound;
+        }
+
+        public String getRemoteRevision() {
+            return remoteRevision;
+        }
+
+        public String getRemoteBranch() {
+            return remoteBranch;
+        }
+
+        /**
+         * @return <code>true</code> if changes were found, <code>null</code> if the log does not say.
+         */
+        public Boolean getChangesFound() {
+            return changesFound;
+        }
+    }
+}
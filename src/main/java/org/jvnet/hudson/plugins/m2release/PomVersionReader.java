@@ -0,0 +1,164 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the version of a pom on the node that holds the workspace. The pom is streamed and reading stops at
+ * <code>/project/version</code>, falling back to <code>/project/parent/version</code> when the project does not
+ * declare its own. Results are cached on the node by path, size and modification time so that repeated release
+ * attempts do not parse a large aggregator pom again.
+ */
+class PomVersionReader implements FilePath.FileCallable<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int CACHE_SIZE = 64;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private static final Map<String, CachedVersion> CACHE = new LinkedHashMap<String, CachedVersion>(16, 0.75f,
+            true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedVersion> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public String invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
+        if (!file.isFile()) {
+            return M2ReleaseBuildWrapper.NOT_A_NUMBER;
+        }
+        String key = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        synchronized (CACHE) {
+            CachedVersion cached = CACHE.get(key);
+            if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+                return cached.version;
+            }
+        }
+        String version = readVersion(file);
+        synchronized (CACHE) {
+            CACHE.put(key, new CachedVersion(length, lastModified, version));
+        }
+        return version;
+    }
+
+    /**
+     * Streams the pom and returns the project version, or the parent version when the project has none. Returns an
+     * empty string when neither is declared.
+     */
+    static String readVersion(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            XMLStreamReader reader;
+            synchronized (XML_INPUT_FACTORY) {
+                reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            }
+            try {
+                return readVersion(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String readVersion(XMLStreamReader reader) throws XMLStreamException {
+        String parentVersion = "";
+        boolean inParent = false;
+        int depth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                String name = reader.getLocalName();
+                if (depth == 1 && !"project".equals(name)) {
+                    return "";
+                } else if (depth == 2 && "parent".equals(name)) {
+                    inParent = true;
+                } else if (depth == 2 && "version".equals(name)) {
+                    String version = reader.getElementText();
+                    depth--;
+                    if (version.length() > 0) {
+                        return version;
+                    }
+                } else if (depth == 3 && inParent && "version".equals(name)) {
+                    parentVersion = reader.getElementText();
+                    depth--;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == 2) {
+                    inParent = false;
+                }
+                depth--;
+            }
+        }
+        return parentVersion;
+    }
+
+    /**
+     * Forgets the cached versions, for tests.
+     */
+    static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return factory;
+    }
+
+    private static final class CachedVersion {
+        private final long length;
+        private final long lastModified;
+        private final String version;
+
+        CachedVersion(long length, long lastModified, String version) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.BuildableItemWithBuildWrappers;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An index of the release builds of a job, kept in <code>releaseBuilds.xml</code> in the directory of the job so
+ * that finding the releases does not need to load every build of the job. The index is built from the build history
+ * the first time it is used and then kept up to date by {@link ReleaseBuildIndexListener}. Views ask for the index
+ * with {@link #getIfReady(Job)}, which builds a missing index in the background instead of scanning the history of
+ * the job in the request.
+ */
+public class ReleaseBuildIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ReleaseBuildIndex.class);
+
+    /** The indexes by the full name of their job, evicted by {@link JobListener} when the job goes away. */
+    private static final Map<String, ReleaseBuildIndex> indexes = new HashMap<String, ReleaseBuildIndex>();
+
+    /** Builds the missing indexes one job at a time. */
+    private static final ExecutorService builder = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
+
+    private transient Job job;
+
+    /** Whether the index has been read from its file or built from the build history. */
+    private transient volatile boolean loaded;
+
+    /** The release builds, newest first. */
+    private List<Entry> releases = new ArrayList<Entry>();
+
+    /** The newest successful release that was not a dry run. */
+    private transient Entry lastRelease;
+
+    private ReleaseBuildIndex(Job job) {
+        this.job = job;
+    }
+
+    /**
+     * Get the index of the release builds of the given job, loading or building it if needed.
+     */
+    public static ReleaseBuildIndex forJob(Job job) {
+        ReleaseBuildIndex index = getOrCreate(job);
+        index.ensureLoaded();
+        return index;
+    }
+
+    /**
+     * Get the index of the release builds of the given job if it can be had without scanning the build history of
+     * the job. A missing index is built in the background and added to the {@link ReleaseFeed} once it is ready.
+     *
+     * @return the index, or <code>null</code> if it is still being built.
+     */
+    public static ReleaseBuildIndex getIfReady(final Job job) {
+        ReleaseBuildIndex index;
+        synchronized (indexes) {
+            index = indexes.get(job.getFullName());
+            if (index == null && !fileOf(job).exists()) {
+                index = new ReleaseBuildIndex(job);
+                indexes.put(job.getFullName(), index);
+                final ReleaseBuildIndex building = index;
+                builder.submit(new Runnable() {
+                    public void run() {
+                        building.ensureLoaded();
+                        ReleaseFeed.getInstance().addAll(job, building.getReleases());
+                    }
+                });
+                return null;
+            }
+        }
+        if (index == null) {
+            // reading the index file is cheap
+            return forJob(job);
+        }
+        return index.loaded ? index : null;
+    }
+
+    private static ReleaseBuildIndex getOrCreate(Job job) {
+        synchronized (indexes) {
+            ReleaseBuildIndex index = indexes.get(job.getFullName());
+            if (index == null) {
+                index = new ReleaseBuildIndex(job);
+                indexes.put(job.getFullName(), index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Forget the indexes of the item and of the jobs inside it, and of the jobs that are no longer known by the
+     * name of their index, e.g. after the item was renamed.
+     */
+    static void evict(Item item) {
+        String prefix = item.getFullName() + '/';
+        synchronized (indexes) {
+            for (Iterator<Map.Entry<String, ReleaseBuildIndex>> it = indexes.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<String, ReleaseBuildIndex> entry = it.next();
+                String name = entry.getKey();
+                if (name.equals(item.getFullName()) || name.startsWith(prefix)
+                        || !name.equals(entry.getValue().job.getFullName())) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the job is set up to do Maven releases.
+     */
+    public static boolean isReleaseJob(Job job) {
+        if (!(job instanceof BuildableItemWithBuildWrappers)) {
+            return false;
+        }
+        return ((BuildableItemWithBuildWrappers) job).getBuildWrappersList().get(M2ReleaseBuildWrapper.class) != null;
+    }
+
+    /**
+     * @return the newest successful release that was not a dry run, or <code>null</code> if there is none.
+     */
+    public synchronized Entry getLastRelease() {
+        return lastRelease;
+    }
+
+    /**
+     * @return the summary of the given release build, or <code>null</code> if it is not in the index.
+     */
+    public synchronized ReleaseSummary getSummary(int number) {
+        // the releases are sorted by number, newest first
+        int low = 0;
+        int high = releases.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midNumber = releases.get(mid).number;
+            if (midNumber == number) {
+                return releases.get(mid).summary;
+            } else if (midNumber > number) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the release builds of the job, newest first.
+     */
+    public synchronized List<Entry> getReleases() {
+        return Collections.unmodifiableList(new ArrayList<Entry>(releases));
+    }
+
+    /**
+     * @return the successful release builds of the job (including dry runs), newest first.
+     */
+    public synchronized List<Entry> getSuccessfulReleases() {
+        List<Entry> successful = new ArrayList<Entry>();
+        for (Entry entry : releases) {
+            if (entry.isSuccessful()) {
+                successful.add(entry);
+            }
+        }
+        return successful;
+    }
+
+    /**
+     * Add or update the entry of a completed build. Builds that are not releases are ignored.
+     *
+     * @return <code>true</code> if the build is a release and was recorded.
+     */
+    public boolean record(Run run) {
+        Entry entry = Entry.of(run);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (this) {
+            removeEntry(entry.number);
+            int i = 0;
+            while (i < releases.size() && releases.get(i).number > entry.number) {
+                i++;
+            }
+            releases.add(i, entry);
+            if (lastRelease == null || lastRelease.number <= entry.number) {
+                updateLastRelease();
+            }
+        }
+        save();
+        return true;
+    }
+
+    /**
+     * Update the keep log state of a release build.
+     */
+    public void setKeepLog(int number, boolean keepLog) {
+        boolean changed = false;
+        synchronized (this) {
+            for (Entry entry : releases) {
+                if (entry.number == number && entry.keepLog != keepLog) {
+                    entry.keepLog = keepLog;
+                    changed = true;
+                }
+            }
+        }
+        if (changed) {
+            save();
+        }
+    }
+
+    /**
+     * Remove the entry of a deleted build.
+     */
+    public void remove(int number) {
+        boolean removed;
+        synchronized (this) {
+            removed = removeEntry(number);
+            if (lastRelease != null && lastRelease.number == number) {
+                updateLastRelease();
+            }
+        }
+        if (removed) {
+            save();
+        }
+    }
+
+    private boolean removeEntry(int number) {
+        for (Iterator<Entry> it = releases.iterator(); it.hasNext();) {
+            if (it.next().number == number) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void updateLastRelease() {
+        lastRelease = null;
+        for (Entry entry : releases) {
+            if (!entry.isDryRun() && entry.getResult() == Result.SUCCESS) {
+                lastRelease = entry;
+                return;
+            }
+        }
+    }
+
+    private XmlFile getFile() {
+        return fileOf(job);
+    }
+
+    private static XmlFile fileOf(Job job) {
+        return new XmlFile(new File(job.getRootDir(), Constants.RELEASE_BUILD_INDEX));
+    }
+
+    private synchronized void ensureLoaded() {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+    }
+
+    private synchronized void load() {
+        XmlFile file = getFile();
+        if (file.exists()) {
+            try {
+                file.unmarshal(this);
+                if (releases == null) {
+                    releases = new ArrayList<Entry>();
+                }
+                updateLastRelease();
+                return;
+            } catch (IOException e) {
+                log.warn("Could not read the release build index of " + job.getName() + ", rebuilding it", e);
+            }
+        }
+        // first use (or a broken index) - scan the build history once.
+        releases = new ArrayList<Entry>();
+        for (Object o : job.getBuilds()) {
+            Entry entry = Entry.of((Run) o);
+            if (entry != null) {
+                releases.add(entry);
+            }
+        }
+        updateLastRelease();
+        log.debug("Indexed {} release builds of {}", Integer.valueOf(releases.size()), job.getName());
+        save();
+    }
+
+    private synchronized void save() {
+        try {
+            getFile().write(this);
+        } catch (IOException e) {
+            log.warn("Could not save the release build index of " + job.getName(), e);
+        }
+    }
+
+    /**
+     * A release build in the index.
+     */
+    public static final class Entry {
+
+        private final int number;
+        private final ReleaseSummary summary;
+        private boolean keepLog;
+
+        Entry(int number, ReleaseSummary summary, boolean keepLog) {
+            this.number = number;
+            this.summary = summary;
+            this.keepLog = keepLog;
+        }
+
+        /**
+         * @return the entry for the given run, or <code>null</code> if it is not a completed release build.
+         */
+        static Entry of(Run run) {
+            if (run.isBuilding()) {
+                return null;
+            }
+            ReleaseSummary summary = ReleaseSummary.of(run);
+            if (summary == null) {
+                return null;
+            }
+            return new Entry(run.getNumber(), summary, run.isKeepLog());
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public ReleaseSummary getSummary() {
+            return summary;
+        }
+
+        public String getVersion() {
+            return summary.getVersion();
+        }
+
+        public Result getResult() {
+            return summary.getResult();
+        }
+
+        public boolean isDryRun() {
+            return summary.isDryRun();
+        }
+
+        /**
+         * @return the time the build was scheduled, in milliseconds since the epoch.
+         */
+        public long getTimestamp() {
+            return summary.getTimestamp();
+        }
+
+        public boolean isKeepLog() {
+            return keepLog;
+        }
+
+        public boolean isSuccessful() {
+            Result r = getResult();
+            return r != null && r.isBetterOrEqualTo(Result.SUCCESS);
+        }
+    }
+
+    /**
+     * Drops the index of a job that is deleted or renamed, the index file moves along with the job directory.
+     */
+    @Extension
+    public static class JobListener extends ItemListener {
+
+        @Override
+        public void onDeleted(Item item) {
+            evict(item);
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            evict(item);
+        }
+    }
+}
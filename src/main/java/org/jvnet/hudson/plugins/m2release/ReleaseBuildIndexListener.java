@@ -0,0 +1,51 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Keeps the {@link ReleaseBuildIndex} of a job and the {@link ReleaseFeed} up to date as release builds complete or
+ * are deleted.
+ */
+@Extension
+public class ReleaseBuildIndexListener extends RunListener<Run> {
+
+    public ReleaseBuildIndexListener() {
+        super(Run.class);
+    }
+
+    @Override
+    public void onCompleted(Run run, TaskListener listener) {
+        if (run.getAction(M2ReleaseBadgeAction.class) != null) {
+            ReleaseBuildIndex.forJob(run.getParent()).record(run);
+            ReleaseFeed.getInstance().add(run);
+        }
+    }
+
+    @Override
+    public void onDeleted(Run run) {
+        if (run.getAction(M2ReleaseBadgeAction.class) != null) {
+            ReleaseBuildIndex.forJob(run.getParent()).remove(run.getNumber());
+            ReleaseFeed.getInstance().remove(run);
+        }
+    }
+}
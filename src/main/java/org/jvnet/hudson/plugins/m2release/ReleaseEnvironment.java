@@ -17,45 +17,50 @@
 */
 package org.jvnet.hudson.plugins.m2release;
 
-import hudson.EnvVars;
 import hudson.Launcher;
 import hudson.maven.MavenModule;
 import hudson.maven.MavenModuleSet;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
-import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.plugins.git.GitException;
 import hudson.plugins.git.GitSCM;
 import hudson.plugins.git.UserRemoteConfig;
-import hudson.plugins.git.util.GitUtils;
-import hudson.scm.SCM;
 import hudson.tasks.BuildWrapper;
-import hudson.util.RunList;
 import hudson.util.TextFile;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.URIish;
 import org.jenkinsci.plugins.gitclient.GitClient;
+import org.jvnet.hudson.plugins.m2release.nexus.RetryPolicy;
 import org.jvnet.hudson.plugins.m2release.nexus.Stage;
 import org.jvnet.hudson.plugins.m2release.nexus.StageClient;
 import org.jvnet.hudson.plugins.m2release.nexus.StageException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.jvnet.hudson.plugins.m2release.M2ReleaseBuildWrapper.DescriptorImpl.DEFAULT_RELEASE_VERSION_ENVVAR;
 
@@ -63,15 +68,31 @@ public class ReleaseEnvironment extends BuildWrapper.Environment {
 
     private transient Logger log = LoggerFactory.getLogger(ReleaseEnvironment.class);
 
+    /**
+     * Matches the staging repository ID printed by the maven deploy (deployByRepositoryId URLs) or by the
+     * nexus-staging-maven-plugin.
+     */
+    private static final Pattern STAGING_REPOSITORY_ID_PATTERN =
+            Pattern.compile("(?:staging/deployByRepositoryId/|Created staging repository with ID \")([^/\"\\s]+)");
+
+    /** Names of the tearDown phases, as printed to the build log. */
+    private static final String PHASE_GIT_MERGE = "git-merge";
+    private static final String PHASE_NEXUS_CLOSE = "nexus-close";
+    private static final String PHASE_GIT_PUSH = "git-push";
+    private static final String PHASE_NEXUS_RELEASE = "nexus-release";
+
     private M2ReleaseBuildWrapper m2ReleaseBuildWrapper;
     private final String releaseBranch;
     private final String remoteBranch;
     private final String remoteRevision;
     private Launcher launcher;
     private final String releaseVersion;
+    private final GitReleaseSession gitSession;
+    private transient ReleaseJournal journal;
+    private transient ReleaseMetricsAction metrics;
 
     public ReleaseEnvironment(BuildWrapper enclosing, String releaseBranch, String remoteBranch,
-		    String remoteRevision, String releaseVersion, Launcher launcher) {
+		    String remoteRevision, String releaseVersion, Launcher launcher, GitReleaseSession gitSession) {
         enclosing.super();
         this.m2ReleaseBuildWrapper = (M2ReleaseBuildWrapper) enclosing;
         this.releaseBranch = releaseBranch;
@@ -79,6 +100,7 @@ public ReleaseEnvironment(BuildWrapper enclosing, String releaseBranch, String r
         this.remoteRevision = remoteRevision;
         this.releaseVersion = releaseVersion;
         this.launcher = launcher;
+        this.gitSession = gitSession;
     }
 
     @Override
@@ -93,8 +115,20 @@ public void buildEnvVars(Map<String, String> env) {
      */@Override
     public boolean tearDown(@SuppressWarnings("rawtypes") AbstractBuild bld, BuildListener lstnr)
             throws IOException, InterruptedException {
-        boolean retVal;
+        metrics = ReleaseMetricsAction.of(bld);
+        metrics.mavenFinished();
+        try {
+            return doTearDown(bld, lstnr);
+        } finally {
+            // the git session is not needed after the release (and can not be saved with the build)
+            if (gitSession != null) {
+                bld.getActions().remove(gitSession);
+            }
+        }
+    }
 
+    private boolean doTearDown(final AbstractBuild bld, final BuildListener lstnr)
+            throws IOException, InterruptedException {
         M2ReleaseArgumentsAction args = bld.getAction(M2ReleaseArgumentsAction.class);
 
         if (args.isDryRun()) {
@@ -102,22 +136,175 @@ public boolean tearDown(@SuppressWarnings("rawtypes") AbstractBuild bld, BuildLi
             return true;
         }
 
+        journal = ReleaseJournal.forBuild(bld);
+        if (journal == null) {
+            journal = ReleaseJournal.start(bld, releaseBranch, remoteBranch, remoteRevision, releaseVersion,
+                    bld.getResult());
+        } else {
+            lstnr.getLogger().println("[WSO2 Maven Release] Resuming the release finalization after "
+                    + journal.getCompleted());
+        }
+
         // 1) write latest commit hash
-        writeLatestReleaseRevisionNumber(bld, lstnr);
+        if (!journal.isDone(ReleaseJournal.Step.REVISION_WRITTEN)) {
+            writeLatestReleaseRevisionNumber(bld, lstnr);
+            journal.complete(ReleaseJournal.Step.REVISION_WRITTEN);
+        }
 
-        // 2) merge release branch into main branch and finalize the git repo
-        finalizeSCMRepo(bld, lstnr);
+        // 2) merge the release branch into main branch locally while the nexus staging repo is closed, then push
+        // the merge and release the staging repo once both of them are done
+        final GitFinalization git = new GitFinalization();
+        final NexusFinalization nexus = new NexusFinalization();
+        TearDownPipeline pipeline = new TearDownPipeline(lstnr.getLogger());
+        pipeline.add(PHASE_GIT_MERGE, new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                long start = System.nanoTime();
+                try {
+                    return mergeSCMRepo(bld, lstnr, git);
+                } finally {
+                    git.nanos += System.nanoTime() - start;
+                }
+            }
+        });
+        pipeline.add(PHASE_NEXUS_CLOSE, new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                nexus.permit = acquireFinalization(lstnr);
+                return closeNexusStagingRepo(bld, lstnr, nexus);
+            }
+        });
+        pipeline.add(PHASE_GIT_PUSH, new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                long start = System.nanoTime();
+                try {
+                    pushSCMRepo(bld, lstnr, git);
+                } finally {
+                    git.nanos += System.nanoTime() - start;
+                }
+                return true;
+            }
+        }, PHASE_GIT_MERGE, PHASE_NEXUS_CLOSE);
+        pipeline.add(PHASE_NEXUS_RELEASE, new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                return releaseNexusStagingRepo(lstnr, nexus);
+            }
+        }, PHASE_GIT_MERGE, PHASE_NEXUS_CLOSE);
+        try {
+            pipeline.run();
+        } finally {
+            if (nexus.permit != null) {
+                nexus.permit.release();
+            }
+        }
+        // merge and push are one observation of the scm finalization, they never run at the same time.
+        metrics.add(ReleaseMetricsAction.Phase.SCM_FINALIZATION, TimeUnit.NANOSECONDS.toMillis(git.nanos));
+        if (nexus.client != null) {
+            metrics.addNexusMetrics(nexus.client.getMetrics());
+        }
 
-        // 3) close and release nexus staging repo
-        retVal = closeNexusStagingRepo(bld, lstnr);
+        if (nexus.abandoned && journal.isBuildSuccessful() && git.remoteUrl != null
+                && !journal.isDone(ReleaseJournal.Step.TAG_DROPPED)) {
+            // the release will not be published, so the tag must not point to it. the release branch is kept for
+            // review. a close that may still succeed keeps the tag so the finalization can be resumed.
+            try {
+                dropReleaseTag(bld, lstnr, git.remoteUrl, args.getScmTagName(),
+                        "the nexus staging repository was not closed.");
+            } catch (RuntimeException e) {
+                log.error("[WSO2 Maven Release] Could not drop the release tag " + args.getScmTagName(), e);
+            }
+        }
+        rethrow(pipeline.getFailure(PHASE_GIT_MERGE));
+        rethrow(pipeline.getFailure(PHASE_GIT_PUSH));
+        // expected nexus failures are reported by the phases themselves, anything else must fail the build
+        rethrowUnchecked(pipeline.getFailure(PHASE_NEXUS_CLOSE));
+        rethrowUnchecked(pipeline.getFailure(PHASE_NEXUS_RELEASE));
+
+        boolean published = pipeline.succeeded(PHASE_NEXUS_CLOSE) && pipeline.succeeded(PHASE_NEXUS_RELEASE)
+                && pipeline.succeeded(PHASE_GIT_PUSH);
+        boolean abandoned = nexus.abandoned && (!journal.isBuildSuccessful() || git.remoteUrl == null
+                || journal.isDone(ReleaseJournal.Step.TAG_DROPPED));
+        if (!published && !abandoned) {
+            // the staging repositories are still open or not released, keep the journal where it stopped so the
+            // finalization can be resumed from there.
+            lstnr.getLogger().println("[WSO2 Maven Release] The release finalization did not finish, it can be "
+                    + "resumed from the build page after " + journal.getCompleted());
+            return false;
+        }
 
-        // 4) keep this build for later reference?
+        // 3) keep this build for later reference?
+        long keepStart = System.nanoTime();
         keepThisBuild(bld, lstnr);
+        metrics.record(ReleaseMetricsAction.Phase.KEEP_LOG, keepStart);
+        journal.complete(ReleaseJournal.Step.BUILD_KEPT);
+        journal.complete(ReleaseJournal.Step.FINISHED);
+
+        return published;
+    }
+
+    private static void rethrow(Throwable failure) throws IOException, InterruptedException {
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof InterruptedException) {
+            throw (InterruptedException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IOException(failure.getMessage(), failure);
+    }
+
+    private static void rethrowUnchecked(Throwable failure) throws InterruptedException {
+        if (failure instanceof InterruptedException) {
+            throw (InterruptedException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
 
-        return retVal;
+    /**
+     * Scan the build log for the IDs of the staging repositories that the release was deployed to.
+     *
+     * @return the staging repository IDs mentioned in the log, the last one mentioned last.
+     */
+    private List<String> findStagingRepositoryIDs(AbstractBuild bld) {
+        Set<String> stageIDs = new LinkedHashSet<String>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(bld.getLogReader());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.indexOf("staging/deployByRepositoryId/") < 0 && line.indexOf("Created staging repository") < 0) {
+                    continue;
+                }
+                Matcher matcher = STAGING_REPOSITORY_ID_PATTERN.matcher(line);
+                if (matcher.find()) {
+                    stageIDs.remove(matcher.group(1));
+                    stageIDs.add(matcher.group(1));
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Could not scan the build log for the staging repository ID", e);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+        return new ArrayList<String>(stageIDs);
     }
 
-    private boolean closeNexusStagingRepo(AbstractBuild bld, BuildListener lstnr) {
+    /**
+     * Finds the staging repositories of the release and closes them, or drops them if the build failed. The client
+     * and the stages are kept in <code>nexus</code> for {@link #releaseNexusStagingRepo}.
+     */
+    private boolean closeNexusStagingRepo(AbstractBuild bld, BuildListener lstnr, NexusFinalization nexus) {
         final MavenModuleSet mmSet = ReleaseUtils.getModuleSet(bld);
         M2ReleaseArgumentsAction args = bld.getAction(M2ReleaseArgumentsAction.class);
 
@@ -131,56 +318,87 @@ private boolean closeNexusStagingRepo(AbstractBuild bld, BuildListener lstnr) {
                 m2ReleaseBuildWrapper.getDescriptor().getNexusURL()),
                 m2ReleaseBuildWrapper.getDescriptor().getNexusUser(),
                 m2ReleaseBuildWrapper.getDescriptor().getNexusPassword());
-            MavenModule rootModule = mmSet.getRootModule();
-            Stage stage = client.getOpenStageID(rootModule.getModuleName().groupId,
-                    rootModule.getModuleName().artifactId, args.getReleaseVersion());
+            client.setLookupConcurrency(m2ReleaseBuildWrapper.getDescriptor().getNexusLookupConcurrency());
+            client.setDetectDuplicateStages(m2ReleaseBuildWrapper.getDescriptor().isNexusLookupDetectDuplicates());
+            client.setActionTimeout(TimeUnit.MINUTES.toMillis(m2ReleaseBuildWrapper.getDescriptor().getNexusActionTimeout()));
+            nexus.client = client;
+            Set<Stage> stages;
+            if (journal.isDone(ReleaseJournal.Step.STAGES_FOUND)) {
+                stages = journal.getStages();
+                lstnr.getLogger().println("[M2Release] Using the staging repositories " + stages
+                        + " from the release journal.");
+            } else {
+                MavenModule rootModule = mmSet.getRootModule();
+                long lookupStart = System.nanoTime();
+                Stage stage;
+                try {
+                    List<String> stageIDs = findStagingRepositoryIDs(bld);
+                    stage = client.findOpenStage(rootModule.getModuleName().groupId,
+                            rootModule.getModuleName().artifactId, args.getReleaseVersion(),
+                            stageIDs.isEmpty() ? null : stageIDs.get(stageIDs.size() - 1));
+                    stages = stage == null ? null
+                            : findModuleStages(client, mmSet, stage, args.getReleaseVersion(), stageIDs);
+                } finally {
+                    metrics.record(ReleaseMetricsAction.Phase.STAGE_LOOKUP, lookupStart);
+                }
 
-            if (stage == null) {
-                lstnr.fatalError("[M2Release] Could not find nexus stage repository for project.\n");
-                return false;
+                if (stage == null) {
+                    lstnr.fatalError("[M2Release] Could not find nexus stage repository for project.\n");
+                    nexus.abandoned = true;
+                    return false;
+                }
+                // remembered for the release summary
+                args.setStageID(stage.getStageID());
+                journal.setStages(stages);
             }
-            if (bld.getResult() == null || !bld.getResult().isBetterOrEqualTo(Result.SUCCESS)) {
-                lstnr.getLogger().println("[M2Release] Dropping repository " + stage
-                        + ". Reason: " + bld.getResult() + " build.");
-                client.dropStage(stage);
-                lstnr.getLogger().println("[M2Release] Dropped staging repository.");
-
+            if (!journal.isBuildSuccessful()) {
+                if (!journal.isDone(ReleaseJournal.Step.STAGES_DROPPED)) {
+                    lstnr.getLogger().println("[M2Release] Dropping repository " + stages
+                            + ". Reason: " + journal.getBuildResult() + " build.");
+                    client.dropStages(stages);
+                    journal.complete(ReleaseJournal.Step.STAGES_DROPPED);
+                    lstnr.getLogger().println("[M2Release] Dropped staging repository.");
+                }
+                nexus.abandoned = true;
                 return false;
             }
 
             //close the nexus repo.. with retrying.
-            if (args.isCloseNexusStage()) {
-                boolean isSuccess = false;
-                for (int tries = 5; tries > 0; tries--) {
-                    try {
-                        lstnr.getLogger().println("[M2Release] Closing Nexus staging repository " + stage);
-                        client.closeStage(stage, args.getRepoDescription());
-                        lstnr.getLogger().println("[M2Release] Closed Nexus staging repository.");
-                        isSuccess = true;
-                        break;
-                    } catch (StageException ex) {
-                        lstnr.fatalError("[M2Release] Could not close repository , %1$s\n", ex.getMessage());
-                        ex.printStackTrace(lstnr.getLogger());
-                        log.error("[M2Release] Could not close repository " + stage, ex);
-
-                        try { Thread.sleep(15000);} catch (InterruptedException e) { /* ignore */ }
-                        lstnr.getLogger().println("Retrying...");
+            if (args.isCloseNexusStage() && !journal.isDone(ReleaseJournal.Step.STAGES_CLOSED)) {
+                final StageClient closingClient = client;
+                final Set<Stage> closingStages = stages;
+                final String description = args.getRepoDescription();
+                lstnr.getLogger().println("[M2Release] Closing Nexus staging repository " + stages);
+                long closeStart = System.nanoTime();
+                try {
+                    getNexusRetryPolicy().execute("close " + stages, null, new RetryPolicy.Operation<Void>() {
+                        public Void call() throws IOException {
+                            closingClient.closeStages(closingStages, description);
+                            return null;
+                        }
+                    }, new NexusRetryListener(client, lstnr, "close"));
+                } catch (StageException ex) {
+                    metrics.record(ReleaseMetricsAction.Phase.CLOSE_WAIT, closeStart);
+                    lstnr.fatalError("[M2Release] Could not close repository , %1$s\n", ex.getMessage());
+                    ex.printStackTrace(lstnr.getLogger());
+                    log.error("[M2Release] Could not close repository " + stages, ex);
+                    printWaitStatistics(client, lstnr);
+                    if (ex.isPermanent()) {
+                        lstnr.getLogger().println("[M2Release] Not retrying, the staging rules failed.");
+                        nexus.abandoned = true;
                     }
-                }
-                if (!isSuccess) {
                     return false;
                 }
-
+                metrics.record(ReleaseMetricsAction.Phase.CLOSE_WAIT, closeStart);
+                journal.complete(ReleaseJournal.Step.STAGES_CLOSED);
+                lstnr.getLogger().println("[M2Release] Closed Nexus staging repository.");
+                printWaitStatistics(client, lstnr);
             }
 
-            //release the nexus staging repository
-            if (args.isReleaseNexusStage()) {
-                lstnr.getLogger().println("[WSO2 Maven Release] Releasing Nexus repository " + stage);
-                client.releaseStage(stage, args.getRepoDescription());
-                lstnr.getLogger().println("[WSO2 Maven Release] Released Nexus repository.");
-                ReleaseUtils.printSeparator(lstnr);
+            if (args.isReleaseNexusStage() && !journal.isDone(ReleaseJournal.Step.STAGES_RELEASED)) {
+                nexus.stagesToRelease = stages;
+                nexus.description = args.getRepoDescription();
             }
-
         } catch (StageException ex) {
             lstnr.fatalError("[M2Release] Could not close/release repository , %1$s\n", ex.getMessage());
             ex.printStackTrace(lstnr.getLogger());
@@ -189,18 +407,146 @@ private boolean closeNexusStagingRepo(AbstractBuild bld, BuildListener lstnr) {
         } catch (MalformedURLException ex) {
             ex.printStackTrace(lstnr.getLogger());
             return false;
+        } catch (IOException ex) {
+            ReleaseUtils.printExceptionIntoBuildLog("[ERROR] Could not write the release journal. ", ex, lstnr);
+            return false;
         }
         return true;
     }
 
-    private void finalizeSCMRepo(AbstractBuild bld, BuildListener buildListener) throws IOException, InterruptedException {
-        //merge the release branch into master
-        if (bld.getProject().getScm() instanceof GitSCM) {
-            GitSCM gitSCM = (GitSCM) bld.getProject().getScm();
-            AbstractProject project = bld.getProject();
+    /**
+     * Waits until this release may close and release its staging repositories, see {@link FinalizationGate}.
+     *
+     * @return the permit to release once the staging repositories are released, or <code>null</code> if the
+     *         release does not use Nexus.
+     */
+    private FinalizationGate.Permit acquireFinalization(BuildListener lstnr) throws InterruptedException {
+        M2ReleaseBuildWrapper.DescriptorImpl descriptor = m2ReleaseBuildWrapper.getDescriptor();
+        if (!descriptor.isNexusSupport() || descriptor.getNexusURL() == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        FinalizationGate.Permit permit = FinalizationGate.forNexus(descriptor.getNexusURL())
+                .acquire(descriptor.getNexusMaxConcurrentFinalizations(), lstnr.getLogger());
+        metrics.record(ReleaseMetricsAction.Phase.FINALIZATION_QUEUE, start);
+        return permit;
+    }
 
-            final EnvVars environment = GitUtils.getPollEnvironment(project, bld.getWorkspace(), launcher, buildListener);
-            GitClient gitClient = gitSCM.createClient(buildListener, environment, bld, bld.getWorkspace());
+    private RetryPolicy getNexusRetryPolicy() {
+        return m2ReleaseBuildWrapper.getDescriptor().getNexusRetryPolicy();
+    }
+
+    /**
+     * Reports the failed attempts of a retried staging operation in the build log.
+     */
+    private class NexusRetryListener implements RetryPolicy.Listener {
+
+        private final StageClient client;
+        private final BuildListener lstnr;
+        private final String action;
+
+        NexusRetryListener(StageClient client, BuildListener lstnr, String action) {
+            this.client = client;
+            this.lstnr = lstnr;
+            this.action = action;
+        }
+
+        public void retrying(int attempt, long delay, StageException cause) {
+            lstnr.error("[M2Release] Could not " + action + " repository , " + cause.getMessage());
+            log.warn("[M2Release] Could not " + action + " repository", cause);
+            printWaitStatistics(client, lstnr);
+            lstnr.getLogger().println("[M2Release] Retrying in " + TimeUnit.MILLISECONDS.toSeconds(delay)
+                    + " s (retry " + attempt + ")...");
+        }
+    }
+
+    /**
+     * Releases the staging repositories closed by {@link #closeNexusStagingRepo}, if the release asked for it.
+     */
+    private boolean releaseNexusStagingRepo(BuildListener lstnr, NexusFinalization nexus) {
+        if (nexus.stagesToRelease == null) {
+            return true;
+        }
+        try {
+            //release the nexus staging repository
+            lstnr.getLogger().println("[WSO2 Maven Release] Releasing Nexus repository " + nexus.stagesToRelease);
+            final NexusFinalization released = nexus;
+            long releaseStart = System.nanoTime();
+            try {
+                getNexusRetryPolicy().execute("release " + nexus.stagesToRelease, null, new RetryPolicy.Operation<Void>() {
+                    public Void call() throws IOException {
+                        released.client.releaseStages(released.stagesToRelease, released.description);
+                        return null;
+                    }
+                }, new NexusRetryListener(nexus.client, lstnr, "release"));
+            } finally {
+                metrics.record(ReleaseMetricsAction.Phase.RELEASE_WAIT, releaseStart);
+            }
+            journal.complete(ReleaseJournal.Step.STAGES_RELEASED);
+            lstnr.getLogger().println("[WSO2 Maven Release] Released Nexus repository.");
+            printWaitStatistics(nexus.client, lstnr);
+            ReleaseUtils.printSeparator(lstnr);
+        } catch (StageException ex) {
+            lstnr.fatalError("[M2Release] Could not close/release repository , %1$s\n", ex.getMessage());
+            ex.printStackTrace(lstnr.getLogger());
+            log.error("[M2Release] Could not release repository ", ex);
+            return false;
+        } catch (IOException ex) {
+            ReleaseUtils.printExceptionIntoBuildLog("[ERROR] Could not write the release journal. ", ex, lstnr);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Modules with a different groupId to the root module may have been deployed to staging repositories of other
+     * staging profiles, so find those as well so they can be closed and released together. Only the stages named in
+     * the build log and the stages of the profiles Nexus selects for the groupId are looked at, a module that is
+     * not found there was staged with the root module.
+     *
+     * @param stageIDs the staging repository IDs mentioned in the build log.
+     * @return the stage of the root module followed by any other stages used by the modules.
+     */
+    private Set<Stage> findModuleStages(StageClient client, MavenModuleSet mmSet, Stage rootStage, String version,
+            List<String> stageIDs) throws StageException {
+        Set<Stage> stages = new LinkedHashSet<Stage>();
+        stages.add(rootStage);
+        Set<String> groupIds = new HashSet<String>();
+        groupIds.add(mmSet.getRootModule().getModuleName().groupId);
+        for (MavenModule module : mmSet.getModules()) {
+            String groupId = module.getModuleName().groupId;
+            if (groupIds.add(groupId)) {
+                List<String> hints = new ArrayList<String>(stageIDs);
+                for (Stage found : stages) {
+                    hints.remove(found.getStageID());
+                }
+                Stage stage = client.findOpenStageInProfiles(groupId, module.getModuleName().artifactId, version,
+                        hints);
+                if (stage != null) {
+                    stages.add(stage);
+                }
+            }
+        }
+        return stages;
+    }
+
+    private void printWaitStatistics(StageClient client, BuildListener lstnr) {
+        if (client.getLastWaitStatistics() != null) {
+            lstnr.getLogger().println("[M2Release] Nexus staging action " + client.getLastWaitStatistics());
+        }
+    }
+
+    /**
+     * Merges the release branch and the latest upstream changes into a local branch, or drops the release tag if the
+     * build failed. Nothing is pushed to the main branch here, see {@link #pushSCMRepo}.
+     *
+     * @return <code>true</code> unless the git remote of the project could not be found.
+     */
+    private boolean mergeSCMRepo(AbstractBuild bld, BuildListener buildListener, GitFinalization git)
+            throws IOException, InterruptedException {
+        //merge the release branch into master
+        if (gitSession != null) {
+            GitSCM gitSCM = gitSession.getScm();
             M2ReleaseArgumentsAction args = bld.getAction(M2ReleaseArgumentsAction.class);
 
             List<UserRemoteConfig> userRemoteConfigs = gitSCM.getUserRemoteConfigs();
@@ -212,41 +558,30 @@ private void finalizeSCMRepo(AbstractBuild bld, BuildListener buildListener) thr
 
             //get release branch head commit
             String remoteUrl = userRemoteConfigs.get(0).getUrl();
-            String releaseBranchHeadCommit = gitClient.revParse(M2ReleaseBuildWrapper.DEFAULT_REF).name();
+            git.remoteUrl = remoteUrl;
+            String releaseBranchHeadCommit = journal.getReleaseBranchHead();
+            if (releaseBranchHeadCommit == null) {
+                releaseBranchHeadCommit = gitSession.revParse(M2ReleaseBuildWrapper.DEFAULT_REF).name();
+                journal.setReleaseBranchHead(releaseBranchHeadCommit);
+            }
             //local branch name that will be pushed to #remoteBranch
             String localBranchToPush = UUID.randomUUID().toString();
 
-            try {
-                // 1) handle build failures
-                //we delete the git tag, but keep the release branch as it is in case it needs to be reviewed later
-                ReleaseUtils.printSeparator(buildListener);
-                ReleaseUtils.printInfoIntoBuildLog("[WSO2 Maven Release] Build Result: " + bld.getResult(),
-                        buildListener.getLogger());
-                if (bld.getResult() == null || !bld.getResult().isBetterOrEqualTo(Result.SUCCESS)) {
-                    String scmTag = args.getScmTagName();
-                    buildListener.getLogger().println("[WSO2 Maven Release] Dropping Git Tag: " + scmTag
-                            + ". Reason: " + bld.getResult() + " build.");
-
-                    //if exceptions, then remove the remote release tag
-                    String refspec = ":" + "refs/tags/" + scmTag; // :refs/tags/v4.4.10
-                    buildListener.getLogger().println();
-                    ReleaseUtils.printInfoIntoBuildLog("Deleting release tag from remote.", buildListener.getLogger());
-                    gitClient.push().to(new URIish(remoteUrl)).ref(refspec).execute();
-
-                    buildListener.getLogger().println("[WSO2 Maven Release] Dropped git tag - " + scmTag);
-                    return;
+            // 1) handle build failures
+            //we delete the git tag, but keep the release branch as it is in case it needs to be reviewed later
+            ReleaseUtils.printSeparator(buildListener);
+            ReleaseUtils.printInfoIntoBuildLog("[WSO2 Maven Release] Build Result: " + journal.getBuildResult(),
+                    buildListener.getLogger());
+            if (!journal.isBuildSuccessful()) {
+                if (!journal.isDone(ReleaseJournal.Step.TAG_DROPPED)) {
+                    dropReleaseTag(bld, buildListener, remoteUrl, args.getScmTagName(),
+                            journal.getBuildResult() + " build.");
                 }
-            } catch (URISyntaxException e) {
-                buildListener.fatalError(
-                        "[WSO2 Maven Release] " + "Could not parse the git remote URL for project: " + remoteUrl);
-                bld.keepLog();
-                throw new IllegalArgumentException(e.getMessage(), e);
-            } catch (GitException e) {
-                //this could fail if merging the release commits lead to a conflict.
-                ReleaseUtils.printExceptionIntoBuildLog(
-                        "[ERROR] [WSO2 Maven Release] merging the changes. ", e, buildListener);
-                bld.keepLog();
-                throw e;
+                return true;
+            }
+            if (journal.isDone(ReleaseJournal.Step.BRANCH_PUSHED)) {
+                // nothing left to merge, only the release branch may still need to be deleted
+                return true;
             }
 
             try {
@@ -255,7 +590,7 @@ private void finalizeSCMRepo(AbstractBuild bld, BuildListener buildListener) thr
                 // 2.1) checkout a temporary release branch for git push to remote
                 ReleaseUtils.printInfoIntoBuildLog("Checking out a temp local branch named " + localBranchToPush +
                         " at revision " + remoteRevision, buildListener.getLogger());
-                gitClient.checkoutBranch(localBranchToPush, remoteRevision);
+                gitSession.checkoutBranch(localBranchToPush, remoteRevision);
                 ReleaseUtils.printSeparator(buildListener);
 
                 String localFetchBranch = "refs/remotes/origin/" + localBranchToPush;
@@ -266,12 +601,11 @@ private void finalizeSCMRepo(AbstractBuild bld, BuildListener buildListener) thr
                         buildListener.getLogger());
 
                 // 2.2) get latest commits from the remote branch before pushing to avoid outdated wc error
-                    gitClient.fetch_().from(new URIish(remoteUrl), Collections.singletonList(new RefSpec(fetchRefspec))).execute();
-                String latestRemoteCommit = gitClient.revParse(localFetchBranch).getName();
-                ObjectId latestRemoteCommitObject = ObjectId.fromString(latestRemoteCommit);
+                gitSession.fetch(new URIish(remoteUrl), new RefSpec(fetchRefspec));
+                ObjectId latestRemoteCommitObject = gitSession.revParse(localFetchBranch);
                 ReleaseUtils.printInfoIntoBuildLog(
                         "Merging fetched upstream changes into " + localBranchToPush, buildListener.getLogger());
-                gitClient.merge().setRevisionToMerge(latestRemoteCommitObject).execute();
+                gitSession.merge(latestRemoteCommitObject);
                 ReleaseUtils.printSeparator(buildListener);
             } catch (URISyntaxException e) {
                 buildListener.fatalError(
@@ -280,7 +614,7 @@ private void finalizeSCMRepo(AbstractBuild bld, BuildListener buildListener) thr
             } catch (GitException e) {
                 ReleaseUtils.printExceptionIntoBuildLog(
                         "[ERROR] [WSO2 Maven Release] merging the changes. ", e, buildListener);
-                gitClient.checkoutBranch(localBranchToPush, remoteRevision);
+                gitSession.checkoutBranch(localBranchToPush, remoteRevision);
                 //todo kasung does this work?
             }
 
@@ -289,46 +623,105 @@ private void finalizeSCMRepo(AbstractBuild bld, BuildListener buildListener) thr
                 ReleaseUtils.printInfoIntoBuildLog(
                         "Merging release branch HEAD commit, " + releaseBranchHeadCommit + ", into branch " +
                                 localBranchToPush, buildListener.getLogger());
-                gitClient.merge().
-                        setRevisionToMerge(ObjectId.fromString(releaseBranchHeadCommit)).execute();
+                gitSession.merge(ObjectId.fromString(releaseBranchHeadCommit));
+                git.localBranchToPush = localBranchToPush;
+                journal.complete(ReleaseJournal.Step.BRANCH_MERGED);
+            } catch (GitException e) {
+                //this could fail if merging the release commits lead to a conflict.
+                ReleaseUtils.printExceptionIntoBuildLog(
+                        "[ERROR] [WSO2 Maven Release] merging the changes. ", e, buildListener);
+                bld.keepLog();
+                throw e;
+                //todo handle kasung
+            }
+        }
+        return true;
+    }
 
+    /**
+     * Pushes the branch merged by {@link #mergeSCMRepo} into the original remote branch and deletes the release
+     * branch. Only runs once the nexus staging repository is closed.
+     */
+    private void pushSCMRepo(AbstractBuild bld, BuildListener buildListener, GitFinalization git)
+            throws IOException, InterruptedException {
+        if (gitSession == null || git.remoteUrl == null || !journal.isBuildSuccessful()) {
+            return;
+        }
+        GitClient gitClient = gitSession.getClient();
+        try {
+            if (!journal.isDone(ReleaseJournal.Step.BRANCH_PUSHED)) {
+                if (git.localBranchToPush == null) {
+                    return;
+                }
                 // 3.1) push the whole thing into the original remote branch
-                String refspec = localBranchToPush + ":" + remoteBranch;
+                String refspec = git.localBranchToPush + ":" + remoteBranch;
                 ReleaseUtils.printInfoIntoBuildLog("Pushing the whole thing into remote.", buildListener.getLogger());
-                gitClient.push().to(new URIish(remoteUrl)).ref(refspec).execute();
-
-                // 3.2) if no exceptions, then remove the remote release branch
-                refspec = ":" + releaseBranch;
-                buildListener.getLogger().println();
-                ReleaseUtils.printInfoIntoBuildLog("Deleting release branch from remote.", buildListener.getLogger());
-                gitClient.push().to(new URIish(remoteUrl)).ref(refspec).execute();
+                gitClient.push().to(new URIish(git.remoteUrl)).ref(refspec).execute();
 
                 String headCommitHashAfterMerge = writeLatestReleaseRevisionNumber(bld, buildListener);
                 log.debug("[WSO2 Maven Release] {}-{} : Written the revision {} ", bld.getProject(),
                         bld.getDisplayName(), headCommitHashAfterMerge);
                 ReleaseUtils.printInfoIntoBuildLog("Stored last release commit hash : " + headCommitHashAfterMerge,
                         buildListener.getLogger());
+                journal.complete(ReleaseJournal.Step.BRANCH_PUSHED);
+            }
 
-                ReleaseUtils.printSeparator(buildListener);
-
-            } catch (URISyntaxException e) {
-                buildListener.fatalError(
-                        "[WSO2 Maven Release] " + "Could not parse the git remote URL for project: " + remoteUrl);
-                throw new IllegalArgumentException(e.getMessage(), e);
-            } catch (GitException e) {
-                //this could fail if merging the release commits lead to a conflict.
-                ReleaseUtils.printExceptionIntoBuildLog(
-                        "[ERROR] [WSO2 Maven Release] merging the changes. ", e, buildListener);
-                bld.keepLog();
-                throw e;
-                //todo handle kasung
+            if (!journal.isDone(ReleaseJournal.Step.RELEASE_BRANCH_DELETED)) {
+                // 3.2) if no exceptions, then remove the remote release branch
+                String refspec = ":" + releaseBranch;
+                buildListener.getLogger().println();
+                ReleaseUtils.printInfoIntoBuildLog("Deleting release branch from remote.", buildListener.getLogger());
+                gitClient.push().to(new URIish(git.remoteUrl)).ref(refspec).execute();
+                journal.complete(ReleaseJournal.Step.RELEASE_BRANCH_DELETED);
             }
+
+            ReleaseUtils.printSeparator(buildListener);
+
+        } catch (URISyntaxException e) {
+            buildListener.fatalError(
+                    "[WSO2 Maven Release] " + "Could not parse the git remote URL for project: " + git.remoteUrl);
+            throw new IllegalArgumentException(e.getMessage(), e);
+        } catch (GitException e) {
+            ReleaseUtils.printExceptionIntoBuildLog(
+                    "[ERROR] [WSO2 Maven Release] pushing the changes. ", e, buildListener);
+            bld.keepLog();
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the release tag from the remote. The release branch is kept in case it needs to be reviewed later.
+     */
+    private void dropReleaseTag(AbstractBuild bld, BuildListener buildListener, String remoteUrl, String scmTag,
+            String reason) throws IOException, InterruptedException {
+        try {
+            buildListener.getLogger().println("[WSO2 Maven Release] Dropping Git Tag: " + scmTag
+                    + ". Reason: " + reason);
+
+            //if exceptions, then remove the remote release tag
+            String refspec = ":" + "refs/tags/" + scmTag; // :refs/tags/v4.4.10
+            buildListener.getLogger().println();
+            ReleaseUtils.printInfoIntoBuildLog("Deleting release tag from remote.", buildListener.getLogger());
+            gitSession.getClient().push().to(new URIish(remoteUrl)).ref(refspec).execute();
+
+            journal.complete(ReleaseJournal.Step.TAG_DROPPED);
+            buildListener.getLogger().println("[WSO2 Maven Release] Dropped git tag - " + scmTag);
+        } catch (URISyntaxException e) {
+            buildListener.fatalError(
+                    "[WSO2 Maven Release] " + "Could not parse the git remote URL for project: " + remoteUrl);
+            bld.keepLog();
+            throw new IllegalArgumentException(e.getMessage(), e);
+        } catch (GitException e) {
+            ReleaseUtils.printExceptionIntoBuildLog(
+                    "[ERROR] [WSO2 Maven Release] dropping the release tag. ", e, buildListener);
+            bld.keepLog();
+            throw e;
         }
     }
 
     private void keepThisBuild(AbstractBuild bld, BuildListener lstnr) throws IOException {
         int buildsKept = 0;
-        if (bld.getResult() != null && bld.getResult().isBetterOrEqualTo(Result.SUCCESS)) {
+        if (journal.isBuildSuccessful()) {
             if (m2ReleaseBuildWrapper.numberOfReleaseBuildsToKeep > 0 || m2ReleaseBuildWrapper.numberOfReleaseBuildsToKeep == -1) {
                 // keep this build.
                 lstnr.getLogger().println("[M2Release] assigning keep build to current build.");
@@ -337,35 +730,35 @@ private void keepThisBuild(AbstractBuild bld, BuildListener lstnr) throws IOExce
             }
 
             // the value may have changed since a previous release so go searching...
+            // only the successful releases in the index are looked at. the keep log state of the index is not
+            // trusted as it can be changed on the build page, so each of those builds is checked itself.
             log.debug("looking for extra release builds to lock/unlock.");
-            for (Run run : (RunList<? extends Run>) (bld.getProject().getBuilds())) {
-                log.debug("checking build #{}", run.getNumber());
-                if (isSuccessfulReleaseBuild(run)) {
-                    log.info("[WSO2 Maven Release] {} release build #{} was successful.",
-                            bld.getProject().getName(), run.getNumber());
-                    if (bld.getNumber() != run.getNumber()) { // not sure we still need this check..
-                        if (shouldKeepBuildNumber(m2ReleaseBuildWrapper.numberOfReleaseBuildsToKeep, buildsKept)) {
-                            buildsKept++;
-                            if (!run.isKeepLog()) {
-                                lstnr.getLogger().println(
-                                        "[M2Release] assigning keep build to build " + run.getNumber());
-                                run.keepLog(true);
-                            }
-                        }
-                        else {
-                            if (run.isKeepLog()) {
-                                lstnr.getLogger().println(
-                                        "[M2Release] removing keep build from build " + run.getNumber());
-                                run.keepLog(false);
-                            }
-                        }
-                    }
+            AbstractProject project = bld.getProject();
+            ReleaseBuildIndex index = ReleaseBuildIndex.forJob(project);
+            for (ReleaseBuildIndex.Entry release : index.getSuccessfulReleases()) {
+                if (bld.getNumber() == release.getNumber()) { // not sure we still need this check..
+                    continue;
+                }
+                log.debug("[WSO2 Maven Release] {} release build #{} was successful.",
+                        project.getName(), release.getNumber());
+                boolean keep = shouldKeepBuildNumber(m2ReleaseBuildWrapper.numberOfReleaseBuildsToKeep, buildsKept);
+                if (keep) {
+                    buildsKept++;
                 }
-                else {
-                    log.debug(
-                            "[WSO2 Maven Release] {} build #{} was either a snapshot build or it was not successful.",
-                            bld.getProject().getName(), run.getNumber());
+                Run run = project.getBuildByNumber(release.getNumber());
+                if (run == null) {
+                    index.remove(release.getNumber());
+                    continue;
                 }
+                if (keep && !run.isKeepLog()) {
+                    lstnr.getLogger().println("[M2Release] assigning keep build to build " + run.getNumber());
+                    run.keepLog(true);
+                }
+                else if (!keep && run.isKeepLog()) {
+                    lstnr.getLogger().println("[M2Release] removing keep build from build " + run.getNumber());
+                    run.keepLog(false);
+                }
+                index.setKeepLog(run.getNumber(), run.isKeepLog());
             }
         }
     }
@@ -378,14 +771,9 @@ private void keepThisBuild(AbstractBuild bld, BuildListener lstnr) throws IOExce
     private String writeLatestReleaseRevisionNumber(AbstractBuild bld, TaskListener lstnr) {
         try {
             //write the latest release revision number
-            SCM scm = bld.getProject().getScm();
-            if (scm instanceof GitSCM) {
-                GitSCM gitSCM = (GitSCM) scm;
+            if (gitSession != null) {
                 AbstractProject project = bld.getProject();
-                final EnvVars environment = GitUtils
-                        .getPollEnvironment(project, bld.getWorkspace(), launcher, lstnr);
-                GitClient gitClient = gitSCM.createClient(lstnr, environment, bld, bld.getWorkspace());
-                ObjectId objectId = gitClient.revParse(M2ReleaseBuildWrapper.DEFAULT_REF);
+                ObjectId objectId = gitSession.revParse(M2ReleaseBuildWrapper.DEFAULT_REF);
                 StringWriter writer = new StringWriter();
                 objectId.copyTo(writer);
                 String headHash = writer.toString();
@@ -405,19 +793,6 @@ private String writeLatestReleaseRevisionNumber(AbstractBuild bld, TaskListener
         return "-";
     }
 
-    /**
-     * evaluate if the specified build is a successful release build (not including dry runs)
-     * @param run the run to check
-     * @return <code>true</code> if this is a successful release build that is not a dry run.
-     */
-    private boolean isSuccessfulReleaseBuild(Run run) {
-        M2ReleaseBadgeAction a = run.getAction(M2ReleaseBadgeAction.class);
-        if (a != null && !run.isBuilding() && run.getResult().isBetterOrEqualTo(Result.SUCCESS)) {
-            return true;
-        }
-        return false;
-    }
-
     private boolean shouldKeepBuildNumber(int numToKeep, int numKept) {
         if (numToKeep == -1) {
             return true;
@@ -437,4 +812,22 @@ private boolean isMavenReleasePerformEnabled(String buildGoals) {
         }
         return buildGoals.contains("release:perform");
     }
+
+    /** State handed from the git merge phase of the tearDown to the git push phase. */
+    private static final class GitFinalization {
+        private volatile String remoteUrl;
+        private volatile String localBranchToPush;
+        /** Time spent merging and pushing. */
+        private volatile long nanos;
+    }
+
+    /** State handed from the nexus close phase of the tearDown to the nexus release phase. */
+    private static final class NexusFinalization {
+        private volatile StageClient client;
+        private volatile Set<Stage> stagesToRelease;
+        private volatile String description;
+        private volatile FinalizationGate.Permit permit;
+        /** Set once the staging repositories will not be published, e.g. dropped or rejected by the rules. */
+        private volatile boolean abandoned;
+    }
 }
@@ -0,0 +1,252 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.security.ACL;
+import jenkins.model.Jenkins;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * The most recent release builds of all jobs, newest first. The feed is seeded from the {@link ReleaseBuildIndex}
+ * of the release jobs when it is first used and then kept up to date by {@link ReleaseBuildIndexListener}, so
+ * reading it only loads the builds that are returned. The releases of jobs whose index is still being built are
+ * added once it is ready.
+ */
+public class ReleaseFeed {
+
+    /** The number of releases the feed keeps. */
+    public static final int DEFAULT_CAPACITY = 500;
+
+    private static ReleaseFeed instance;
+
+    private final int capacity;
+
+    /** Orders items newest first. */
+    private static final Comparator<Item> NEWEST_FIRST = new Comparator<Item>() {
+        public int compare(Item a, Item b) {
+            if (a.timestamp != b.timestamp) {
+                return a.timestamp > b.timestamp ? -1 : 1;
+            }
+            int byJob = a.jobName.compareTo(b.jobName);
+            if (byJob != 0) {
+                return byJob;
+            }
+            return b.number - a.number;
+        }
+    };
+
+    private final TreeSet<Item> items = new TreeSet<Item>(NEWEST_FIRST);
+
+    ReleaseFeed(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the feed of this Jenkins, seeding it on first use.
+     */
+    public static synchronized ReleaseFeed getInstance() {
+        if (instance == null) {
+            instance = new ReleaseFeed(DEFAULT_CAPACITY);
+            instance.seed();
+        }
+        return instance;
+    }
+
+    /**
+     * Add a completed release build to the feed.
+     */
+    public void add(Run run) {
+        add(new Item(run.getParent().getFullName(), run.getNumber(), run.getTimeInMillis()));
+    }
+
+    /**
+     * Add the releases of a job whose index has been built.
+     */
+    public void addAll(Job job, List<ReleaseBuildIndex.Entry> releases) {
+        for (ReleaseBuildIndex.Entry entry : releases) {
+            add(new Item(job.getFullName(), entry.getNumber(), entry.getTimestamp()));
+        }
+    }
+
+    /**
+     * Remove a deleted build from the feed.
+     */
+    public synchronized void remove(Run run) {
+        String jobName = run.getParent().getFullName();
+        for (Iterator<Item> it = items.iterator(); it.hasNext();) {
+            Item item = it.next();
+            if (item.number == run.getNumber() && item.jobName.equals(jobName)) {
+                it.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the most recent release builds of the given jobs.
+     *
+     * @param jobs the jobs to return the releases of.
+     * @param max the maximum number of builds to return.
+     * @return the release builds, newest first.
+     */
+    public List<Run> getRecentReleases(Collection<? extends Job> jobs, int max) {
+        Map<String, Job> jobsByName = new HashMap<String, Job>();
+        for (Job job : jobs) {
+            jobsByName.put(job.getFullName(), job);
+        }
+        List<Item> candidates = new ArrayList<Item>(max);
+        boolean truncated;
+        synchronized (this) {
+            for (Item item : items) {
+                if (jobsByName.containsKey(item.jobName)) {
+                    candidates.add(item);
+                    if (candidates.size() == max) {
+                        break;
+                    }
+                }
+            }
+            truncated = items.size() >= capacity;
+        }
+        if (candidates.size() < max && truncated) {
+            // older releases of these jobs may have been pushed out of the feed, rank them from the indexes.
+            Map<String, List<ReleaseBuildIndex.Entry>> histories =
+                    new HashMap<String, List<ReleaseBuildIndex.Entry>>();
+            for (Job job : jobs) {
+                ReleaseBuildIndex index = ReleaseBuildIndex.getIfReady(job);
+                if (index != null) {
+                    histories.put(job.getFullName(), index.getReleases());
+                }
+            }
+            candidates = mergeNewest(histories, max);
+        }
+        List<Run> releases = new ArrayList<Run>(candidates.size());
+        for (Item item : candidates) {
+            Run run = jobsByName.get(item.jobName).getBuildByNumber(item.number);
+            if (run != null) {
+                releases.add(run);
+            }
+        }
+        return releases;
+    }
+
+    /**
+     * Pick the newest releases of several jobs. The releases of each job are merged into a heap holding at most
+     * <code>max</code> releases with the oldest on top, and the releases of a job are only read until one is older
+     * than the oldest release in a full heap.
+     *
+     * @param histories the releases of each job by job name, newest first.
+     * @param max the maximum number of releases to return.
+     * @return the newest releases, newest first.
+     */
+    static List<Item> mergeNewest(Map<String, List<ReleaseBuildIndex.Entry>> histories, int max) {
+        if (max <= 0) {
+            return new ArrayList<Item>();
+        }
+        PriorityQueue<Item> newest = new PriorityQueue<Item>(max + 1, Collections.reverseOrder(NEWEST_FIRST));
+        for (Map.Entry<String, List<ReleaseBuildIndex.Entry>> history : histories.entrySet()) {
+            for (ReleaseBuildIndex.Entry release : history.getValue()) {
+                if (newest.size() == max && release.getTimestamp() <= newest.peek().timestamp) {
+                    // the rest of this job's releases are older still
+                    break;
+                }
+                newest.add(new Item(history.getKey(), release.getNumber(), release.getTimestamp()));
+                if (newest.size() > max) {
+                    newest.poll();
+                }
+            }
+        }
+        List<Item> merged = new ArrayList<Item>(newest);
+        Collections.sort(merged, NEWEST_FIRST);
+        return merged;
+    }
+
+    /**
+     * @return the number of releases in the feed.
+     */
+    public synchronized int size() {
+        return items.size();
+    }
+
+    private synchronized void add(Item item) {
+        items.add(item);
+        while (items.size() > capacity) {
+            items.remove(items.last());
+        }
+    }
+
+    private void seed() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return;
+        }
+        // the feed is shared by all users, the views filter what each user sees.
+        SecurityContext old = ACL.impersonate(ACL.SYSTEM);
+        try {
+            for (Job job : jenkins.getAllItems(Job.class)) {
+                if (!ReleaseBuildIndex.isReleaseJob(job)) {
+                    continue;
+                }
+                // missing indexes are built in the background and added when ready.
+                ReleaseBuildIndex index = ReleaseBuildIndex.getIfReady(job);
+                if (index != null) {
+                    addAll(job, index.getReleases());
+                }
+            }
+        } finally {
+            SecurityContextHolder.setContext(old);
+        }
+    }
+
+    /**
+     * A release build in the feed.
+     */
+    static final class Item {
+
+        private final String jobName;
+        private final int number;
+        private final long timestamp;
+
+        Item(String jobName, int number, long timestamp) {
+            this.jobName = jobName;
+            this.number = number;
+            this.timestamp = timestamp;
+        }
+
+        String getJobName() {
+            return jobName;
+        }
+
+        int getNumber() {
+            return number;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.BuildableItemWithBuildWrappers;
+import hudson.model.Cause;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.queue.CauseOfBlockage;
+import hudson.model.queue.QueueTaskDispatcher;
+import hudson.plugins.git.BranchSpec;
+import hudson.plugins.git.GitSCM;
+import hudson.plugins.git.UserRemoteConfig;
+import hudson.scm.SCM;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits release builds from the Jenkins queue so that releases started at the same time by pushes, the release
+ * timer and users do not get in each other's way. A queued release waits in the queue
+ * <ul>
+ * <li>while the finalization of an earlier release of the job is being resumed by a {@link ReleaseResumeAction},</li>
+ * <li>while a release of the same Git remote and branch is running, as both would push to it, and</li>
+ * <li>while the configured number of releases against the same Nexus server are running.</li>
+ * </ul>
+ * Releases waiting for a Nexus server are admitted in the order they were queued. The reason a release waits,
+ * including its position, is shown in the queue and the time it waited is printed to the build log. The staging
+ * actions of the admitted releases are limited further by the {@link FinalizationGate}.
+ */
+@Extension
+public class ReleaseGovernor extends QueueTaskDispatcher {
+
+    /** How long an admitted release may take to start before its admission is given to another release. */
+    static final long ADMISSION_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+
+    /** How long a waiting release is remembered after the queue last asked about it. */
+    static final long WAITING_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
+
+    /** The admitted releases, by the full name of their job. */
+    private static final Map<String, Admission> admissions = new HashMap<String, Admission>();
+
+    /** The releases that wait for a Nexus server, by the ID of their queue item. */
+    private static final Map<Integer, Waiting> waiting = new HashMap<Integer, Waiting>();
+
+    /** The full names of the jobs whose release finalization is being resumed. */
+    private static final Set<String> resuming = new HashSet<String>();
+
+    @Override
+    public CauseOfBlockage canRun(Queue.Item item) {
+        M2ReleaseBuildWrapper wrapper = getReleaseWrapper(item.task, item.getCauses());
+        if (wrapper == null) {
+            return null;
+        }
+        AbstractProject<?, ?> project = (AbstractProject<?, ?>) item.task;
+        M2ReleaseBuildWrapper.DescriptorImpl descriptor = wrapper.getDescriptor();
+        String nexusURL = descriptor.isNexusSupport() ? descriptor.getNexusURL() : null;
+        return admit(project.getFullName(), item.getId(), item.getInQueueSince(), repositoryOf(project.getScm()),
+                nexusURL, descriptor.getNexusMaxConcurrentReleases());
+    }
+
+    /**
+     * @return the release wrapper of the job if the causes make its build a release, otherwise <code>null</code>.
+     */
+    private static M2ReleaseBuildWrapper getReleaseWrapper(Object job, List<Cause> causes) {
+        if (!(job instanceof AbstractProject) || !(job instanceof BuildableItemWithBuildWrappers)
+                || !isRelease(causes)) {
+            return null;
+        }
+        return ((BuildableItemWithBuildWrappers) job).getBuildWrappersList().get(M2ReleaseBuildWrapper.class);
+    }
+
+    private static boolean isRelease(List<Cause> causes) {
+        for (Cause cause : causes) {
+            if (M2ReleaseBuildWrapper.isReleaseCause(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the remote URL and branch that a release of the job pushes to, or <code>null</code> if the job does
+     *         not use Git.
+     */
+    static String repositoryOf(SCM scm) {
+        if (!(scm instanceof GitSCM)) {
+            return null;
+        }
+        GitSCM git = (GitSCM) scm;
+        List<UserRemoteConfig> remotes = git.getUserRemoteConfigs();
+        if (remotes.isEmpty() || remotes.get(0).getUrl() == null) {
+            return null;
+        }
+        String url = remotes.get(0).getUrl().trim();
+        while (url.endsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        }
+        if (url.endsWith(".git")) {
+            url = url.substring(0, url.length() - ".git".length());
+        }
+        List<BranchSpec> branches = git.getBranches();
+        String branch = branches.isEmpty() ? "" : branches.get(0).getName();
+        return url + '#' + branch;
+    }
+
+    /**
+     * Decide whether a queued release may start.
+     *
+     * @param job the full name of the job.
+     * @param itemID the ID of the queue item.
+     * @param inQueueSince when the item was queued.
+     * @param repository the Git remote and branch the release pushes to, may be <code>null</code>.
+     * @param nexusURL the Nexus server the release stages to, may be <code>null</code>.
+     * @param limit the maximum number of releases against the Nexus server, 0 or less for no limit.
+     * @return <code>null</code> if the release is admitted, otherwise why it has to wait.
+     */
+    static synchronized CauseOfBlockage admit(String job, int itemID, long inQueueSince, String repository,
+            String nexusURL, int limit) {
+        long now = System.currentTimeMillis();
+        expire(now);
+        Admission own = admissions.get(job);
+        if (own != null && own.itemID == itemID) {
+            // asked again, e.g. for another node.
+            return null;
+        }
+        if (resuming.contains(job)) {
+            return new Blockage("Waiting for the resumed release finalization of " + job + " to finish");
+        }
+        for (Admission other : admissions.values()) {
+            if (other.job.equals(job)) {
+                return new Blockage("Waiting for the running release of " + job + " to finish");
+            }
+            if (repository != null && repository.equals(other.repository)) {
+                return new Blockage("Waiting for the release of " + other.job + " to finish, it pushes to "
+                        + repository + " as well");
+            }
+        }
+        if (nexusURL != null && limit > 0) {
+            int running = 0;
+            for (Admission other : admissions.values()) {
+                if (nexusURL.equals(other.nexusURL)) {
+                    running++;
+                }
+            }
+            Waiting self = waiting.get(Integer.valueOf(itemID));
+            if (self == null) {
+                self = new Waiting(itemID, inQueueSince, nexusURL);
+                waiting.put(Integer.valueOf(itemID), self);
+            }
+            self.lastSeen = now;
+            int ahead = 0;
+            for (Waiting other : waiting.values()) {
+                if (other.isAheadOf(self)) {
+                    ahead++;
+                }
+            }
+            if (running + ahead >= limit) {
+                return new Blockage("Waiting for one of the " + running + " releases against " + nexusURL
+                        + " to finish, position " + (ahead + 1) + " in the release queue");
+            }
+            waiting.remove(Integer.valueOf(itemID));
+        }
+        admissions.put(job, new Admission(job, itemID, inQueueSince, now, repository, nexusURL));
+        return null;
+    }
+
+    private static void expire(long now) {
+        for (Iterator<Admission> it = admissions.values().iterator(); it.hasNext();) {
+            Admission admission = it.next();
+            if (admission.number == 0 && now - admission.admittedAt > ADMISSION_TIMEOUT) {
+                // the item was cancelled or it was not started on any node after all.
+                it.remove();
+            }
+        }
+        for (Iterator<Waiting> it = waiting.values().iterator(); it.hasNext();) {
+            if (now - it.next().lastSeen > WAITING_TIMEOUT) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Record that the admitted release of the job has started and print how long it waited in the queue. Called
+     * as soon as the build starts, before the checkout, so the admission is not expired while the build runs.
+     * The repository and Nexus URL are only used when the release was not admitted by this governor, so that it
+     * still counts against the limits of the releases that are queued after it.
+     */
+    static synchronized void started(String job, int number, String repository, String nexusURL,
+            PrintStream logger) {
+        Admission admission = admissions.get(job);
+        if (admission == null) {
+            // admitted before a restart, or the job was not a release when it was queued.
+            admission = new Admission(job, -1, 0L, System.currentTimeMillis(), repository, nexusURL);
+            admissions.put(job, admission);
+        } else if (admission.admittedAt - admission.inQueueSince > TimeUnit.SECONDS.toMillis(1)) {
+            logger.println("[WSO2 Maven Release] Waited "
+                    + TimeUnit.MILLISECONDS.toSeconds(admission.admittedAt - admission.inQueueSince)
+                    + " s in the release queue");
+        }
+        admission.number = number;
+    }
+
+    /**
+     * Record that a build of the job has completed, freeing the admission of its release.
+     */
+    static synchronized void finished(String job, int number) {
+        Admission admission = admissions.get(job);
+        if (admission != null && (admission.number == 0 || admission.number == number)) {
+            admissions.remove(job);
+        }
+    }
+
+    /**
+     * Record that the finalization of a release of the job is about to be resumed, keeping new releases of the
+     * job in the queue until {@link #resumeFinished(String)}.
+     *
+     * @return <code>false</code> if a release of the job is running or already being resumed.
+     */
+    static synchronized boolean resumeStarted(String job) {
+        expire(System.currentTimeMillis());
+        if (admissions.containsKey(job) || resuming.contains(job)) {
+            return false;
+        }
+        resuming.add(job);
+        return true;
+    }
+
+    static synchronized void resumeFinished(String job) {
+        resuming.remove(job);
+    }
+
+    /**
+     * @return the number of admitted releases against the Nexus server.
+     */
+    static synchronized int getRunning(String nexusURL) {
+        int running = 0;
+        for (Admission admission : admissions.values()) {
+            if (nexusURL.equals(admission.nexusURL)) {
+                running++;
+            }
+        }
+        return running;
+    }
+
+    static synchronized void reset() {
+        admissions.clear();
+        waiting.clear();
+        resuming.clear();
+    }
+
+    /**
+     * A release that was let out of the queue.
+     */
+    private static final class Admission {
+        private final String job;
+        private final int itemID;
+        private final long inQueueSince;
+        private final long admittedAt;
+        private final String repository;
+        private final String nexusURL;
+        /** The number of the build, or 0 until it has started. */
+        private int number;
+
+        Admission(String job, int itemID, long inQueueSince, long admittedAt, String repository, String nexusURL) {
+            this.job = job;
+            this.itemID = itemID;
+            this.inQueueSince = inQueueSince;
+            this.admittedAt = admittedAt;
+            this.repository = repository;
+            this.nexusURL = nexusURL;
+        }
+    }
+
+    /**
+     * A release that waits for a Nexus server.
+     */
+    private static final class Waiting {
+        private final int itemID;
+        private final long inQueueSince;
+        private final String nexusURL;
+        private long lastSeen;
+
+        Waiting(int itemID, long inQueueSince, String nexusURL) {
+            this.itemID = itemID;
+            this.inQueueSince = inQueueSince;
+            this.nexusURL = nexusURL;
+        }
+
+        boolean isAheadOf(Waiting other) {
+            if (other == this || !nexusURL.equals(other.nexusURL)) {
+                return false;
+            }
+            return inQueueSince < other.inQueueSince
+                    || (inQueueSince == other.inQueueSince && itemID < other.itemID);
+        }
+    }
+
+    private static final class Blockage extends CauseOfBlockage {
+        private final String description;
+
+        Blockage(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String getShortDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Ties the admission of a release to its build: it is marked started when the build starts and freed once the
+     * build has completed.
+     */
+    @Extension
+    public static class ReleaseRunListener extends RunListener<Run> {
+
+        public ReleaseRunListener() {
+            super(Run.class);
+        }
+
+        @Override
+        public void onStarted(Run run, TaskListener listener) {
+            M2ReleaseBuildWrapper wrapper = getReleaseWrapper(run.getParent(), run.getCauses());
+            if (wrapper != null) {
+                AbstractProject<?, ?> project = (AbstractProject<?, ?>) run.getParent();
+                M2ReleaseBuildWrapper.DescriptorImpl descriptor = wrapper.getDescriptor();
+                String nexusURL = descriptor.isNexusSupport() ? descriptor.getNexusURL() : null;
+                started(project.getFullName(), run.getNumber(), repositoryOf(project.getScm()), nexusURL,
+                        listener.getLogger());
+            }
+        }
+
+        @Override
+        public void onCompleted(Run run, TaskListener listener) {
+            finished(run.getParent().getFullName(), run.getNumber());
+        }
+    }
+}
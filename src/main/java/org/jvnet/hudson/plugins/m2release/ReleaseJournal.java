@@ -0,0 +1,250 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.XmlFile;
+import hudson.model.Result;
+import hudson.model.Run;
+import org.jvnet.hudson.plugins.m2release.nexus.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The finalization steps of a release build that have been done, kept in <code>releaseJournal.xml</code> in the
+ * directory of the build. The journal is written after every step of {@link ReleaseEnvironment#tearDown}, so if the
+ * controller restarts or the executor dies half way {@link ReleaseResumeAction} can carry on from the last completed
+ * step instead of leaving a pushed tag, an open stage or a release branch behind.
+ */
+public class ReleaseJournal {
+
+    /**
+     * The finalization steps, in the order they are normally done.
+     */
+    public enum Step {
+        REVISION_WRITTEN,
+        TAG_DROPPED,
+        BRANCH_MERGED,
+        BRANCH_PUSHED,
+        RELEASE_BRANCH_DELETED,
+        STAGES_FOUND,
+        STAGES_DROPPED,
+        STAGES_CLOSED,
+        STAGES_RELEASED,
+        BUILD_KEPT,
+        FINISHED
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ReleaseJournal.class);
+
+    private static final Map<Run, ReleaseJournal> journals = new WeakHashMap<Run, ReleaseJournal>();
+
+    private transient File file;
+
+    private String releaseBranch;
+    private String remoteBranch;
+    private String remoteRevision;
+    private String releaseVersion;
+    private String buildResult;
+    private String releaseBranchHead;
+    /** The staging repositories of the release, as <code>profileID/stageID</code>. */
+    private List<String> stages = new ArrayList<String>();
+    private List<Step> completed = new ArrayList<Step>();
+    private long updated;
+
+    private ReleaseJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the journal of the given build.
+     *
+     * @return the journal, or <code>null</code> if the build has not started to finalize a release.
+     */
+    public static ReleaseJournal forBuild(Run build) {
+        synchronized (journals) {
+            ReleaseJournal journal = journals.get(build);
+            if (journal == null) {
+                XmlFile xml = getFile(build);
+                if (!xml.exists()) {
+                    return null;
+                }
+                journal = new ReleaseJournal(xml.getFile());
+                try {
+                    xml.unmarshal(journal);
+                } catch (IOException e) {
+                    log.warn("Could not read the release journal of " + build, e);
+                    return null;
+                }
+                journal.file = xml.getFile();
+                if (journal.stages == null) {
+                    journal.stages = new ArrayList<String>();
+                }
+                if (journal.completed == null) {
+                    journal.completed = new ArrayList<Step>();
+                }
+                journals.put(build, journal);
+            }
+            return journal;
+        }
+    }
+
+    /**
+     * Start the journal of a build that is about to be finalized.
+     */
+    public static ReleaseJournal start(Run build, String releaseBranch, String remoteBranch, String remoteRevision,
+            String releaseVersion, Result buildResult) throws IOException {
+        ReleaseJournal journal = new ReleaseJournal(getFile(build).getFile());
+        journal.releaseBranch = releaseBranch;
+        journal.remoteBranch = remoteBranch;
+        journal.remoteRevision = remoteRevision;
+        journal.releaseVersion = releaseVersion;
+        journal.buildResult = buildResult != null ? buildResult.toString() : null;
+        journal.save();
+        synchronized (journals) {
+            journals.put(build, journal);
+        }
+        return journal;
+    }
+
+    static boolean exists(Run build) {
+        synchronized (journals) {
+            if (journals.containsKey(build)) {
+                return true;
+            }
+        }
+        return getFile(build).exists();
+    }
+
+    private static XmlFile getFile(Run build) {
+        return new XmlFile(new File(build.getRootDir(), Constants.RELEASE_JOURNAL));
+    }
+
+    public String getReleaseBranch() {
+        return releaseBranch;
+    }
+
+    public String getRemoteBranch() {
+        return remoteBranch;
+    }
+
+    public String getRemoteRevision() {
+        return remoteRevision;
+    }
+
+    public String getReleaseVersion() {
+        return releaseVersion;
+    }
+
+    /**
+     * @return the result of the build when its finalization started.
+     */
+    public Result getBuildResult() {
+        return buildResult != null ? Result.fromString(buildResult) : null;
+    }
+
+    public boolean isBuildSuccessful() {
+        Result result = getBuildResult();
+        return result != null && result.isBetterOrEqualTo(Result.SUCCESS);
+    }
+
+    public synchronized String getReleaseBranchHead() {
+        return releaseBranchHead;
+    }
+
+    public void setReleaseBranchHead(String releaseBranchHead) throws IOException {
+        synchronized (this) {
+            this.releaseBranchHead = releaseBranchHead;
+        }
+        save();
+    }
+
+    /**
+     * @return the staging repositories found by the {@link Step#STAGES_FOUND} step.
+     */
+    public synchronized Set<Stage> getStages() {
+        Set<Stage> result = new LinkedHashSet<Stage>();
+        for (String stage : stages) {
+            int slash = stage.indexOf('/');
+            result.add(new Stage(stage.substring(0, slash), stage.substring(slash + 1)));
+        }
+        return result;
+    }
+
+    /**
+     * Records the staging repositories of the release and completes the {@link Step#STAGES_FOUND} step.
+     */
+    public void setStages(Collection<Stage> found) throws IOException {
+        synchronized (this) {
+            stages.clear();
+            for (Stage stage : found) {
+                stages.add(stage.getProfileID() + "/" + stage.getStageID());
+            }
+            if (!completed.contains(Step.STAGES_FOUND)) {
+                completed.add(Step.STAGES_FOUND);
+            }
+        }
+        save();
+    }
+
+    public synchronized boolean isDone(Step step) {
+        return completed.contains(step);
+    }
+
+    public synchronized List<Step> getCompleted() {
+        return new ArrayList<Step>(completed);
+    }
+
+    /**
+     * @return <code>true</code> if the finalization ran to its end, successfully or not.
+     */
+    public boolean isFinished() {
+        return isDone(Step.FINISHED);
+    }
+
+    public synchronized long getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Records that a step has been done. The journal is written before this returns.
+     */
+    public void complete(Step step) throws IOException {
+        synchronized (this) {
+            if (completed.contains(step)) {
+                return;
+            }
+            completed.add(step);
+        }
+        save();
+    }
+
+    private synchronized void save() throws IOException {
+        updated = System.currentTimeMillis();
+        new XmlFile(file).write(this);
+    }
+}
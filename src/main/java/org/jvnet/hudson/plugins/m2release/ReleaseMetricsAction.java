@@ -0,0 +1,189 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+import net.sf.json.JSONObject;
+import org.jvnet.hudson.plugins.m2release.nexus.LatencyHistogram;
+import org.jvnet.hudson.plugins.m2release.nexus.NexusMetrics;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time a release build spent in each phase of the release and the requests it sent to Nexus, so that slow
+ * releases can be put down to Nexus, Git or Maven. The action is saved with the build and its metrics are available
+ * as JSON from <code>m2releaseMetrics/</code> of the build, {@link ReleaseMetricsRootAction} aggregates them over
+ * all releases.
+ * <p>
+ * The phases of the tearDown run concurrently, so their durations may add up to more than the build took. A phase
+ * that runs more than once, e.g. when the release finalization is resumed, adds up.
+ */
+public class ReleaseMetricsAction implements Action {
+
+    /** The phases of a release. */
+    public enum Phase {
+        VALIDATION, BRANCH_CHECKOUT, MAVEN, SCM_FINALIZATION, FINALIZATION_QUEUE, STAGE_LOOKUP, CLOSE_WAIT,
+        RELEASE_WAIT, KEEP_LOG;
+
+        /**
+         * @return the name used in the JSON and Prometheus output, e.g. <code>close_wait</code>.
+         */
+        public String getMetricName() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /** Milliseconds spent in each phase. */
+    private final EnumMap<Phase, Long> phases = new EnumMap<Phase, Long>(Phase.class);
+
+    /** The requests sent to Nexus whilst finalizing the release. */
+    private final NexusMetrics nexus = new NexusMetrics();
+
+    /** When Maven started, from {@link System#nanoTime()}, or 0 if it is not running. */
+    private transient long mavenStart;
+
+    /**
+     * Get the metrics of the build, adding them to it if they are missing.
+     */
+    public static synchronized ReleaseMetricsAction of(AbstractBuild<?, ?> build) {
+        ReleaseMetricsAction metrics = build.getAction(ReleaseMetricsAction.class);
+        if (metrics == null) {
+            metrics = new ReleaseMetricsAction();
+            build.addAction(metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Record the time spent in a phase since <code>start</code>.
+     *
+     * @param phase the phase.
+     * @param start when the phase started, from {@link System#nanoTime()}.
+     * @return the duration in milliseconds.
+     */
+    public long record(Phase phase, long start) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        add(phase, millis);
+        return millis;
+    }
+
+    /**
+     * Record time spent in a phase, adding to the time already spent in it by this build. The time is also
+     * recorded as one observation of the phase in {@link ReleaseMetricsRootAction}.
+     */
+    public void add(Phase phase, long millis) {
+        synchronized (phases) {
+            Long previous = phases.get(phase);
+            phases.put(phase, Long.valueOf(previous == null ? millis : previous.longValue() + millis));
+        }
+        ReleaseMetricsRootAction.recordPhase(phase, millis);
+    }
+
+    void mavenStarted() {
+        mavenStart = System.nanoTime();
+    }
+
+    /**
+     * Record the Maven phase if Maven was started by this instance.
+     */
+    void mavenFinished() {
+        if (mavenStart != 0L) {
+            record(Phase.MAVEN, mavenStart);
+            mavenStart = 0L;
+        }
+    }
+
+    /**
+     * Add the requests sent by a Nexus client of the release.
+     */
+    public void addNexusMetrics(NexusMetrics metrics) {
+        nexus.add(metrics);
+    }
+
+    /**
+     * @return the milliseconds spent in the phase, or -1 if the release did not get to the phase.
+     */
+    public long getPhaseMillis(Phase phase) {
+        synchronized (phases) {
+            Long millis = phases.get(phase);
+            return millis == null ? -1L : millis.longValue();
+        }
+    }
+
+    /**
+     * @return a copy of the milliseconds spent in each phase the release got to.
+     */
+    public Map<Phase, Long> getPhases() {
+        synchronized (phases) {
+            return new EnumMap<Phase, Long>(phases);
+        }
+    }
+
+    public NexusMetrics getNexus() {
+        return nexus;
+    }
+
+    public JSONObject toJSON() {
+        JSONObject phasesJSON = new JSONObject();
+        for (Map.Entry<Phase, Long> entry : getPhases().entrySet()) {
+            phasesJSON.put(entry.getKey().getMetricName(), entry.getValue());
+        }
+        JSONObject json = new JSONObject();
+        json.put("phaseMillis", phasesJSON);
+        json.put("nexus", toJSON(nexus));
+        return json;
+    }
+
+    static JSONObject toJSON(NexusMetrics metrics) {
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, LatencyHistogram> entry : metrics.getLatencies().entrySet()) {
+            LatencyHistogram latency = entry.getValue();
+            JSONObject endpoint = new JSONObject();
+            endpoint.put("requests", latency.getCount());
+            endpoint.put("failures", metrics.getFailures(entry.getKey()));
+            endpoint.put("totalMillis", latency.getSum());
+            endpoint.put("maxMillis", latency.getMax());
+            json.put(entry.getKey(), endpoint);
+        }
+        return json;
+    }
+
+    public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(toJSON().toString(2));
+    }
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return Messages.ReleaseMetricsAction_DisplayName();
+    }
+
+    public String getUrlName() {
+        return "m2releaseMetrics"; //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,147 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.Extension;
+import hudson.model.Hudson;
+import hudson.model.RootAction;
+import net.sf.json.JSONObject;
+import org.jvnet.hudson.plugins.m2release.ReleaseMetricsAction.Phase;
+import org.jvnet.hudson.plugins.m2release.nexus.LatencyHistogram;
+import org.jvnet.hudson.plugins.m2release.nexus.NexusMetrics;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Aggregates the {@link ReleaseMetricsAction} of all release builds since Jenkins was started, together with the
+ * requests sent to Nexus by all builds ({@link NexusMetrics#GLOBAL}). The aggregates are available as JSON from
+ * <code>/m2release-metrics/</code> and in the Prometheus text format from <code>/m2release-metrics/prometheus</code>.
+ */
+@Extension
+public class ReleaseMetricsRootAction implements RootAction {
+
+    /** The durations of every phase of every release. */
+    private static final EnumMap<Phase, LatencyHistogram> PHASES = new EnumMap<Phase, LatencyHistogram>(Phase.class);
+
+    static {
+        for (Phase phase : Phase.values()) {
+            PHASES.put(phase, new LatencyHistogram(LatencyHistogram.PHASE_BOUNDS));
+        }
+    }
+
+    static void recordPhase(Phase phase, long millis) {
+        PHASES.get(phase).record(millis);
+    }
+
+    /**
+     * @return a copy of the durations of the given phase over all releases.
+     */
+    public static LatencyHistogram getPhase(Phase phase) {
+        return PHASES.get(phase).copy();
+    }
+
+    public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Hudson.getInstance().checkPermission(Hudson.READ);
+        JSONObject phases = new JSONObject();
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = getPhase(phase);
+            JSONObject json = new JSONObject();
+            json.put("count", histogram.getCount());
+            json.put("totalMillis", histogram.getSum());
+            json.put("maxMillis", histogram.getMax());
+            phases.put(phase.getMetricName(), json);
+        }
+        JSONObject json = new JSONObject();
+        json.put("phases", phases);
+        json.put("nexus", ReleaseMetricsAction.toJSON(NexusMetrics.GLOBAL));
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(json.toString(2));
+    }
+
+    public void doPrometheus(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Hudson.getInstance().checkPermission(Hudson.READ);
+        rsp.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        rsp.getWriter().print(toPrometheus());
+    }
+
+    /**
+     * Write the aggregates in the Prometheus text exposition format.
+     */
+    static String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP m2release_phase_duration_seconds Time spent in each phase of a release.\n");
+        sb.append("# TYPE m2release_phase_duration_seconds histogram\n");
+        for (Phase phase : Phase.values()) {
+            appendHistogram(sb, "m2release_phase_duration_seconds", "phase", phase.getMetricName(), getPhase(phase));
+        }
+        Map<String, LatencyHistogram> requests = NexusMetrics.GLOBAL.getLatencies();
+        sb.append("# HELP m2release_nexus_request_duration_seconds Latency of the requests sent to Nexus.\n");
+        sb.append("# TYPE m2release_nexus_request_duration_seconds histogram\n");
+        for (Map.Entry<String, LatencyHistogram> entry : requests.entrySet()) {
+            appendHistogram(sb, "m2release_nexus_request_duration_seconds", "endpoint", entry.getKey(),
+                    entry.getValue());
+        }
+        sb.append("# HELP m2release_nexus_request_failures_total Requests to Nexus that failed.\n");
+        sb.append("# TYPE m2release_nexus_request_failures_total counter\n");
+        for (String endpoint : requests.keySet()) {
+            sb.append("m2release_nexus_request_failures_total{endpoint=\"").append(escape(endpoint)).append("\"} ")
+                    .append(NexusMetrics.GLOBAL.getFailures(endpoint)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, String label, String value,
+            LatencyHistogram histogram) {
+        String labels = label + "=\"" + escape(value) + '"';
+        long[] bounds = histogram.getBounds();
+        long[] counts = histogram.getCumulativeCounts();
+        for (int i = 0; i < bounds.length; i++) {
+            sb.append(name).append("_bucket{").append(labels).append(",le=\"").append(toSeconds(bounds[i]))
+                    .append("\"} ").append(counts[i]).append('\n');
+        }
+        sb.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(counts[bounds.length])
+                .append('\n');
+        sb.append(name).append("_sum{").append(labels).append("} ").append(toSeconds(histogram.getSum()))
+                .append('\n');
+        sb.append(name).append("_count{").append(labels).append("} ").append(counts[bounds.length]).append('\n');
+    }
+
+    private static String toSeconds(long millis) {
+        return Double.toString(millis / 1000.0d);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return Messages.ReleaseMetricsAction_DisplayName();
+    }
+
+    public String getUrlName() {
+        return "m2release-metrics"; //$NON-NLS-1$
+    }
+}
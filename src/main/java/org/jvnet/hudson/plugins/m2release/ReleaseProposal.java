@@ -0,0 +1,61 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+/**
+ * The release, development and tag values proposed for a root pom version. {@link M2ReleaseAction} keeps the last
+ * proposal and hands it out again for as long as the root version stays the same, so the release form and
+ * {@link M2ReleaseBuildWrapper} do not parse the version once per field.
+ */
+final class ReleaseProposal {
+
+    private final String rootPomVersion;
+    private final String releaseVersion;
+    private final String nextVersion;
+    private final String moduleName;
+
+    ReleaseProposal(String rootPomVersion, String releaseVersion, String nextVersion, String moduleName) {
+        this.rootPomVersion = rootPomVersion;
+        this.releaseVersion = releaseVersion;
+        this.nextVersion = nextVersion;
+        this.moduleName = moduleName;
+    }
+
+    public String getRootPomVersion() {
+        return rootPomVersion;
+    }
+
+    public String getReleaseVersion() {
+        return releaseVersion;
+    }
+
+    public String getNextVersion() {
+        return nextVersion;
+    }
+
+    public String getScmTag() {
+        return Constants.DEFAULT_SCM_TAG_PREFIX + releaseVersion;
+    }
+
+    /**
+     * @return the name of the root module, or <code>null</code> if it could not be determined.
+     */
+    public String getModuleName() {
+        return moduleName;
+    }
+}
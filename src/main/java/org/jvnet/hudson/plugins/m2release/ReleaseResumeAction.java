@@ -0,0 +1,250 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+import hudson.model.BuildableItemWithBuildWrappers;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Run;
+import hudson.model.StreamBuildListener;
+import hudson.model.TransientBuildActionFactory;
+import hudson.plugins.git.GitException;
+import hudson.slaves.WorkspaceList;
+import org.apache.commons.io.FileUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Finishes the finalization of a release build that was cut short, e.g. by a restart of the controller, from the
+ * last step recorded in its {@link ReleaseJournal}. Maven is not run again: the release branch is merged and pushed,
+ * the staging repositories are closed and released and the build is kept as the tearDown of the build would have
+ * done. The output goes to <code>releaseResume.log</code> in the directory of the build.
+ * <p>
+ * The resume holds the workspace of the build like a build would, and new releases of the job wait in the queue
+ * (see {@link ReleaseGovernor}) until it is done. It is refused if the workspace no longer has the release commits,
+ * e.g. because another build checked out something else.
+ */
+public class ReleaseResumeAction implements Action {
+
+    private static final Logger log = LoggerFactory.getLogger(ReleaseResumeAction.class);
+
+    /** The root directories of the builds that are being resumed. */
+    private static final Set<File> resuming = new HashSet<File>();
+
+    private final AbstractBuild<?, ?> build;
+
+    ReleaseResumeAction(AbstractBuild<?, ?> build) {
+        this.build = build;
+    }
+
+    public AbstractBuild<?, ?> getBuild() {
+        return build;
+    }
+
+    public String getIconFileName() {
+        if (isResumable() && M2ReleaseBuildWrapper.hasReleasePermission(build.getProject())) {
+            return "redo.png"; //$NON-NLS-1$
+        }
+        return null;
+    }
+
+    public String getDisplayName() {
+        return Messages.ReleaseResumeAction_DisplayName();
+    }
+
+    public String getUrlName() {
+        return "m2releaseResume"; //$NON-NLS-1$
+    }
+
+    public ReleaseJournal getJournal() {
+        return ReleaseJournal.forBuild(build);
+    }
+
+    /**
+     * @return <code>true</code> if the finalization of the build did not finish and is not being resumed.
+     */
+    public boolean isResumable() {
+        if (build.isBuilding() || isResuming()) {
+            return false;
+        }
+        ReleaseJournal journal = getJournal();
+        return journal != null && !journal.isFinished();
+    }
+
+    public boolean isResuming() {
+        synchronized (resuming) {
+            return resuming.contains(build.getRootDir());
+        }
+    }
+
+    /**
+     * @return the output of the last resume, or <code>null</code> if the release was not resumed.
+     */
+    public String getLog() throws IOException {
+        File file = getLogFile();
+        return file.exists() ? FileUtils.readFileToString(file) : null;
+    }
+
+    public void doResume(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        M2ReleaseBuildWrapper.checkReleasePermission(build.getProject());
+        if (!"POST".equals(req.getMethod())) {
+            rsp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        final String job = build.getProject().getFullName();
+        synchronized (resuming) {
+            if (!isResumable()) {
+                rsp.sendError(HttpServletResponse.SC_CONFLICT, "The release of this build can not be resumed");
+                return;
+            }
+            if (!ReleaseGovernor.resumeStarted(job)) {
+                rsp.sendError(HttpServletResponse.SC_CONFLICT, "Another release of this job is in progress");
+                return;
+            }
+            resuming.add(build.getRootDir());
+        }
+        Computer.threadPoolForRemoting.submit(new Runnable() {
+            public void run() {
+                try {
+                    resume();
+                } finally {
+                    synchronized (resuming) {
+                        resuming.remove(build.getRootDir());
+                    }
+                    ReleaseGovernor.resumeFinished(job);
+                }
+            }
+        });
+        rsp.sendRedirect(".");
+    }
+
+    private void resume() {
+        StreamBuildListener listener;
+        try {
+            listener = new StreamBuildListener(new FileOutputStream(getLogFile(), true));
+        } catch (IOException e) {
+            log.error("Could not open the resume log of " + build, e);
+            return;
+        }
+        try {
+            ReleaseJournal journal = getJournal();
+            M2ReleaseBuildWrapper wrapper = ((BuildableItemWithBuildWrappers) build.getProject())
+                    .getBuildWrappersList().get(M2ReleaseBuildWrapper.class);
+            if (journal == null || wrapper == null) {
+                listener.fatalError("[WSO2 Maven Release] The job is no longer set up to do releases");
+                return;
+            }
+            Node node = build.getBuiltOn();
+            FilePath workspace = build.getWorkspace();
+            if (node == null || node.toComputer() == null || node.toComputer().isOffline() || workspace == null) {
+                listener.fatalError("[WSO2 Maven Release] The node " + build.getBuiltOnStr()
+                        + " that has the workspace of the release is offline");
+                return;
+            }
+            listener.getLogger().println("[WSO2 Maven Release] Waiting for the workspace " + workspace.getRemote());
+            WorkspaceList.Lease lease = node.toComputer().getWorkspaceList().acquire(workspace);
+            try {
+                Launcher launcher = node.createLauncher(listener);
+                GitReleaseSession gitSession = GitReleaseSession.open(build, launcher, listener);
+                if (!isWorkspaceAtRelease(journal, gitSession, listener)) {
+                    return;
+                }
+                ReleaseEnvironment environment = new ReleaseEnvironment(wrapper, journal.getReleaseBranch(),
+                        journal.getRemoteBranch(), journal.getRemoteRevision(), journal.getReleaseVersion(), launcher,
+                        gitSession);
+                boolean success = environment.tearDown(build, listener);
+                // keep the metrics of the resumed finalization
+                build.save();
+                listener.getLogger().println("[WSO2 Maven Release] Resumed release finalization "
+                        + (success ? "finished" : "failed"));
+            } finally {
+                lease.release();
+            }
+        } catch (Exception e) {
+            e.printStackTrace(listener.error("[WSO2 Maven Release] Could not resume the release finalization"));
+        } finally {
+            listener.closeQuietly();
+        }
+    }
+
+    /**
+     * Check that the release commits that are still to be merged and pushed are checked out in the workspace.
+     */
+    private static boolean isWorkspaceAtRelease(ReleaseJournal journal, GitReleaseSession gitSession,
+            StreamBuildListener listener) throws InterruptedException {
+        if (gitSession == null || !journal.isBuildSuccessful() || journal.isDone(ReleaseJournal.Step.BRANCH_PUSHED)) {
+            // nothing of the workspace is pushed any more.
+            return true;
+        }
+        String expected = journal.getReleaseBranchHead();
+        String head;
+        try {
+            if (expected == null) {
+                // the finalization stopped before it recorded the head of the release branch.
+                expected = gitSession.revParse(journal.getReleaseBranch()).name();
+            }
+            head = gitSession.revParse(M2ReleaseBuildWrapper.DEFAULT_REF).name();
+        } catch (GitException e) {
+            e.printStackTrace(listener.fatalError("[WSO2 Maven Release] Could not find the release branch "
+                    + journal.getReleaseBranch() + " in the workspace"));
+            return false;
+        }
+        if (!head.equals(expected)) {
+            listener.fatalError("[WSO2 Maven Release] The workspace is at " + head + " instead of the head of the "
+                    + "release branch " + expected + ". The workspace was changed since the release, the release "
+                    + "finalization has to be finished manually");
+            return false;
+        }
+        return true;
+    }
+
+    private File getLogFile() {
+        return new File(build.getRootDir(), Constants.RELEASE_RESUME_LOG);
+    }
+
+    /**
+     * Adds the action to the builds that have a release journal.
+     */
+    @Extension
+    public static class Factory extends TransientBuildActionFactory {
+
+        @Override
+        public Collection<? extends Action> createFor(Run target) {
+            if (target instanceof AbstractBuild && ReleaseJournal.exists(target)) {
+                return Collections.singletonList(new ReleaseResumeAction((AbstractBuild<?, ?>) target));
+            }
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.model.Result;
+import hudson.model.Run;
+
+/**
+ * What views need to know about a release build, kept in the {@link ReleaseBuildIndex} of its job so that showing
+ * a release does not need the build to be loaded.
+ */
+public final class ReleaseSummary {
+
+    private final String version;
+    private final String tag;
+    private final boolean dryRun;
+    private final String result;
+    private final long timestamp;
+    private final long duration;
+    private final String stageID;
+
+    public ReleaseSummary(String version, String tag, boolean dryRun, Result result, long timestamp, long duration,
+            String stageID) {
+        this.version = version;
+        this.tag = tag;
+        this.dryRun = dryRun;
+        this.result = result == null ? null : result.toString();
+        this.timestamp = timestamp;
+        this.duration = duration;
+        this.stageID = stageID;
+    }
+
+    /**
+     * @return the summary of the given run, or <code>null</code> if it is not a release build.
+     */
+    public static ReleaseSummary of(Run run) {
+        M2ReleaseBadgeAction badge = run.getAction(M2ReleaseBadgeAction.class);
+        if (badge == null) {
+            return null;
+        }
+        M2ReleaseArgumentsAction args = run.getAction(M2ReleaseArgumentsAction.class);
+        return new ReleaseSummary(badge.readVersionNumber(), args == null ? null : args.getScmTagName(),
+                badge.readDryRun(), run.getResult(), run.getTimeInMillis(), run.getDuration(),
+                args == null ? null : args.getStageID());
+    }
+
+    /**
+     * @return the version that was released.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the SCM tag of the release, or <code>null</code> if it is not known.
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public Result getResult() {
+        return result == null ? null : Result.fromString(result);
+    }
+
+    /**
+     * @return the time the build was scheduled, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return how long the build took in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the ID of the Nexus staging repository of the release, or <code>null</code> if it is not known.
+     */
+    public String getStageID() {
+        return stageID;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import hudson.util.DaemonThreadFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the phases of a release tearDown, each as soon as the phases it depends on have succeeded. Phases that do not
+ * depend on each other run concurrently. A phase fails if it returns <code>false</code> or throws, and the phases
+ * that depend on a failed or skipped phase are skipped. The wall time of every phase is printed to the build log.
+ */
+final class TearDownPipeline {
+
+    enum Outcome {
+        SUCCEEDED, FAILED, SKIPPED
+    }
+
+    private final PrintStream logger;
+    private final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+
+    TearDownPipeline(PrintStream logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Adds a phase that runs once all of the phases named in <code>after</code> have succeeded.
+     */
+    void add(String name, Callable<Boolean> work, String... after) {
+        for (String dependency : after) {
+            if (!phases.containsKey(dependency)) {
+                throw new IllegalArgumentException("Phase " + name + " depends on unknown phase " + dependency);
+            }
+        }
+        phases.put(name, new Phase(name, work, Arrays.asList(after)));
+    }
+
+    /**
+     * Runs all phases and returns once every phase has finished or been skipped. If the calling thread is interrupted
+     * the running phases are interrupted as well, and the interruption is only rethrown once they have stopped so
+     * that the caller can clean up after them.
+     */
+    void run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, phases.size()), new DaemonThreadFactory());
+        CompletionService<Phase> completion = new ExecutorCompletionService<Phase>(executor);
+        Map<String, Future<Phase>> running = new HashMap<String, Future<Phase>>();
+        long start = System.currentTimeMillis();
+        try {
+            schedule(completion, running);
+            while (!running.isEmpty()) {
+                Phase finished;
+                try {
+                    finished = completion.take().get();
+                } catch (ExecutionException e) {
+                    // Phase.call() records every failure itself
+                    throw new IllegalStateException(e.getCause());
+                }
+                running.remove(finished.name);
+                schedule(completion, running);
+            }
+        } catch (InterruptedException e) {
+            for (Future<Phase> future : running.values()) {
+                future.cancel(true);
+            }
+            awaitStopped(executor);
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.println(String.format(Locale.ENGLISH, "[WSO2 Maven Release] tearDown finished in %.1f s",
+                (System.currentTimeMillis() - start) / 1000.0));
+    }
+
+    /**
+     * Waits for the phases of an interrupted run to stop. Further interrupts do not end the wait.
+     */
+    private void awaitStopped(ExecutorService executor) {
+        executor.shutdownNow();
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    return;
+                }
+                logger.println("[WSO2 Maven Release] Waiting for the interrupted tearDown phases to stop");
+            } catch (InterruptedException e) {
+                // already interrupted, keep waiting
+            }
+        }
+    }
+
+    Outcome getOutcome(String name) {
+        return phase(name).outcome;
+    }
+
+    boolean succeeded(String name) {
+        return phase(name).outcome == Outcome.SUCCEEDED;
+    }
+
+    /**
+     * @return the exception thrown by the phase, or <code>null</code> if it did not throw.
+     */
+    Throwable getFailure(String name) {
+        return phase(name).failure;
+    }
+
+    private Phase phase(String name) {
+        Phase phase = phases.get(name);
+        if (phase == null) {
+            throw new IllegalArgumentException("Unknown phase " + name);
+        }
+        return phase;
+    }
+
+    /**
+     * Starts the phases whose dependencies have all succeeded and skips those with a failed or skipped dependency.
+     */
+    private void schedule(CompletionService<Phase> completion, Map<String, Future<Phase>> running) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Phase phase : phases.values()) {
+                if (phase.outcome != null || running.containsKey(phase.name)) {
+                    continue;
+                }
+                List<String> blocking = new ArrayList<String>();
+                boolean ready = true;
+                for (String dependency : phase.after) {
+                    Outcome outcome = phases.get(dependency).outcome;
+                    if (outcome == null) {
+                        ready = false;
+                    } else if (outcome != Outcome.SUCCEEDED) {
+                        blocking.add(dependency);
+                    }
+                }
+                if (!blocking.isEmpty()) {
+                    phase.outcome = Outcome.SKIPPED;
+                    logger.println("[WSO2 Maven Release] Skipping tearDown phase " + phase.name + ", " + blocking
+                            + " did not succeed");
+                    changed = true;
+                } else if (ready) {
+                    running.put(phase.name, completion.submit(phase));
+                }
+            }
+        }
+    }
+
+    private final class Phase implements Callable<Phase> {
+        private final String name;
+        private final Callable<Boolean> work;
+        private final List<String> after;
+        private volatile Outcome outcome;
+        private volatile Throwable failure;
+
+        Phase(String name, Callable<Boolean> work, List<String> after) {
+            this.name = name;
+            this.work = work;
+            this.after = after;
+        }
+
+        public Phase call() {
+            long start = System.currentTimeMillis();
+            Outcome result;
+            try {
+                result = Boolean.TRUE.equals(work.call()) ? Outcome.SUCCEEDED : Outcome.FAILED;
+            } catch (Throwable t) {
+                failure = t;
+                result = Outcome.FAILED;
+            }
+            logger.println(String.format(Locale.ENGLISH, "[WSO2 Maven Release] tearDown phase %s %s in %.1f s",
+                    name, result == Outcome.SUCCEEDED ? "succeeded" : "failed",
+                    (System.currentTimeMillis() - start) / 1000.0));
+            if (failure instanceof IOException) {
+                logger.println("[WSO2 Maven Release] tearDown phase " + name + " failed: " + failure);
+            } else if (failure != null) {
+                // anything else is a bug or an interrupt, keep the trace in the build log
+                failure.printStackTrace(logger);
+            }
+            outcome = result;
+            return this;
+        }
+    }
+}
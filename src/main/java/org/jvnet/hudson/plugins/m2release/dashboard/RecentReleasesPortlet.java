@@ -8,6 +8,7 @@
 import hudson.util.RunList;
 import org.jvnet.hudson.plugins.m2release.M2ReleaseBadgeAction;
 import org.jvnet.hudson.plugins.m2release.ReleaseCause;
+import org.jvnet.hudson.plugins.m2release.ReleaseFeed;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -23,22 +24,7 @@ public RecentReleasesPortlet(String name) {
     }
 
     public Collection<Run> getRecentReleases(int max) {
-        LinkedList<Run> recentReleases = new LinkedList<Run>();
-
-        for (Job job : getDashboard().getJobs()) {
-            for (Run run = job.getLastCompletedBuild(); run != null && (recentReleases.size() < max || run.getTimestamp().compareTo(recentReleases.getLast().getTimestamp()) > 0); run = run.getPreviousBuild()) {
-
-                M2ReleaseBadgeAction mbb = run.getAction(M2ReleaseBadgeAction.class);
-
-                if (mbb != null) {
-                    if (!insertRun(run, recentReleases, max)) {
-                        break;
-                    }
-                }
-            }
-        }
-
-        return recentReleases;
+        return ReleaseFeed.getInstance().getRecentReleases(getDashboard().getJobs(), max);
     }
 
 
@@ -54,39 +40,6 @@ public String getReleaseVersion(Run run) {
         return rbb.getVersionNumber();
     }
 
-    private boolean insertRun(Run run, LinkedList<Run> recentReleases, int max) {
-        ListIterator<Run> iter = recentReleases.listIterator();
-        Run recentRun = null;
-
-        do {
-            if (iter.hasNext()) {
-                recentRun = iter.next();
-            } else {
-                recentRun = null;
-            }
-
-            // if we're at the end of the recent releases list and the list has room for another
-            // or this run is more recent than current position, then insert
-            if ((recentRun == null && recentReleases.size() < max) || (recentRun != null && run.getTimestamp().compareTo(recentRun.getTimestamp()) > 0)) {
-                // back up one and add to list
-                if (!recentReleases.isEmpty() && recentRun != null) {
-                    iter.previous();
-                }
-
-                iter.add(run);
-
-                // remove last on list if size == max - might be removing what we just added
-                if (recentReleases.size() > max) {
-                    recentReleases.removeLast();
-                }
-
-                return true;
-            }
-        } while (recentRun != null);
-
-        return false;
-    }
-
     public void doRssAll(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
         rss(req, rsp, " all builds", RunList.fromRuns(getRecentReleases(20)));
     }
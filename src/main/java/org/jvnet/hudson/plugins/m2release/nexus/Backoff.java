@@ -0,0 +1,91 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff with jitter for polling Nexus. The delay before poll <code>n</code> (counting from 0) is
+ * <code>initialDelay * multiplier^n</code> capped at <code>maxDelay</code>, randomly reduced by up to the jitter
+ * fraction so that builds waiting on the same server do not poll in lock step. Instances are immutable.
+ */
+public class Backoff {
+
+	/** Backoff used when waiting for staging actions - starts at the 500ms the client used to poll at. */
+	public static final Backoff DEFAULT = new Backoff(500L, 10000L, 2.0d, 0.25d);
+
+	private static final Random RANDOM = new Random();
+
+	private final long initialDelay;
+	private final long maxDelay;
+	private final double multiplier;
+	private final double jitter;
+
+
+	/**
+	 * @param initialDelay the delay before the first retry in milliseconds.
+	 * @param maxDelay the maximum delay in milliseconds.
+	 * @param multiplier the factor the delay grows by on each attempt, at least 1.
+	 * @param jitter the fraction of the delay (between 0 and 1) that may be randomly removed.
+	 */
+	public Backoff(long initialDelay, long maxDelay, double multiplier, double jitter) {
+		if (initialDelay < 0 || maxDelay < initialDelay) {
+			throw new IllegalArgumentException("Invalid delays " + initialDelay + ", " + maxDelay);
+		}
+		if (multiplier < 1.0d || jitter < 0.0d || jitter > 1.0d) {
+			throw new IllegalArgumentException("Invalid multiplier " + multiplier + " or jitter " + jitter);
+		}
+		this.initialDelay = initialDelay;
+		this.maxDelay = maxDelay;
+		this.multiplier = multiplier;
+		this.jitter = jitter;
+	}
+
+
+	/**
+	 * Calculate the delay before the given attempt.
+	 * 
+	 * @param attempt the number of attempts that have already been made, starting at 0.
+	 * @return the delay in milliseconds.
+	 */
+	public long getDelay(int attempt) {
+		double delay = initialDelay * Math.pow(multiplier, Math.max(0, attempt));
+		long capped = (long) Math.min(delay, maxDelay);
+		if (jitter == 0.0d || capped == 0L) {
+			return capped;
+		}
+		return capped - (long) (capped * jitter * RANDOM.nextDouble());
+	}
+
+
+	public long getInitialDelay() {
+		return initialDelay;
+	}
+
+
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+
+	@Override
+	public String toString() {
+		return "Backoff[initial=" + initialDelay + "ms, max=" + maxDelay + "ms, multiplier=" + multiplier
+		       + ", jitter=" + jitter + ']';
+	}
+}
@@ -0,0 +1,145 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A circuit breaker for a Nexus server, shared by every client and build that talks to the server. After
+ * <code>failureThreshold</code> transient failures in a row the breaker opens and requests fail fast without
+ * contacting the server. Once <code>openTime</code> has passed a single request is let through - if it succeeds the
+ * breaker closes again, otherwise it stays open for another <code>openTime</code>.
+ */
+public class CircuitBreaker {
+
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+	public static final long DEFAULT_OPEN_TIME = 30000L;
+
+	private static final ConcurrentMap<String, CircuitBreaker> BREAKERS =
+	      new ConcurrentHashMap<String, CircuitBreaker>();
+
+	private static volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+	private static volatile long openTime = DEFAULT_OPEN_TIME;
+
+	private final String url;
+
+	private int consecutiveFailures;
+
+	/** When the breaker was opened, or -1 if it is closed. */
+	private long openedAt = -1L;
+
+	/** <code>true</code> while the single request let through by an open breaker has not finished. */
+	private boolean probing;
+
+
+	CircuitBreaker(String url) {
+		this.url = url;
+	}
+
+
+	/**
+	 * Get the circuit breaker for the Nexus server at the given URL.
+	 */
+	public static CircuitBreaker forURL(URL nexusURL) {
+		String key = nexusURL.toExternalForm();
+		CircuitBreaker breaker = BREAKERS.get(key);
+		if (breaker == null) {
+			CircuitBreaker created = new CircuitBreaker(key);
+			breaker = BREAKERS.putIfAbsent(key, created);
+			if (breaker == null) {
+				breaker = created;
+			}
+		}
+		return breaker;
+	}
+
+
+	/**
+	 * Change the settings of all breakers.
+	 * 
+	 * @param threshold the number of transient failures in a row that open a breaker, 0 to never open.
+	 * @param time how long in milliseconds a breaker stays open before a request is let through.
+	 */
+	public static void configure(int threshold, long time) {
+		failureThreshold = Math.max(0, threshold);
+		openTime = Math.max(0L, time);
+	}
+
+
+	/**
+	 * Close and forget all breakers.
+	 */
+	public static void reset() {
+		BREAKERS.clear();
+	}
+
+
+	/**
+	 * @return <code>true</code> if a request may be sent to the server now.
+	 */
+	public synchronized boolean allowRequest() {
+		if (openedAt < 0L) {
+			return true;
+		}
+		if (!probing && System.currentTimeMillis() - openedAt >= openTime) {
+			probing = true;
+			return true;
+		}
+		return false;
+	}
+
+
+	public synchronized void recordSuccess() {
+		consecutiveFailures = 0;
+		openedAt = -1L;
+		probing = false;
+	}
+
+
+	public synchronized void recordFailure() {
+		consecutiveFailures++;
+		if (probing || (failureThreshold > 0 && consecutiveFailures >= failureThreshold)) {
+			openedAt = System.currentTimeMillis();
+			probing = false;
+		}
+	}
+
+
+	/**
+	 * Record a request that ended without an answer from the server that says anything about it, e.g. it could not
+	 * be sent or the answer could not be handled. A request let through by an open breaker may be tried again.
+	 */
+	public synchronized void recordNoAnswer() {
+		probing = false;
+	}
+
+
+	public synchronized boolean isOpen() {
+		return openedAt >= 0L;
+	}
+
+
+	@Override
+	public String toString() {
+		return "circuit breaker for " + url;
+	}
+}
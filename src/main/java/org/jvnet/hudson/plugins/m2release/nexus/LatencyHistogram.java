@@ -0,0 +1,147 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of durations with fixed bucket bounds, in the form used by Prometheus: every bucket counts the
+ * observations up to its bound, the count and sum of all observations are kept as well. Instances are thread safe
+ * and can be persisted with XStream.
+ */
+public class LatencyHistogram {
+
+	/** Bounds in milliseconds suited to single HTTP requests. */
+	public static final long[] REQUEST_BOUNDS =
+	      {5L, 10L, 25L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L, 30000L, 60000L};
+
+	/** Bounds in milliseconds suited to the phases of a release, from seconds up to hours. */
+	public static final long[] PHASE_BOUNDS =
+	      {1000L, 5000L, 15000L, 30000L, 60000L, 120000L, 300000L, 600000L, 1800000L, 3600000L, 7200000L};
+
+	/** The upper bounds of the buckets in milliseconds, ascending. */
+	private final long[] bounds;
+
+	/** The number of observations in each bucket (not cumulative), the last one is above the highest bound. */
+	private final long[] counts;
+
+	private long sum;
+
+	private long max;
+
+
+	public LatencyHistogram(long[] bounds) {
+		this.bounds = bounds.clone();
+		this.counts = new long[bounds.length + 1];
+	}
+
+
+	/**
+	 * Record an observation.
+	 * 
+	 * @param millis the duration in milliseconds.
+	 */
+	public synchronized void record(long millis) {
+		int bucket = Arrays.binarySearch(bounds, millis);
+		if (bucket < 0) {
+			bucket = -bucket - 1;
+		}
+		counts[bucket]++;
+		sum += millis;
+		max = Math.max(max, millis);
+	}
+
+
+	/**
+	 * Add all observations of the other histogram, which must have the same bounds.
+	 */
+	public void add(LatencyHistogram other) {
+		LatencyHistogram copy = other.copy();
+		if (!Arrays.equals(bounds, copy.bounds)) {
+			throw new IllegalArgumentException("Histograms have different bounds");
+		}
+		synchronized (this) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += copy.counts[i];
+			}
+			sum += copy.sum;
+			max = Math.max(max, copy.max);
+		}
+	}
+
+
+	public synchronized LatencyHistogram copy() {
+		LatencyHistogram copy = new LatencyHistogram(bounds);
+		System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+		copy.sum = sum;
+		copy.max = max;
+		return copy;
+	}
+
+
+	public long[] getBounds() {
+		return bounds.clone();
+	}
+
+
+	/**
+	 * @return the number of observations up to each bound, followed by the total number of observations.
+	 */
+	public synchronized long[] getCumulativeCounts() {
+		long[] cumulative = new long[counts.length];
+		long total = 0L;
+		for (int i = 0; i < counts.length; i++) {
+			total += counts[i];
+			cumulative[i] = total;
+		}
+		return cumulative;
+	}
+
+
+	public synchronized long getCount() {
+		long total = 0L;
+		for (long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+
+	/**
+	 * @return the sum of all observations in milliseconds.
+	 */
+	public synchronized long getSum() {
+		return sum;
+	}
+
+
+	/**
+	 * @return the longest observation in milliseconds.
+	 */
+	public synchronized long getMax() {
+		return max;
+	}
+
+
+	@Override
+	public synchronized String toString() {
+		long count = getCount();
+		return String.format("%d in %dms (avg=%dms, max=%dms)", Long.valueOf(count), Long.valueOf(sum),
+		                     Long.valueOf(count == 0 ? 0L : sum / count), Long.valueOf(max));
+	}
+}
@@ -0,0 +1,60 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+/**
+ * What a Nexus server is capable of, as far as staging is concerned. Instances are immutable.
+ */
+public class NexusCapabilities {
+
+	private final String version;
+	private final boolean asyncClose;
+
+
+	/**
+	 * @param version the version of the server.
+	 * @param asyncClose <code>true</code> if staging actions complete asynchronously on the server.
+	 */
+	public NexusCapabilities(String version, boolean asyncClose) {
+		this.version = version;
+		this.asyncClose = asyncClose;
+	}
+
+
+	/**
+	 * @return the version of the server.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+
+	/**
+	 * @return <code>true</code> if staging actions complete asynchronously on the server (i.e. it is 2.4 or
+	 *         newer).
+	 */
+	public boolean isAsyncClose() {
+		return asyncClose;
+	}
+
+
+	@Override
+	public String toString() {
+		return "NexusCapabilities[version=" + version + ", asyncClose=" + asyncClose + ']';
+	}
+}
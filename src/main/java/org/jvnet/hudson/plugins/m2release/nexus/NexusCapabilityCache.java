@@ -0,0 +1,153 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller wide cache of the {@link NexusCapabilities} of each Nexus server and of the users that have been
+ * verified to have the staging permissions, so that every release does not have to ask the server again. Entries
+ * expire after a time to live so that upgrades of the server and changes to the permissions are picked up.
+ */
+public final class NexusCapabilityCache {
+
+	/** Default time in milliseconds that an entry is trusted for. */
+	public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(10);
+
+	/** capabilities keyed by the Nexus URL. */
+	private static final Map<String, Entry<NexusCapabilities>> CAPABILITIES =
+	      new HashMap<String, Entry<NexusCapabilities>>();
+
+	/** time the user was verified, keyed by the Nexus URL and user name. */
+	private static final Map<String, Entry<Boolean>> AUTHENTICATED = new HashMap<String, Entry<Boolean>>();
+
+	private static long ttl = DEFAULT_TTL;
+
+
+	private NexusCapabilityCache() {
+		// static utility
+	}
+
+
+	/**
+	 * @param nexusURL the base URL of the Nexus server.
+	 * @return the cached capabilities of the server, or <code>null</code> if they are not known.
+	 */
+	public static synchronized NexusCapabilities getCapabilities(URL nexusURL) {
+		return get(CAPABILITIES, nexusURL.toExternalForm());
+	}
+
+
+	/**
+	 * Record the capabilities of the server.
+	 * 
+	 * @param nexusURL the base URL of the Nexus server.
+	 * @param capabilities the capabilities of the server.
+	 */
+	public static synchronized void putCapabilities(URL nexusURL, NexusCapabilities capabilities) {
+		CAPABILITIES.put(nexusURL.toExternalForm(), new Entry<NexusCapabilities>(capabilities));
+	}
+
+
+	/**
+	 * @param nexusURL the base URL of the Nexus server.
+	 * @param username the user.
+	 * @return <code>true</code> if the user was recently verified to have the staging permissions on the server.
+	 */
+	public static synchronized boolean isAuthenticated(URL nexusURL, String username) {
+		return get(AUTHENTICATED, getUserKey(nexusURL, username)) != null;
+	}
+
+
+	/**
+	 * Record that the user has the staging permissions on the server.
+	 * 
+	 * @param nexusURL the base URL of the Nexus server.
+	 * @param username the user.
+	 */
+	public static synchronized void putAuthenticated(URL nexusURL, String username) {
+		AUTHENTICATED.put(getUserKey(nexusURL, username), new Entry<Boolean>(Boolean.TRUE));
+	}
+
+
+	/**
+	 * Forget everything known about the server.
+	 * 
+	 * @param nexusURL the base URL of the Nexus server.
+	 */
+	public static synchronized void invalidate(URL nexusURL) {
+		String url = nexusURL.toExternalForm();
+		CAPABILITIES.remove(url);
+		for (Iterator<String> it = AUTHENTICATED.keySet().iterator(); it.hasNext();) {
+			if (it.next().startsWith(url + '|')) {
+				it.remove();
+			}
+		}
+	}
+
+
+	/**
+	 * Forget everything about every server - e.g. because the credentials have been changed.
+	 */
+	public static synchronized void clear() {
+		CAPABILITIES.clear();
+		AUTHENTICATED.clear();
+	}
+
+
+	/**
+	 * @param newTtl the time in milliseconds that entries are trusted for.
+	 */
+	public static synchronized void setTtl(long newTtl) {
+		ttl = newTtl;
+	}
+
+
+	private static <T> T get(Map<String, Entry<T>> map, String key) {
+		Entry<T> entry = map.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (System.currentTimeMillis() - entry.created > ttl) {
+			map.remove(key);
+			return null;
+		}
+		return entry.value;
+	}
+
+
+	private static String getUserKey(URL nexusURL, String username) {
+		return nexusURL.toExternalForm() + '|' + username;
+	}
+
+
+	private static final class Entry<T> {
+
+		private final T value;
+		private final long created = System.currentTimeMillis();
+
+
+		Entry(T value) {
+			this.value = value;
+		}
+	}
+}
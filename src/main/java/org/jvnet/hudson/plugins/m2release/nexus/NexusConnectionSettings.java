@@ -0,0 +1,95 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+/**
+ * Immutable settings for the connections used to talk to Nexus.
+ */
+public final class NexusConnectionSettings {
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+	public static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 30;
+	public static final int DEFAULT_READ_TIMEOUT_SECONDS = 120;
+
+	public static final NexusConnectionSettings DEFAULT =
+	      new NexusConnectionSettings(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_CONNECT_TIMEOUT_SECONDS * 1000,
+	                                  DEFAULT_READ_TIMEOUT_SECONDS * 1000);
+
+	private final int maxConnectionsPerHost;
+	private final int connectTimeout;
+	private final int readTimeout;
+
+
+	/**
+	 * @param maxConnectionsPerHost the maximum number of concurrent requests to a single Nexus host.
+	 * @param connectTimeout timeout in milliseconds to establish a connection (or to wait for a free slot).
+	 * @param readTimeout socket read timeout in milliseconds.
+	 */
+	public NexusConnectionSettings(int maxConnectionsPerHost, int connectTimeout, int readTimeout) {
+		this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+		this.connectTimeout = Math.max(0, connectTimeout);
+		this.readTimeout = Math.max(0, readTimeout);
+	}
+
+
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+
+	@Override
+	public String toString() {
+		return String.format("NexusConnectionSettings[maxConnectionsPerHost=%d, connectTimeout=%d, readTimeout=%d]",
+		                     maxConnectionsPerHost, connectTimeout, readTimeout);
+	}
+
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + maxConnectionsPerHost;
+		result = prime * result + connectTimeout;
+		result = prime * result + readTimeout;
+		return result;
+	}
+
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		NexusConnectionSettings other = (NexusConnectionSettings) obj;
+		return maxConnectionsPerHost == other.maxConnectionsPerHost && connectTimeout == other.connectTimeout
+		       && readTimeout == other.readTimeout;
+	}
+}
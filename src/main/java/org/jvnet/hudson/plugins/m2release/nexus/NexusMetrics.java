@@ -0,0 +1,163 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Request counts and latencies of the Nexus endpoints used by {@link StageClient}s. The endpoints are named by the
+ * request method and the path below the Nexus URL with the profile and stage IDs replaced, e.g.
+ * <code>GET staging/repository/{id}/activity</code>, so that the requests for different stages add up.
+ * <p>
+ * Every client keeps its own metrics (see {@link StageClient#getMetrics()}) and also records into {@link #GLOBAL},
+ * which covers all clients since Jenkins was started. Instances are thread safe and can be persisted with XStream.
+ */
+public class NexusMetrics {
+
+	/** The metrics of all clients. */
+	public static final NexusMetrics GLOBAL = new NexusMetrics();
+
+	private static final Pattern ID_SEGMENT =
+	      Pattern.compile("(profiles|profile_repositories|repository|repositories)/[^/]+");
+
+	private static final Pattern CONTENT_PATH = Pattern.compile("/content/.*");
+
+	private final TreeMap<String, LatencyHistogram> latencies = new TreeMap<String, LatencyHistogram>();
+
+	private final TreeMap<String, Long> failures = new TreeMap<String, Long>();
+
+
+	/**
+	 * Record a request.
+	 * 
+	 * @param endpoint the endpoint, see {@link #endpointOf(String, URL, URL)}.
+	 * @param millis the time the request took in milliseconds.
+	 * @param failed <code>true</code> if the request failed with an I/O error, a server error (5xx) or a response
+	 *            that the caller rejected.
+	 */
+	public synchronized void record(String endpoint, long millis, boolean failed) {
+		LatencyHistogram histogram = latencies.get(endpoint);
+		if (histogram == null) {
+			histogram = new LatencyHistogram(LatencyHistogram.REQUEST_BOUNDS);
+			latencies.put(endpoint, histogram);
+		}
+		histogram.record(millis);
+		if (failed) {
+			Long count = failures.get(endpoint);
+			failures.put(endpoint, Long.valueOf(count == null ? 1L : count.longValue() + 1L));
+		}
+	}
+
+
+	/**
+	 * Add all requests recorded by the other metrics.
+	 */
+	public void add(NexusMetrics other) {
+		NexusMetrics copy = other.copy();
+		synchronized (this) {
+			for (Map.Entry<String, LatencyHistogram> entry : copy.latencies.entrySet()) {
+				LatencyHistogram histogram = latencies.get(entry.getKey());
+				if (histogram == null) {
+					latencies.put(entry.getKey(), entry.getValue());
+				}
+				else {
+					histogram.add(entry.getValue());
+				}
+			}
+			for (Map.Entry<String, Long> entry : copy.failures.entrySet()) {
+				Long count = failures.get(entry.getKey());
+				failures.put(entry.getKey(), Long.valueOf(entry.getValue().longValue()
+				                                          + (count == null ? 0L : count.longValue())));
+			}
+		}
+	}
+
+
+	public synchronized NexusMetrics copy() {
+		NexusMetrics copy = new NexusMetrics();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			copy.latencies.put(entry.getKey(), entry.getValue().copy());
+		}
+		copy.failures.putAll(failures);
+		return copy;
+	}
+
+
+	/**
+	 * @return a copy of the latencies of every endpoint, ordered by endpoint.
+	 */
+	public synchronized Map<String, LatencyHistogram> getLatencies() {
+		return copy().latencies;
+	}
+
+
+	/**
+	 * @return the number of failed requests of the endpoint.
+	 */
+	public synchronized long getFailures(String endpoint) {
+		Long count = failures.get(endpoint);
+		return count == null ? 0L : count.longValue();
+	}
+
+
+	public synchronized boolean isEmpty() {
+		return latencies.isEmpty();
+	}
+
+
+	/**
+	 * Name the endpoint of a request.
+	 * 
+	 * @param method the HTTP method of the request.
+	 * @param nexusURL the base URL of the Nexus server.
+	 * @param url the URL of the request.
+	 */
+	public static String endpointOf(String method, URL nexusURL, URL url) {
+		String path = url.getPath();
+		String base = nexusURL.getPath();
+		if (path.startsWith(base)) {
+			path = path.substring(base.length());
+		}
+		if (path.startsWith("service/local/")) {
+			path = path.substring("service/local/".length());
+		}
+		path = ID_SEGMENT.matcher(path).replaceAll("$1/{id}");
+		path = CONTENT_PATH.matcher(path).replaceFirst("/content");
+		return method + ' ' + path;
+	}
+
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(entry.getKey()).append(": ").append(entry.getValue());
+			long failed = getFailures(entry.getKey());
+			if (failed > 0) {
+				sb.append(" [").append(failed).append(" failed]");
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,61 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * The transport used by a {@link StageClient} to talk HTTP to a Nexus server. Implementations are shared between
+ * builds and so must be thread safe.
+ */
+public interface NexusTransport {
+
+	/**
+	 * Perform a single HTTP request against the Nexus server. The response is handed to the <code>handler</code>
+	 * and any resources associated with it (including the underlying connection) are released once the handler
+	 * returns.
+	 * 
+	 * @param method the HTTP method (<code>GET</code>, <code>HEAD</code> or <code>POST</code>).
+	 * @param url the URL to request.
+	 * @param headers the request headers to send.
+	 * @param payload the body to send with the request - may be <code>null</code>.
+	 * @param handler the handler to consume the response.
+	 * @return the value returned by the handler.
+	 * @throws IOException if the request could not be performed or the handler failed.
+	 */
+	<T> T execute(String method, URL url, Map<String, String> headers, byte[] payload, ResponseHandler<T> handler)
+	      throws IOException;
+
+
+	/**
+	 * Consumes the response of a request. The body must not be used after the handler has returned.
+	 */
+	interface ResponseHandler<T> {
+
+		/**
+		 * @param status the HTTP status code returned by the server.
+		 * @param body the body of the response, may be <code>null</code> if the server sent no content.
+		 * @return the result of handling the response.
+		 * @throws IOException if the response could not be handled.
+		 */
+		T handle(int status, InputStream body) throws IOException;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controller wide registry of the {@link NexusTransport}s, one per Nexus host, that are shared by every
+ * {@link StageClient}.
+ */
+public final class NexusTransports {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NexusTransports.class);
+
+	/** transports keyed by scheme://host:port */
+	private static final Map<String, ThrottledNexusTransport> TRANSPORTS = new HashMap<String, ThrottledNexusTransport>();
+
+	private static NexusConnectionSettings settings = NexusConnectionSettings.DEFAULT;
+
+
+	private NexusTransports() {
+		// static utility
+	}
+
+
+	/**
+	 * Get the shared transport for the host of the given Nexus URL, creating it if required.
+	 * 
+	 * @param nexusURL the URL of the Nexus server.
+	 * @return the transport to use for all requests to that server.
+	 */
+	public static synchronized NexusTransport forURL(URL nexusURL) {
+		String key = getHostKey(nexusURL);
+		ThrottledNexusTransport transport = TRANSPORTS.get(key);
+		if (transport == null) {
+			LOGGER.debug("Creating transport for {} with {}", key, settings);
+			transport = new ThrottledNexusTransport(settings);
+			TRANSPORTS.put(key, transport);
+		}
+		return transport;
+	}
+
+
+	/**
+	 * Update the settings used for the connections. If the settings have changed the existing transports are
+	 * dropped from the registry so that the next {@link #forURL(URL)} creates one with the new settings. Clients
+	 * that already hold a transport (e.g. running releases) keep using it until they are done with it.
+	 * 
+	 * @param newSettings the settings to use from now on.
+	 */
+	public static synchronized void configure(NexusConnectionSettings newSettings) {
+		if (newSettings == null || newSettings.equals(settings)) {
+			return;
+		}
+		settings = newSettings;
+		TRANSPORTS.clear();
+	}
+
+
+	/**
+	 * Forget all transports. Idle keep-alive connections are closed by the JVM.
+	 */
+	public static synchronized void shutdown() {
+		TRANSPORTS.clear();
+	}
+
+
+	public static synchronized NexusConnectionSettings getSettings() {
+		return settings;
+	}
+
+
+	static String getHostKey(URL url) {
+		int port = (url.getPort() == -1) ? url.getDefaultPort() : url.getPort();
+		return url.getProtocol() + "://" + url.getHost().toLowerCase() + ':' + port;
+	}
+}
@@ -0,0 +1,234 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retries Nexus operations that failed for a transient reason, waiting between attempts as given by a
+ * {@link Backoff}. A failure is transient if it is an I/O error, a timeout or a 5xx (or 408/429) response, and
+ * permanent if it is any other HTTP error (e.g. 401) or a {@link StageException#isPermanent() permanent} failure such
+ * as a failed staging rule - those are thrown straight away. Instances are immutable.
+ */
+public class RetryPolicy {
+
+	/** Policy for single requests - a few quick retries to ride out dropped connections and restarts. */
+	public static final RetryPolicy DEFAULT = new RetryPolicy(3, new Backoff(500L, 5000L, 2.0d, 0.25d));
+
+	/** Policy that makes a single attempt. */
+	public static final RetryPolicy NONE = new RetryPolicy(1, new Backoff(0L, 0L, 1.0d, 0.0d));
+
+	private static final Logger log = LoggerFactory.getLogger(RetryPolicy.class);
+
+	private final int maxAttempts;
+	private final Backoff backoff;
+
+
+	/**
+	 * @param maxAttempts the number of attempts, at least 1.
+	 * @param backoff the delays between attempts.
+	 */
+	public RetryPolicy(int maxAttempts, Backoff backoff) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("Invalid number of attempts " + maxAttempts);
+		}
+		this.maxAttempts = maxAttempts;
+		this.backoff = backoff;
+	}
+
+
+	/**
+	 * Perform the operation, retrying transient failures.
+	 * 
+	 * @param description what the operation does, for logging.
+	 * @param breaker the circuit breaker of the Nexus server used by the operation, may be <code>null</code>.
+	 * @param operation the operation to perform.
+	 * @return the value returned by the operation.
+	 * @throws StageException the last failure if it was permanent or all attempts failed.
+	 */
+	public <T> T execute(String description, CircuitBreaker breaker, Operation<T> operation) throws StageException {
+		return execute(description, breaker, operation, null);
+	}
+
+
+	/**
+	 * Perform the operation, retrying transient failures and telling the listener before each retry.
+	 * 
+	 * @see #execute(String, CircuitBreaker, Operation)
+	 */
+	public <T> T execute(String description, CircuitBreaker breaker, Operation<T> operation, Listener listener)
+	      throws StageException {
+		StageException last = null;
+		for (int attempt = 0; attempt < maxAttempts; attempt++) {
+			if (attempt > 0) {
+				long delay = backoff.getDelay(attempt - 1);
+				log.debug("Retrying {} in {}ms after: {}", new Object[] {description, Long.valueOf(delay),
+				                                                        last.getMessage()});
+				if (listener != null) {
+					listener.retrying(attempt, delay, last);
+				}
+				try {
+					Thread.sleep(delay);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new StageException("Interrupted whilst waiting to retry " + description, ex);
+				}
+			}
+			if (breaker != null && !breaker.allowRequest()) {
+				last = new StageException("Not trying to " + description + ", " + breaker + " is open");
+				continue;
+			}
+			try {
+				T result = operation.call();
+				if (breaker != null) {
+					breaker.recordSuccess();
+				}
+				return result;
+			}
+			catch (IOException ex) {
+				StageException failure =
+				      (ex instanceof StageException) ? (StageException) ex : new StageException(ex.getMessage(), ex);
+				boolean transientFailure = isTransient(failure);
+				if (breaker != null) {
+					// any answer from the server, even an error, shows that it is up.
+					if (isNoFreeConnection(failure)) {
+						// the request was never sent, the server is not to blame.
+						breaker.recordNoAnswer();
+					}
+					else if (transientFailure) {
+						breaker.recordFailure();
+					}
+					else {
+						breaker.recordSuccess();
+					}
+				}
+				if (!transientFailure || Thread.currentThread().isInterrupted()) {
+					throw failure;
+				}
+				last = failure;
+			}
+			catch (RuntimeException ex) {
+				if (breaker != null) {
+					breaker.recordNoAnswer();
+				}
+				throw ex;
+			}
+		}
+		throw last;
+	}
+
+
+	private static boolean isNoFreeConnection(Throwable failure) {
+		for (Throwable t = failure; t != null; t = t.getCause()) {
+			if (t instanceof NoFreeConnectionException) {
+				return true;
+			}
+			if (t.getCause() == t) {
+				break;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Classify a failure. The causes are checked in order and the first {@link StageException} that is permanent or
+	 * carries an HTTP status decides, otherwise the failure is transient unless it was caused by an interrupt.
+	 * 
+	 * @return <code>true</code> if retrying the failed operation may succeed.
+	 */
+	public static boolean isTransient(Throwable failure) {
+		for (Throwable t = failure; t != null; t = t.getCause()) {
+			if (t instanceof InterruptedException) {
+				return false;
+			}
+			if (t instanceof InterruptedIOException && !(t instanceof SocketTimeoutException)) {
+				return false;
+			}
+			if (t instanceof StageException) {
+				StageException ex = (StageException) t;
+				if (ex.isPermanent()) {
+					return false;
+				}
+				if (ex.getStatus() != 0) {
+					return isTransientStatus(ex.getStatus());
+				}
+			}
+			if (t.getCause() == t) {
+				break;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * @return <code>true</code> for the HTTP statuses that may go away on their own - server errors, request
+	 *         timeouts and throttling.
+	 */
+	public static boolean isTransientStatus(int status) {
+		return status >= HttpURLConnection.HTTP_INTERNAL_ERROR || status == HttpURLConnection.HTTP_CLIENT_TIMEOUT
+		       || status == 429;
+	}
+
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+
+	public Backoff getBackoff() {
+		return backoff;
+	}
+
+
+	@Override
+	public String toString() {
+		return "RetryPolicy[attempts=" + maxAttempts + ", " + backoff + ']';
+	}
+
+
+	/**
+	 * An operation against Nexus that may be retried.
+	 */
+	public interface Operation<T> {
+
+		T call() throws IOException;
+	}
+
+
+	/**
+	 * Told about every retry, e.g. to report it in the build log.
+	 */
+	public interface Listener {
+
+		/**
+		 * @param attempt the number of the attempt about to be made, starting at 1 for the first retry.
+		 * @param delay the time in milliseconds until the retry.
+		 * @param cause the failure of the previous attempt.
+		 */
+		void retrying(int attempt, long delay, StageException cause);
+	}
+}
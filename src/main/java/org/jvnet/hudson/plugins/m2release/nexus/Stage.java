@@ -31,6 +31,15 @@ public class Stage {
 	private String profileID;
 	private String stageID;
 
+	/** The user that created the stage - may be <code>null</code> if not known. */
+	private String userID;
+
+	/** The IP address the stage was created from - may be <code>null</code> if not known. */
+	private String ipAddress;
+
+	/** The description of the stage - may be <code>null</code> if not known. */
+	private String description;
+
 
 	/**
 	 * Construct a new Stage to represent a Nexus Professional Staging repository.
@@ -45,6 +54,24 @@ public Stage(String profileID, String stageID) {
 	}
 
 
+	/**
+	 * Construct a new Stage to represent a Nexus Professional Staging repository including the details of who
+	 * created it.
+	 * 
+	 * @param profileID the id of the staging profile that this stage is associated with.
+	 * @param stageID the id for this stage repository.
+	 * @param userID the user that created the stage.
+	 * @param ipAddress the IP address that the stage was created from.
+	 * @param description the description of the stage.
+	 */
+	public Stage(String profileID, String stageID, String userID, String ipAddress, String description) {
+		this(profileID, stageID);
+		this.userID = userID;
+		this.ipAddress = ipAddress;
+		this.description = description;
+	}
+
+
 	/**
 	 * @return the profileID that this stage is associated with.
 	 */
@@ -64,6 +91,30 @@ public String getStageID() {
 	}
 
 
+	/**
+	 * @return the user that created this stage or <code>null</code> if not known.
+	 */
+	public String getUserID() {
+		return userID;
+	}
+
+
+	/**
+	 * @return the IP address this stage was created from or <code>null</code> if not known.
+	 */
+	public String getIpAddress() {
+		return ipAddress;
+	}
+
+
+	/**
+	 * @return the description of this stage or <code>null</code> if not known.
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+
 	@Override
 	public String toString() {
 		return String.format("Stage[profileId=%s, stageId=%s]", profileID, stageID);
@@ -27,13 +27,13 @@
 import java.net.URL;
 
 public enum StageAction {
-	CLOSE("service/local/staging/profiles/%1$s/finish"),
+	CLOSE("service/local/staging/profiles/%1$s/finish", "service/local/staging/bulk/close"),
 	/** not yet supported. */
-	PROMOTE("service/local/staging/profiles/%1$s/promote"),
+	PROMOTE("service/local/staging/profiles/%1$s/promote", "service/local/staging/bulk/promote"),
 	// release is just a promote without a target profile
-	RELEASE("service/local/staging/profiles/%1$s/promote"),
+	RELEASE("service/local/staging/profiles/%1$s/promote", "service/local/staging/bulk/promote"),
 	//START("service/local/staging/profiles/%1$s/start"),
-	DROP("service/local/staging/profiles/%1$s/drop");
+	DROP("service/local/staging/profiles/%1$s/drop", "service/local/staging/bulk/drop");
 	
 	/** 
 	 * Template for the URL for this action.
@@ -42,13 +42,18 @@ public enum StageAction {
 	 * %3$ is stage.getStageID()
 	 */
 	private String urlTemplate;
+
+	/** Path of the bulk staging API for this action, relative to the base URL. */
+	private String bulkPath;
 	
 	/**
 	 * @param urlTemplate the template for the URL.
+	 * @param bulkPath the path for the bulk version of the action.
 	 * @see #urlTemplate
 	 */
-	private StageAction(String urlTemplate) {
+	private StageAction(String urlTemplate, String bulkPath) {
 		this.urlTemplate = urlTemplate;
+		this.bulkPath = bulkPath;
 	}
 	
 	/**
@@ -61,5 +66,15 @@ private StageAction(String urlTemplate) {
 	public URL getURL(URL baseURL, Stage stage) throws MalformedURLException {
 		return new URL(baseURL, String.format(urlTemplate, stage.getProfileID(), stage.getStageID()));
 	}
+
+	/**
+	 * Get the URL for performing this action on several stages at once.
+	 * @param baseURL the URL to the base of the Nexus server
+	 * @return The URL for the bulk action
+	 * @throws MalformedURLException if the URL is invalid
+	 */
+	public URL getBulkURL(URL baseURL) throws MalformedURLException {
+		return new URL(baseURL, bulkPath);
+	}
 	
 }
\ No newline at end of file
@@ -23,17 +23,30 @@
  */
 package org.jvnet.hudson.plugins.m2release.nexus;
 
-import hudson.util.IOUtils;
-
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
@@ -45,6 +58,8 @@
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import hudson.util.DaemonThreadFactory;
+
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,6 +77,23 @@
  */
 public class StageClient {
 
+	/** Default maximum time in milliseconds to wait for a staging action to complete. */
+	public static final long DEFAULT_ACTION_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+
+	/** Upper bound on the number of threads used (by all builds) to probe stages for a GAV. */
+	private static final int MAX_LOOKUP_THREADS = 32;
+
+	/** Executor shared by all clients for probing stages concurrently. */
+	private static final ExecutorService LOOKUP_EXECUTOR;
+
+	static {
+		ThreadPoolExecutor executor =
+		      new ThreadPoolExecutor(MAX_LOOKUP_THREADS, MAX_LOOKUP_THREADS, 60L, TimeUnit.SECONDS,
+		                             new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
+		executor.allowCoreThreadTimeOut(true);
+		LOOKUP_EXECUTOR = executor;
+	}
+
 	private Logger log = LoggerFactory.getLogger(StageClient.class);
 
 	/** XPath instance for running xpath queries */
@@ -76,8 +108,56 @@ public class StageClient {
 	/** The password passed to Nexus for authentication. */
 	private String password;
 
+	/** The transport used to send requests to Nexus. */
+	private NexusTransport transport;
+
+	/** Maximum number of stages probed at the same time when looking for a GAV - 1 probes them serially. */
+	private int lookupConcurrency = 1;
+
+	/** If all stages should be probed so that multiple matching stages can be reported. */
+	private boolean detectDuplicateStages = true;
+
+	/** Maximum time in milliseconds to wait for a staging action to complete, 0 to wait forever. */
+	private long actionTimeout = DEFAULT_ACTION_TIMEOUT;
+
+	/** The backoff between polls whilst waiting for a staging action to complete. */
+	private Backoff actionBackoff = Backoff.DEFAULT;
+
+	/** The policy for retrying requests that read from the server. */
+	private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
+	/** Counts and latencies of the requests sent by this client. */
+	private volatile NexusMetrics metrics = new NexusMetrics();
+
+	/** Statistics of the most recent wait for a staging action. */
+	private volatile WaitStatistics lastWaitStatistics;
+
 	private transient String nexusVersion;
 
+	/** Handler for responses where we are only interested in the HTTP status. */
+	private static final NexusTransport.ResponseHandler<Integer> STATUS_HANDLER =
+	      new NexusTransport.ResponseHandler<Integer>() {
+
+		      public Integer handle(int status, InputStream body) {
+			      return Integer.valueOf(status);
+		      }
+	      };
+
+	/**
+	 * Handler for probes that returns the HTTP status, failing on statuses that are worth retrying. A 404 is an
+	 * expected answer of a probe and not counted as a failed request.
+	 */
+	private static final NexusTransport.ResponseHandler<Integer> PROBE_HANDLER =
+	      new NexusTransport.ResponseHandler<Integer>() {
+
+		      public Integer handle(int status, InputStream body) throws IOException {
+			      if (RetryPolicy.isTransientStatus(status)) {
+				      throw new StageException("Server returned HTTP status " + status, status);
+			      }
+			      return Integer.valueOf(status);
+		      }
+	      };
+
 	/**
 	 * Create a new StageClient to handle communicating to a Nexus Pro server Staging suite.
 	 * 
@@ -86,9 +166,24 @@ public class StageClient {
 	 * @param password password for the user.
 	 */
 	public StageClient(URL nexusURL, String username, String password) {
+		this(nexusURL, username, password, NexusTransports.forURL(nexusURL));
+	}
+
+
+	/**
+	 * Create a new StageClient to handle communicating to a Nexus Pro server Staging suite using the given
+	 * transport.
+	 * 
+	 * @param nexusURL the base URL for the Nexus server.
+	 * @param username user name to use with staging privileges.
+	 * @param password password for the user.
+	 * @param transport the transport used to send requests to the server.
+	 */
+	public StageClient(URL nexusURL, String username, String password, NexusTransport transport) {
 		this.nexusURL = nexusURL;
 		this.username = username;
 		this.password = password;
+		this.transport = transport;
 		// XPathFactory is not thread safe.
 		XPathFactory factory;
 		synchronized (XPathFactory.class) {
@@ -112,12 +207,191 @@ public StageClient(URL nexusURL, String username, String password) {
 	public Stage getOpenStageID(String group, String artifact, String version) throws StageException {
 		log.debug("Looking for stage repo for {}:{}:{}", new Object[] {group, artifact, version});
 		List<Stage> stages = getOpenStageIDs();
+		return findStageForGAV(stages, group, artifact, version);
+	}
+
+
+	/**
+	 * Get the ID for the Staging repository that holds the specified GAV, narrowing the candidate stages before
+	 * probing them. The candidates are tried in the following order, falling back to the next if no match was
+	 * found:
+	 * <ol>
+	 * <li>the stage with the given <code>stageIDHint</code> (e.g. recorded whilst deploying)</li>
+	 * <li>the open stages of the staging profiles that Nexus selects for the GAV, preferring the stages that were
+	 * created by our user</li>
+	 * <li>every open stage on the server (see {@link #getOpenStageID(String, String, String)})</li>
+	 * </ol>
+	 * 
+	 * @param group groupID to search for.
+	 * @param artifact artifactID to search for.
+	 * @param version version of the group/artifact to search for - may be <code>null</code>.
+	 * @param stageIDHint the ID of the stage that is expected to hold the GAV - may be <code>null</code>.
+	 * @return the stage or null if no matching stage was found.
+	 * @throws StageException if any issue occurred whilst locating the open stage.
+	 */
+	public Stage findOpenStage(String group, String artifact, String version, String stageIDHint)
+	      throws StageException {
+		Stage stage = findOpenStageInProfiles(group, artifact, version,
+		                                      stageIDHint == null ? Collections.<String> emptyList()
+		                                                          : Collections.singletonList(stageIDHint));
+		if (stage != null) {
+			return stage;
+		}
+		return getOpenStageID(group, artifact, version);
+	}
+
+
+	/**
+	 * Get the ID for the Staging repository that holds the specified GAV from the hinted stages or the open stages
+	 * of the staging profiles that Nexus selects for the GAV, as {@link #findOpenStage(String, String, String, String)}
+	 * does, but without falling back to every open stage on the server.
+	 * 
+	 * @param group groupID to search for.
+	 * @param artifact artifactID to search for.
+	 * @param version version of the group/artifact to search for - may be <code>null</code>.
+	 * @param stageIDHints the IDs of the stages that may hold the GAV, tried first.
+	 * @return the stage or null if no matching stage was found.
+	 * @throws StageException if any issue occurred whilst locating the open stage.
+	 */
+	public Stage findOpenStageInProfiles(String group, String artifact, String version,
+	                                     Collection<String> stageIDHints) throws StageException {
+		for (String stageIDHint : stageIDHints) {
+			Stage hinted = getStage(stageIDHint);
+			if (hinted != null && checkStageForGAV(hinted, group, artifact, version)) {
+				log.debug("Found stage repo {} for {}:{}:{} from hint", new Object[] {hinted, group, artifact, version});
+				return hinted;
+			}
+			log.debug("Hinted stage {} is not open or does not contain {}:{}", new Object[] {stageIDHint, group, artifact});
+		}
+		List<String> profileIDs = getStagingProfileIDs(group, artifact, version);
+		for (String profileID : profileIDs) {
+			List<Stage> candidates = getOpenStageIDs(profileID);
+			List<Stage> ours = filterStagesByUser(candidates, username);
+			Stage stage = findStageForGAV(ours.isEmpty() ? candidates : ours, group, artifact, version);
+			if (stage == null && !ours.isEmpty() && ours.size() < candidates.size()) {
+				candidates.removeAll(ours);
+				stage = findStageForGAV(candidates, group, artifact, version);
+			}
+			if (stage != null) {
+				return stage;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Get the stage with the given ID if it is open.
+	 * 
+	 * @param stageID the ID of the stage.
+	 * @return the stage, or <code>null</code> if there is no such open stage.
+	 * @throws StageException if any issue occurred whilst querying the stage.
+	 */
+	public Stage getStage(String stageID) throws StageException {
+		List<Stage> stages;
+		try {
+			stages = getResponse(getRepositoryURL(new Stage(null, stageID)), StagingResponseParser.OPEN_STAGES);
+		}
+		catch (StageException ex) {
+			log.debug("Could not retrieve stage " + stageID, ex);
+			return null;
+		}
+		return stages.isEmpty() ? null : stages.get(0);
+	}
+
+
+	/**
+	 * Get the IDs of the staging profiles that Nexus would use to stage the given GAV.
+	 * 
+	 * @param group the groupID.
+	 * @param artifact the artifactID.
+	 * @param version the version - may be <code>null</code> in which case no profiles are returned.
+	 * @return the IDs of the matching profiles, empty if they could not be determined.
+	 */
+	public List<String> getStagingProfileIDs(String group, String artifact, String version) {
+		List<String> profileIDs = new ArrayList<String>();
+		if (version == null) {
+			return profileIDs;
+		}
+		try {
+			URL url =
+			      new URL(nexusURL, "service/local/staging/profile_evaluate?t=maven2&g=" + URLEncoder.encode(group, "UTF-8")
+			                        + "&a=" + URLEncoder.encode(artifact, "UTF-8") + "&v="
+			                        + URLEncoder.encode(version, "UTF-8"));
+			profileIDs.addAll(getResponse(url, StagingResponseParser.PROFILE_IDS));
+		}
+		catch (IOException ex) {
+			// older servers or users without the privilege - we will fall back to searching all stages.
+			log.debug("Could not evaluate the staging profile for " + group + ':' + artifact, ex);
+		}
+		return profileIDs;
+	}
+
+
+	/**
+	 * Select the stages that were created by the given user.
+	 * 
+	 * @param stages the stages to filter.
+	 * @param userID the user.
+	 * @return a new list containing the stages created by <code>userID</code>.
+	 */
+	protected List<Stage> filterStagesByUser(List<Stage> stages, String userID) {
+		List<Stage> filtered = new ArrayList<Stage>();
+		for (Stage stage : stages) {
+			if (userID != null && userID.equals(stage.getUserID())) {
+				filtered.add(stage);
+			}
+		}
+		return filtered;
+	}
+
+
+	/**
+	 * Set the maximum number of stages that are probed concurrently when looking for the stage that holds a GAV.
+	 * 
+	 * @param lookupConcurrency the number of concurrent probes, <code>1</code> (or less) to probe the stages one at
+	 *           a time.
+	 */
+	public void setLookupConcurrency(int lookupConcurrency) {
+		this.lookupConcurrency = Math.max(1, Math.min(lookupConcurrency, MAX_LOOKUP_THREADS));
+	}
+
+
+	/**
+	 * Set whether the lookup for a GAV should probe every open stage so that multiple matching stages can be
+	 * warned about, or should stop at the first match.
+	 * 
+	 * @param detectDuplicateStages <code>true</code> to probe all stages.
+	 */
+	public void setDetectDuplicateStages(boolean detectDuplicateStages) {
+		this.detectDuplicateStages = detectDuplicateStages;
+	}
+
+
+	/**
+	 * Find the stage in the given list that holds the specified GAV.
+	 * 
+	 * @param stages the candidate stages.
+	 * @param group groupID to search for.
+	 * @param artifact artifactID to search for.
+	 * @param version version of the group/artifact to search for - may be <code>null</code>.
+	 * @return the matching stage or <code>null</code> if none of the stages match.
+	 * @throws StageException if any issue occurred whilst probing the stages.
+	 */
+	protected Stage findStageForGAV(List<Stage> stages, String group, String artifact, String version)
+	      throws StageException {
+		if (lookupConcurrency > 1 && stages.size() > 1) {
+			return findStageForGAVConcurrently(stages, group, artifact, version);
+		}
 		Stage stage = null;
 		for (Stage testStage : stages) {
 			if (checkStageForGAV(testStage, group, artifact, version)) {
 				if (stage == null) {
 					stage = testStage;
 					log.debug("Found stage repo {} for {}:{}:{}", new Object[] {stage, group, artifact, version});
+					if (!detectDuplicateStages) {
+						break;
+					}
 				}
 				else {
 					// multiple stages match!!!
@@ -130,6 +404,84 @@ public Stage getOpenStageID(String group, String artifact, String version) throw
 	}
 
 
+	/**
+	 * Probe the stages for the GAV using up to {@link #lookupConcurrency} requests at a time.
+	 */
+	private Stage findStageForGAVConcurrently(List<Stage> stages, final String group, final String artifact,
+	                                          final String version) throws StageException {
+		log.debug("Probing {} stages with {} concurrent requests", Integer.toString(stages.size()),
+		          Integer.toString(lookupConcurrency));
+		CompletionService<Stage> completionService = new ExecutorCompletionService<Stage>(LOOKUP_EXECUTOR);
+		List<Future<Stage>> submitted = new ArrayList<Future<Stage>>();
+		Iterator<Stage> pending = stages.iterator();
+		int inFlight = 0;
+		Stage stage = null;
+		try {
+			while (inFlight < lookupConcurrency && pending.hasNext()) {
+				submitted.add(completionService.submit(createGAVProbe(pending.next(), group, artifact, version)));
+				inFlight++;
+			}
+			while (inFlight > 0) {
+				Stage match = getProbeResult(completionService.take());
+				inFlight--;
+				if (match != null) {
+					if (stage == null) {
+						stage = match;
+						log.debug("Found stage repo {} for {}:{}:{}", new Object[] {stage, group, artifact, version});
+						if (!detectDuplicateStages) {
+							break;
+						}
+					}
+					else {
+						// multiple stages match!!!
+						log.warn("Found a matching stage ({}) for {}:{} but already found a matchine one ({})",
+						         new Object[] {match, group, artifact, stage});
+					}
+				}
+				if (pending.hasNext()) {
+					submitted.add(completionService.submit(createGAVProbe(pending.next(), group, artifact, version)));
+					inFlight++;
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new StageException(ex);
+		}
+		finally {
+			// stop any probes that are no longer needed.
+			for (Future<Stage> future : submitted) {
+				future.cancel(true);
+			}
+		}
+		return stage;
+	}
+
+
+	private Callable<Stage> createGAVProbe(final Stage stage, final String group, final String artifact,
+	                                       final String version) {
+		return new Callable<Stage>() {
+
+			public Stage call() throws StageException {
+				return checkStageForGAV(stage, group, artifact, version) ? stage : null;
+			}
+		};
+	}
+
+
+	private Stage getProbeResult(Future<Stage> future) throws StageException, InterruptedException {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof StageException) {
+				throw (StageException) ex.getCause();
+			}
+			throw new StageException(ex.getCause());
+		}
+	}
+
+
 	/**
 	 * Close the specified stage.
 	 * 
@@ -140,47 +492,132 @@ public void closeStage(Stage stage, String description) throws StageException {
 		performStageAction(StageAction.CLOSE, stage, description);
 		if (isAsyncClose()) {
 			waitForActionToComplete(stage);
-			// check the action completed successfully and no rules failed.
-			URL url = getActivityURL(stage);
-			Document doc = getDocument(url);
-			// last stagingActivity that was a close
-			String xpathExpr = "(/list/stagingActivity[name='close'])[last()]";
-			Node lastCloseNode = (Node) evaluateXPath(xpathExpr, doc, XPathConstants.NODE);
-			if (lastCloseNode == null) {
-				throw new StageException("Stage activity completed but no close action was recorded!");
-			}
-			Node closed =
-			      (Node) evaluateXPath("events/stagingActivityEvent[name='repositoryClosed']", lastCloseNode,
-			                           XPathConstants.NODE);
-			if (closed != null) {
-				// we have successfully closed the repository
-				return;
-			}
-			Node failed =
-			      (Node) evaluateXPath("events/stagingActivityEvent[name='repositoryCloseFailed']",
-			                           lastCloseNode, XPathConstants.NODE);
-			if (failed == null) {
-				throw new StageException(
-				                         "Close stage action was signalled as completed, but was not recorded as either failed or succeeded!");
-			}
-			StringBuilder failureMessage =
-			      new StringBuilder("Closing stage ").append(stage.getStageID()).append(" failed.\n");
-			String cause =
-			      (String) evaluateXPath("properties/stagingProperty[name='cause']/value", failed,
-			                             XPathConstants.STRING);
-			failureMessage.append('\t').append(cause);
-			NodeList failedRules =
-			      (NodeList) evaluateXPath("events/stagingActivityEvent[name='ruleFailed']/properties/stagingProperty[name='failureMessage']/value",
-			                               lastCloseNode, XPathConstants.NODESET);
-			for (int i = 0; i < failedRules.getLength(); i++) {
-				failureMessage.append("\n\t");
-				failureMessage.append(failedRules.item(i).getTextContent());
-			}
-			throw new StageException(failureMessage.toString());
+			checkCloseSucceeded(stage);
 		}
 	}
 
 
+	/**
+	 * Close the specified stages with a single bulk request and wait once for all of them to be closed. Servers
+	 * that do not support asynchronous staging actions have the stages closed one at a time.
+	 * 
+	 * @param stages the stages to close.
+	 * @param description the description for the closed stages.
+	 * @throws StageException if any issue occurred whilst closing the stages - the message lists every stage
+	 *            that failed to close.
+	 */
+	public void closeStages(Collection<Stage> stages, String description) throws StageException {
+		if (stages.isEmpty()) {
+			return;
+		}
+		if (stages.size() == 1 || !isAsyncClose()) {
+			for (Stage stage : stages) {
+				closeStage(stage, description);
+			}
+			return;
+		}
+		performBulkStageAction(StageAction.CLOSE, stages, description);
+		waitForActionsToComplete(stages);
+		StringBuilder failures = new StringBuilder();
+		boolean permanent = false;
+		for (Stage stage : stages) {
+			try {
+				checkCloseSucceeded(stage);
+			}
+			catch (StageException ex) {
+				if (failures.length() > 0) {
+					failures.append('\n');
+				}
+				failures.append(ex.getMessage());
+				permanent |= ex.isPermanent();
+			}
+		}
+		if (failures.length() > 0) {
+			throw new StageException(failures.toString(), permanent);
+		}
+	}
+
+
+	/**
+	 * Check the activity of a stage that has finished transitioning to see if the close succeeded.
+	 * 
+	 * @param stage the stage that was closed.
+	 * @throws StageException if the close failed (with the cause and failed rules as the message) or the activity
+	 *            could not be retrieved.
+	 */
+	private void checkCloseSucceeded(Stage stage) throws StageException {
+		// check the action completed successfully and no rules failed.
+		URL url = getActivityURL(stage);
+		// last stagingActivity that was a close
+		StagingResponseParser.CloseActivity lastClose =
+		      getResponse(url, StagingResponseParser.LAST_CLOSE_ACTIVITY);
+		if (lastClose == null) {
+			throw new StageException("Stage activity completed but no close action was recorded!");
+		}
+		if (lastClose.isClosed()) {
+			// we have successfully closed the repository
+			return;
+		}
+		if (!lastClose.isFailed()) {
+			throw new StageException(
+			                         "Close stage action was signalled as completed, but was not recorded as either failed or succeeded!");
+		}
+		StringBuilder failureMessage =
+		      new StringBuilder("Closing stage ").append(stage.getStageID()).append(" failed.\n");
+		failureMessage.append('\t').append(lastClose.getCause());
+		for (String failedRule : lastClose.getRuleFailures()) {
+			failureMessage.append("\n\t");
+			failureMessage.append(failedRule);
+		}
+		// the rules will fail again for the same content, closing the stage again can not help.
+		throw new StageException(failureMessage.toString(), true);
+	}
+
+
+	/**
+	 * Drop the specified stages with a single bulk request.
+	 * 
+	 * @param stages the stages to drop.
+	 * @throws StageException if any issue occurred whilst dropping the stages.
+	 */
+	public void dropStages(Collection<Stage> stages) throws StageException {
+		if (stages.isEmpty()) {
+			return;
+		}
+		if (stages.size() == 1 || !isAsyncClose()) {
+			for (Stage stage : stages) {
+				dropStage(stage);
+			}
+			return;
+		}
+		performBulkStageAction(StageAction.DROP, stages, null);
+		// no need to wait for this to complete as there is no way to tell!
+	}
+
+
+	/**
+	 * Release the specified stages into their default repositories with a single bulk request and wait once for
+	 * all of them to be released. This does not drop the stage repositories after a successful release.
+	 * 
+	 * @param stages the stages to release.
+	 * @param description release description.
+	 * @throws StageException if any issue occurred whilst releasing the stages.
+	 */
+	public void releaseStages(Collection<Stage> stages, String description) throws StageException {
+		if (stages.isEmpty()) {
+			return;
+		}
+		if (stages.size() == 1 || !isAsyncClose()) {
+			for (Stage stage : stages) {
+				releaseStage(stage, description);
+			}
+			return;
+		}
+		performBulkStageAction(StageAction.RELEASE, stages, description);
+		waitForActionsToComplete(stages);
+	}
+
+
 	/**
 	 * Drop the stage from Nexus staging.
 	 * 
@@ -237,50 +674,323 @@ public void promoteStage(Stage stage) throws StageException {
 
 
 	/**
-	 * Completion of the stage action is asynchronous - so poll until the action completed.
+	 * Completion of the stage action is asynchronous - so poll until the action completed. The polls back off
+	 * exponentially (see {@link #setActionBackoff(Backoff)}) and the wait is abandoned once the action timeout
+	 * has passed or the thread is interrupted (e.g. the build was aborted). The statistics of the wait are
+	 * available from {@link #getLastWaitStatistics()} afterwards.
 	 * 
 	 * @param stage the stage to wait until the previous action is completed.
-	 * @throws StageException
+	 * @throws StageException if the action did not complete in time, the wait was interrupted or the stage could
+	 *            not be polled.
 	 */
 	protected void waitForActionToComplete(Stage stage) throws StageException {
 		log.debug("Waiting for {} to finish transitioning.", stage);
-		int i = 0;
-		boolean transitioning = false;
+		StageTransitionWatcher watcher = StageTransitionWatcher.getInstance();
+		if (watcher != null) {
+			waitForActionsToComplete(watcher, Collections.singletonList(stage));
+			return;
+		}
+		final long start = System.currentTimeMillis();
+		final long deadline = (actionTimeout > 0) ? start + actionTimeout : Long.MAX_VALUE;
+		int polls = 0;
+		long totalPollTime = 0L;
+		long maxPollTime = 0L;
 		try {
 			final URL activityUrl = getRepositoryURL(stage);
-			do {
-				Document doc = getDocument(activityUrl);
-				String status =
-				      (String) evaluateXPath("/stagingProfileRepository/transitioning", doc,
-				                             XPathConstants.STRING);
-				transitioning = Boolean.valueOf(status).booleanValue();
-				if (transitioning) {
-					i++;
-					Thread.sleep(500L);
-					if (i % 100 == 0) {
-						log.debug("Still waiting for {} to finish transitioning.", stage);
+			while (true) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				long pollStart = System.currentTimeMillis();
+				boolean transitioning = isTransitioning(activityUrl);
+				long pollTime = System.currentTimeMillis() - pollStart;
+				polls++;
+				totalPollTime += pollTime;
+				maxPollTime = Math.max(maxPollTime, pollTime);
+				if (!transitioning) {
+					break;
+				}
+				long now = System.currentTimeMillis();
+				if (now >= deadline) {
+					throw new StageException("Timed out after " + (now - start) + "ms waiting for " + stage
+					                         + " to finish transitioning.");
+				}
+				Thread.sleep(Math.min(actionBackoff.getDelay(polls - 1), deadline - now));
+				if (polls % 20 == 0) {
+					log.debug("Still waiting for {} to finish transitioning.", stage);
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			// let the caller (e.g. the build) see that it has been interrupted.
+			Thread.currentThread().interrupt();
+			throw new StageException("Interrupted whilst waiting for " + stage + " to finish transitioning.", ex);
+		}
+		finally {
+			lastWaitStatistics =
+			      new WaitStatistics(polls, totalPollTime, maxPollTime, System.currentTimeMillis() - start);
+			log.debug("Finished waiting for {}: {}", stage, lastWaitStatistics);
+		}
+	}
+
+
+	/**
+	 * Completion of a bulk stage action is asynchronous - so wait until all the stages have finished
+	 * transitioning. Each poll checks all the stages with a single request, otherwise this behaves like
+	 * {@link #waitForActionToComplete(Stage)}.
+	 * 
+	 * @param stages the stages to wait for.
+	 * @throws StageException if the actions did not complete in time, the wait was interrupted or the stages
+	 *            could not be polled.
+	 */
+	protected void waitForActionsToComplete(Collection<Stage> stages) throws StageException {
+		if (stages.size() == 1) {
+			waitForActionToComplete(stages.iterator().next());
+			return;
+		}
+		log.debug("Waiting for {} to finish transitioning.", stages);
+		StageTransitionWatcher watcher = StageTransitionWatcher.getInstance();
+		if (watcher != null) {
+			waitForActionsToComplete(watcher, stages);
+			return;
+		}
+		final long start = System.currentTimeMillis();
+		final long deadline = (actionTimeout > 0) ? start + actionTimeout : Long.MAX_VALUE;
+		List<Stage> pending = new ArrayList<Stage>(stages);
+		int polls = 0;
+		long totalPollTime = 0L;
+		long maxPollTime = 0L;
+		try {
+			while (true) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				long pollStart = System.currentTimeMillis();
+				Map<String, Boolean> transitions = getStageTransitions();
+				for (Iterator<Stage> it = pending.iterator(); it.hasNext();) {
+					Stage stage = it.next();
+					Boolean transitioning = transitions.get(stage.getStageID());
+					if (transitioning == null) {
+						transitioning = Boolean.valueOf(isTransitioning(stage));
+					}
+					if (!transitioning.booleanValue()) {
+						it.remove();
 					}
-					// TODO should we ever time out?
 				}
-			} while (transitioning);
+				long pollTime = System.currentTimeMillis() - pollStart;
+				polls++;
+				totalPollTime += pollTime;
+				maxPollTime = Math.max(maxPollTime, pollTime);
+				if (pending.isEmpty()) {
+					break;
+				}
+				long now = System.currentTimeMillis();
+				if (now >= deadline) {
+					throw new StageException("Timed out after " + (now - start) + "ms waiting for " + pending
+					                         + " to finish transitioning.");
+				}
+				Thread.sleep(Math.min(actionBackoff.getDelay(polls - 1), deadline - now));
+			}
 		}
 		catch (InterruptedException ex) {
-			throw new StageException(ex);
+			// let the caller (e.g. the build) see that it has been interrupted.
+			Thread.currentThread().interrupt();
+			throw new StageException("Interrupted whilst waiting for " + pending + " to finish transitioning.", ex);
+		}
+		finally {
+			lastWaitStatistics =
+			      new WaitStatistics(polls, totalPollTime, maxPollTime, System.currentTimeMillis() - start);
+			log.debug("Finished waiting for {}: {}", stages, lastWaitStatistics);
+		}
+	}
+
+
+	/**
+	 * Wait for the stages to finish transitioning by registering them with the shared watcher rather than
+	 * polling for them on this thread.
+	 */
+	private void waitForActionsToComplete(StageTransitionWatcher watcher, Collection<Stage> stages)
+	      throws StageException {
+		final long start = System.currentTimeMillis();
+		List<StageTransitionWatcher.Watch> watches = new ArrayList<StageTransitionWatcher.Watch>();
+		StageTransitionWatcher.Watch current = null;
+		try {
+			for (Stage stage : stages) {
+				watches.add(watcher.watch(this, stage));
+			}
+			for (StageTransitionWatcher.Watch watch : watches) {
+				current = watch;
+				if (actionTimeout > 0) {
+					long remaining = start + actionTimeout - System.currentTimeMillis();
+					watch.get(Math.max(0L, remaining), TimeUnit.MILLISECONDS);
+				}
+				else {
+					watch.get();
+				}
+			}
+		}
+		catch (TimeoutException ex) {
+			throw new StageException("Timed out after " + actionTimeout + "ms waiting for " + current.getStage()
+			                         + " to finish transitioning.");
+		}
+		catch (InterruptedException ex) {
+			// let the caller (e.g. the build) see that it has been interrupted.
+			Thread.currentThread().interrupt();
+			throw new StageException("Interrupted whilst waiting for " + current.getStage()
+			                         + " to finish transitioning.", ex);
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof StageException) {
+				throw (StageException) ex.getCause();
+			}
+			throw new StageException(ex.getCause());
+		}
+		finally {
+			// stop watching if we gave up waiting.
+			WaitStatistics longest = null;
+			for (StageTransitionWatcher.Watch watch : watches) {
+				watch.cancel(false);
+				WaitStatistics statistics = watch.getStatistics();
+				if (longest == null || statistics.getPolls() > longest.getPolls()) {
+					longest = statistics;
+				}
+			}
+			long waited = System.currentTimeMillis() - start;
+			lastWaitStatistics = longest == null ? new WaitStatistics(0, 0L, 0L, waited)
+			      : new WaitStatistics(longest.getPolls(), longest.getAveragePollTime() * longest.getPolls(),
+			                           longest.getMaxPollTime(), waited);
+			log.debug("Finished waiting for {}: {}", stages, lastWaitStatistics);
 		}
+	}
+
+
+	/**
+	 * Check if the stage is currently transitioning (i.e. a staging action is in progress).
+	 * 
+	 * @param stage the stage to check.
+	 * @return <code>true</code> if the stage is transitioning.
+	 * @throws StageException if the stage could not be queried.
+	 */
+	public boolean isTransitioning(Stage stage) throws StageException {
+		return isTransitioning(getRepositoryURL(stage));
+	}
 
+
+	private boolean isTransitioning(URL repositoryURL) throws StageException {
+		return getResponse(repositoryURL, StagingResponseParser.TRANSITIONING).booleanValue();
+	}
+
+
+	/**
+	 * Get which of the staging repositories visible to this user are transitioning with a single request.
+	 * 
+	 * @return a map of stage ID to <code>true</code> if the stage is transitioning. Stages for which the server
+	 *         did not report the state are not included.
+	 * @throws StageException if the staging repositories could not be retrieved.
+	 */
+	public Map<String, Boolean> getStageTransitions() throws StageException {
+		try {
+			URL url = new URL(nexusURL, "service/local/staging/profile_repositories");
+			return getResponse(url, StagingResponseParser.STAGE_TRANSITIONS);
+		}
+		catch (MalformedURLException ex) {
+			throw createStageExceptionForIOException(nexusURL, ex);
+		}
+	}
+
+
+	/**
+	 * @return the key of the server and user that this client talks to - stages of clients with the same key are
+	 *         visible to each other.
+	 */
+	String getWatchKey() {
+		return nexusURL.toExternalForm() + '|' + username;
 	}
 
 
 	/**
-	 * Check if we have the required permissions for nexus staging.
+	 * Set the maximum time to wait for a staging action to complete.
+	 * 
+	 * @param actionTimeout the timeout in milliseconds, 0 or less to wait forever.
+	 */
+	public void setActionTimeout(long actionTimeout) {
+		this.actionTimeout = actionTimeout;
+	}
+
+
+	/**
+	 * Set the backoff between polls whilst waiting for a staging action to complete.
+	 * 
+	 * @param actionBackoff the backoff to use.
+	 */
+	public void setActionBackoff(Backoff actionBackoff) {
+		this.actionBackoff = actionBackoff;
+	}
+
+
+	/**
+	 * Set the policy for retrying requests that only read from the server (GET and HEAD). Staging actions are never
+	 * retried by the client as a repeated POST may fail or act twice - callers retry the whole operation instead.
+	 * 
+	 * @param retryPolicy the policy to use.
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+
+	/**
+	 * Get the statistics of the most recent wait for a staging action to complete.
+	 * 
+	 * @return the statistics or <code>null</code> if this client has not waited for any action.
+	 */
+	public WaitStatistics getLastWaitStatistics() {
+		return lastWaitStatistics;
+	}
+
+
+	/**
+	 * Get the counts and latencies of the requests sent by this client, per endpoint. Every attempt of a retried
+	 * request is counted.
+	 */
+	public NexusMetrics getMetrics() {
+		return metrics;
+	}
+
+
+	/**
+	 * Record the following requests into the given metrics, used by the {@link StageTransitionWatcher} to attribute
+	 * its polls to the builds it polls for.
+	 */
+	void setMetrics(NexusMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+
+	/**
+	 * Create the client the {@link StageTransitionWatcher} polls with for the server and user of this client. It
+	 * uses the current transport of the server and does not retry, the watcher polls again on its next tick.
+	 */
+	StageClient createWatchClient() {
+		StageClient client = new StageClient(nexusURL, username, password);
+		client.setRetryPolicy(RetryPolicy.NONE);
+		return client;
+	}
+
+
+	/**
+	 * Check if we have the required permissions for nexus staging. A successful check is remembered in the
+	 * {@link NexusCapabilityCache} for a while, so later checks by any client do not need to ask the server.
 	 * 
-	 * @return
 	 * @throws StageException if an exception occurred whilst checking the authorisation.
 	 */
 	public void checkAuthentication() throws StageException {
+		if (NexusCapabilityCache.isAuthenticated(nexusURL, username)) {
+			return;
+		}
 		try {
 			URL url = new URL(nexusURL, "service/local/status?perms=1");
-			Document doc = getDocument(url);
+			Map<String, String> permissions = getResponse(url, StagingResponseParser.PERMISSIONS);
 
 			/*
 			 * check for the following permissions:
@@ -290,18 +1000,18 @@ public void checkAuthentication() throws StageException {
 			                    "nexus:stagingpromote", "nexus:stagingdrop"};
 
 			for (String perm : requiredPerms) {
-				String expression = "//clientPermissions/permissions/permission[id=\"" + perm + "\"]/value";
-				Node node = (Node) evaluateXPath(expression, doc, XPathConstants.NODE);
-				if (node == null) {
+				String value = permissions.get(perm);
+				if (value == null) {
 					throw new StageException(
 					                         "Invalid reponse from server - is the URL a Nexus Professional server?");
 				}
-				int val = Integer.parseInt(node.getTextContent());
+				int val = Integer.parseInt(value.trim());
 				if (val == 0) {
 					throw new StageException("User has insufficient privileges to perform staging actions ("
 					                         + perm + ")");
 				}
 			}
+			NexusCapabilityCache.putAuthenticated(nexusURL, username);
 		}
 		catch (MalformedURLException ex) {
 			throw createStageExceptionForIOException(nexusURL, ex);
@@ -317,16 +1027,21 @@ public void checkAuthentication() throws StageException {
 	 */
 	protected String getServerVersion() throws StageException {
 		if (nexusVersion == null) {
+			NexusCapabilities capabilities = NexusCapabilityCache.getCapabilities(nexusURL);
+			if (capabilities != null) {
+				nexusVersion = capabilities.getVersion();
+				return nexusVersion;
+			}
 			try {
 				URL url = new URL(nexusURL, "service/local/status");
-				Document doc = getDocument(url);
-				Node node = (Node) evaluateXPath("//version", doc, XPathConstants.NODE);
-				if (node == null) {
+				String version = getResponse(url, StagingResponseParser.SERVER_VERSION);
+				if (version == null) {
 					throw new StageException(
 					                         "Invalid reponse from server - is the URL a Nexus Professional server?");
 				}
-				nexusVersion = node.getTextContent();
+				nexusVersion = version;
 				log.debug("This nexus server has version: {}", nexusVersion);
+				NexusCapabilityCache.putCapabilities(nexusURL, new NexusCapabilities(version, isAsyncClose(version)));
 				return nexusVersion;
 			}
 			catch (MalformedURLException ex) {
@@ -336,6 +1051,20 @@ protected String getServerVersion() throws StageException {
 		return nexusVersion;
 	}
 
+	/**
+	 * Discard what is known about the server and check it again, filling the {@link NexusCapabilityCache}.
+	 * 
+	 * @return the capabilities of the server.
+	 * @throws StageException if the server could not be queried or we do not have the required permissions.
+	 */
+	public NexusCapabilities refreshCapabilities() throws StageException {
+		NexusCapabilityCache.invalidate(nexusURL);
+		nexusVersion = null;
+		checkAuthentication();
+		String version = getServerVersion();
+		return new NexusCapabilities(version, isAsyncClose(version));
+	}
+
 	/**
 	 * Checks if this Nexus server uses asynchronous stage actions.
 	 * 
@@ -372,8 +1101,7 @@ public List<Stage> getOpenStageIDs() throws StageException {
 		log.debug("retreiving list of stages");
 		try {
 			URL url = new URL(nexusURL, "service/local/staging/profile_repositories");
-			Document doc = getDocument(url);
-			return getOpenStageIDs(doc);
+			return getResponse(url, StagingResponseParser.OPEN_STAGES);
 		}
 		catch (MalformedURLException ex) {
 			throw createStageExceptionForIOException(nexusURL, ex);
@@ -381,6 +1109,20 @@ public List<Stage> getOpenStageIDs() throws StageException {
 	}
 
 
+	/**
+	 * Get the open stages of a single staging profile.
+	 * 
+	 * @param profileID the staging profile.
+	 * @return a List of the open stages in the profile.
+	 * @throws StageException if the stages could not be retrieved.
+	 */
+	public List<Stage> getOpenStageIDs(String profileID) throws StageException {
+		log.debug("retreiving list of stages for profile {}", profileID);
+		return getResponse(constructURL("service/local/staging/profile_repositories/%2$s", new Stage(profileID, null)),
+		                   StagingResponseParser.OPEN_STAGES);
+	}
+
+
 	/**
 	 * Parses a stagingRepositories element to obtain the list of open stages.
 	 * 
@@ -402,14 +1144,23 @@ protected List<Stage> getOpenStageIDs(Document doc) throws StageException {
 			if ("open".equals(type.getTextContent())) {
 				Node profileId = (Node) evaluateXPath("./profileId", stageRepo, XPathConstants.NODE);
 				Node repoId = (Node) evaluateXPath("./repositoryId", stageRepo, XPathConstants.NODE);
+				String userId = (String) evaluateXPath("./userId", stageRepo, XPathConstants.STRING);
+				String ipAddress = (String) evaluateXPath("./ipAddress", stageRepo, XPathConstants.STRING);
+				String description = (String) evaluateXPath("./description", stageRepo, XPathConstants.STRING);
 
-				stages.add(new Stage(profileId.getTextContent(), repoId.getTextContent()));
+				stages.add(new Stage(profileId.getTextContent(), repoId.getTextContent(), emptyToNull(userId),
+				                     emptyToNull(ipAddress), emptyToNull(description)));
 			}
 		}
 		return stages;
 	}
 
 
+	private static String emptyToNull(String value) {
+		return (value == null || value.length() == 0) ? null : value;
+	}
+
+
 	/**
 	 * Evaluate the xPath expression on the given node.
 	 * 
@@ -450,10 +1201,7 @@ private Object evaluateXPath(String expression, Node node, QName type) throws St
 				      new URL(nexusURL, "service/local/repositories/" + stage.getStageID() + "/content/"
 				                        + group.replace('.', '/') + '/' + artifact + '/' + version + "/?isLocal");
 			}
-			HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-			addAuthHeader(conn);
-			conn.setRequestMethod("HEAD");
-			int response = conn.getResponseCode();
+			int response = execute("HEAD", url, createHeaders(), null, PROBE_HANDLER).intValue();
 			if (response == HttpURLConnection.HTTP_OK) {
 				// we found our baby - may be a different version but we don't
 				// always have that to hand (if Maven did the auto numbering)
@@ -466,7 +1214,6 @@ else if (response == HttpURLConnection.HTTP_NOT_FOUND) {
 				log.warn("Server returned HTTP status {} when we only expected a 200 or 404.",
 				         Integer.toString(response));
 			}
-			conn.disconnect();
 		}
 		catch (IOException ex) {
 			throw createStageExceptionForIOException(nexusURL, ex);
@@ -482,41 +1229,72 @@ else if (response == HttpURLConnection.HTTP_NOT_FOUND) {
 	 * @return the parsed Document.
 	 * @throws StageException if there was an issue obtaining or parsing the document.
 	 */
-	protected Document getDocument(URL url) throws StageException {
-		try {
-			HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-			addAuthHeader(conn);
-			conn.setRequestProperty("Accept", "application/xml");
-			int status = conn.getResponseCode();
-			if (status == HttpURLConnection.HTTP_OK) {
-				DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-				Document doc = builder.parse(conn.getInputStream());
-				conn.disconnect();
-				return doc;
-			}
-			else {
-				drainOutput(conn);
-				if (status == HttpURLConnection.HTTP_UNAUTHORIZED) {
-					throw new IOException("Incorrect username / password supplied.");
+	protected Document getDocument(final URL url) throws StageException {
+		return getXML(url, new NexusTransport.ResponseHandler<Document>() {
+
+			public Document handle(int status, InputStream body) throws IOException {
+				try {
+					DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+					return builder.parse(body);
 				}
-				else if (status == HttpURLConnection.HTTP_NOT_FOUND) {
-					throw new IOException("Document not found - is this a Nexus server?");
+				catch (ParserConfigurationException ex) {
+					throw new StageException(ex);
 				}
-				else {
-					throw new IOException("Server returned error code " + status + " for " + url.toString());
+				catch (SAXException ex) {
+					throw new StageException(ex);
 				}
 			}
+		});
+	}
+
+
+	/**
+	 * Retrieve an XML response from the given URL and stream it through the parser without building a DOM.
+	 * 
+	 * @param url the URL where the XML document can be obtained.
+	 * @param parser the parser that extracts the value from the response.
+	 * @return the value extracted by the parser.
+	 * @throws StageException if there was an issue obtaining or parsing the response.
+	 */
+	protected <T> T getResponse(URL url, final StagingResponseParser<T> parser) throws StageException {
+		return getXML(url, new NexusTransport.ResponseHandler<T>() {
+
+			public T handle(int status, InputStream body) throws IOException {
+				return parser.parse(body);
+			}
+		});
+	}
+
+
+	/**
+	 * Retrieve an XML response from the given URL, passing the body of a successful response to the handler.
+	 */
+	private <T> T getXML(final URL url, final NexusTransport.ResponseHandler<T> handler) throws StageException {
+		Map<String, String> headers = createHeaders();
+		headers.put("Accept", "application/xml");
+		try {
+			return execute("GET", url, headers, null, new NexusTransport.ResponseHandler<T>() {
+
+				public T handle(int status, InputStream body) throws IOException {
+					if (status == HttpURLConnection.HTTP_OK) {
+						return handler.handle(status, body);
+					}
+					else if (status == HttpURLConnection.HTTP_UNAUTHORIZED) {
+						throw new StageException("Incorrect username / password supplied.", status);
+					}
+					else if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+						throw new StageException("Document not found - is this a Nexus server?", status);
+					}
+					else {
+						throw new StageException("Server returned error code " + status + " for " + url.toString(),
+						                         status);
+					}
+				}
+			});
 		}
 		catch (IOException ex) {
 			throw createStageExceptionForIOException(nexusURL, ex);
 		}
-		catch (ParserConfigurationException ex) {
-			throw new StageException(ex);
-		}
-		catch (SAXException ex) {
-			throw new StageException(ex);
-		}
-
 	}
 
 
@@ -533,10 +1311,7 @@ else if (status == HttpURLConnection.HTTP_NOT_FOUND) {
 	protected String createPromoteRequestPayload(Stage stage, String description, Boolean autodrop) throws StageException {
 		// TODO? this is missing the targetRepoID which is needed for promote...
 		// if the description contains a CDATA END tag then split it across multiple CDATA sections.
-		String escapedDescr = (description == null) ? "" : description;
-		if (escapedDescr.contains("]]>")) {
-			escapedDescr = escapedDescr.replace("]]>", "]]]]><![CDATA[>");
-		}
+		String escapedDescr = escapeCData(description);
 		if (autodrop != null) {
 			return String.format("<?xml version=\"1.0\" encoding=\"UTF-8\"?><promoteRequest><data><autoDropAfterRelease>%s</autoDropAfterRelease><stagedRepositoryId>%s</stagedRepositoryId><description><![CDATA[%s]]></description></data></promoteRequest>",
 			                     autodrop.toString(), stage.getStageID(), escapedDescr);
@@ -546,6 +1321,85 @@ protected String createPromoteRequestPayload(Stage stage, String description, Bo
 	}
 
 
+	/**
+	 * Construct the XML message for a bulk stagingActionRequest.
+	 * 
+	 * @param stages The stages to target
+	 * @param description the description for the action
+	 * @param autodrop <code>Boolean.TRUE</code> or <code>Boolean.FALSE</code> sets the autoDropAfterRelease to
+	 *           the appropriate value. <code>null</code> omits the value.
+	 * @return The XML for the stagingActionRequest.
+	 */
+	protected String createBulkRequestPayload(Collection<Stage> stages, String description, Boolean autodrop) {
+		StringBuilder sb =
+		      new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><stagingActionRequest><data>");
+		if (autodrop != null) {
+			sb.append("<autoDropAfterRelease>").append(autodrop.toString()).append("</autoDropAfterRelease>");
+		}
+		sb.append("<stagedRepositoryIds>");
+		for (Stage stage : stages) {
+			sb.append("<string>").append(stage.getStageID()).append("</string>");
+		}
+		sb.append("</stagedRepositoryIds>");
+		sb.append("<description><![CDATA[").append(escapeCData(description)).append("]]></description>");
+		sb.append("</data></stagingActionRequest>");
+		return sb.toString();
+	}
+
+
+	/**
+	 * If the description contains a CDATA END tag then split it across multiple CDATA sections.
+	 */
+	private static String escapeCData(String description) {
+		String escapedDescr = (description == null) ? "" : description;
+		if (escapedDescr.contains("]]>")) {
+			escapedDescr = escapedDescr.replace("]]>", "]]]]><![CDATA[>");
+		}
+		return escapedDescr;
+	}
+
+
+	/**
+	 * Perform a staging action on several stages with a single request to the bulk staging API.
+	 * 
+	 * @param action the action to perform.
+	 * @param stages the stages on which to perform the action.
+	 * @param description description to pass to the server for the action.
+	 * @throws StageException if an exception occurs whilst performing the action.
+	 */
+	protected void performBulkStageAction(StageAction action, Collection<Stage> stages, String description)
+	      throws StageException {
+		log.debug("Performing bulk action {} on stages {}", action, stages);
+		try {
+			URL url = action.getBulkURL(nexusURL);
+			// keep the stage repositories after a release as releaseStage does.
+			Boolean autodrop =
+			      (action == StageAction.RELEASE || action == StageAction.PROMOTE) ? Boolean.FALSE : null;
+			byte[] payloadBytes = createBulkRequestPayload(stages, description, autodrop).getBytes("UTF-8");
+
+			Map<String, String> headers = createHeaders();
+			headers.put("Content-Type", "application/xml; charset=UTF-8");
+			headers.put("Accept", "application/xml");
+
+			int status = execute("POST", url, headers, payloadBytes, STATUS_HANDLER).intValue();
+			log.debug("Server returned HTTP Status {} for bulk {} request to {}.",
+			          new Object[] {Integer.toString(status), action.name(), stages});
+
+			if (status != HttpURLConnection.HTTP_CREATED) {
+				log.warn("Server returned HTTP Status {} for bulk {} request to {}.",
+				         new Object[] {Integer.toString(status), action.name(), stages});
+				throw new StageException(String.format("server responded with status:%s", Integer.toString(status)),
+				                         status);
+			}
+		}
+		catch (IOException ex) {
+			String message =
+			      String.format("Failed to perform %s action to nexus stages(%s)", action.name(), stages.toString());
+			throw new StageException(message, ex);
+		}
+	}
+
+
 	/**
 	 * Perform a staging action.
 	 * 
@@ -568,35 +1422,20 @@ protected String createPromoteRequestPayload(Stage stage, String description, Bo
 				payload = createPromoteRequestPayload(stage, description, null);
 			}
 			byte[] payloadBytes = payload.getBytes("UTF-8");
-			int contentLen = payloadBytes.length;
 
-			HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-			addAuthHeader(conn);
-			conn.setRequestProperty("Content-Length", Integer.toString(contentLen));
-			conn.setRequestProperty("Content-Type", "application/xml; charset=UTF-8");
-			conn.setRequestProperty("Accept", "application/xml");
+			Map<String, String> headers = createHeaders();
+			headers.put("Content-Type", "application/xml; charset=UTF-8");
+			headers.put("Accept", "application/xml");
 
-			conn.setRequestMethod("POST");
-			conn.setDoOutput(true);
-
-			OutputStream out = conn.getOutputStream();
-			out.write(payloadBytes);
-			out.flush();
-
-			int status = conn.getResponseCode();
+			int status = execute("POST", url, headers, payloadBytes, STATUS_HANDLER).intValue();
 			log.debug("Server returned HTTP Status {} for {} stage request to {}.",
 			          new Object[] {Integer.toString(status), action.name(), stage});
 
-			if (status == HttpURLConnection.HTTP_CREATED) {
-				drainOutput(conn);
-				conn.disconnect();
-			}
-			else {
+			if (status != HttpURLConnection.HTTP_CREATED) {
 				log.warn("Server returned HTTP Status {} for {} stage request to {}.",
 				         new Object[] {Integer.toString(status), action.name(), stage});
-				drainOutput(conn);
-				conn.disconnect();
-				throw new IOException(String.format("server responded with status:%s", Integer.toString(status)));
+				throw new StageException(String.format("server responded with status:%s", Integer.toString(status)),
+				                         status);
 			}
 		}
 		catch (IOException ex) {
@@ -609,11 +1448,12 @@ protected String createPromoteRequestPayload(Stage stage, String description, Bo
 
 
 	/**
-	 * Add the BASIC Authentication header to the HTTP connection.
+	 * Create the headers for a new request, including the BASIC Authentication header.
 	 * 
-	 * @param conn the HTTP URL Connection
+	 * @return a new modifiable map of headers.
 	 */
-	private void addAuthHeader(URLConnection conn) {
+	private Map<String, String> createHeaders() {
+		Map<String, String> headers = new HashMap<String, String>();
 		// java.net.Authenticator is brain damaged as it is global and no way to delegate for just one server...
 		try {
 			String auth = username + ":" + password;
@@ -621,8 +1461,9 @@ private void addAuthHeader(URLConnection conn) {
 			// see https://bugzilla.mozilla.org/show_bug.cgi?id=41489
 			// Base64 adds a trailing newline - just strip it as whitespace is illegal in Base64
 			String encodedAuth = new Base64().encodeToString(auth.getBytes("ISO-8859-1")).trim();
-			conn.setRequestProperty("Authorization", "Basic " + encodedAuth);
+			headers.put("Authorization", "Basic " + encodedAuth);
 			//log.debug("Encoded Authentication is: " + encodedAuth);
+			return headers;
 		}
 		catch (UnsupportedEncodingException ex) {
 			String msg =
@@ -633,11 +1474,50 @@ private void addAuthHeader(URLConnection conn) {
 	}
 
 
+	/**
+	 * Send a request through the transport, guarded by the circuit breaker of the server. Requests that only read
+	 * from the server are retried with the {@link #setRetryPolicy(RetryPolicy) retry policy}.
+	 */
+	private <T> T execute(final String method, final URL url, final Map<String, String> headers,
+	                      final byte[] payload, final NexusTransport.ResponseHandler<T> handler) throws StageException {
+		RetryPolicy policy = ("GET".equals(method) || "HEAD".equals(method)) ? retryPolicy : RetryPolicy.NONE;
+		final String endpoint = NexusMetrics.endpointOf(method, nexusURL, url);
+		return policy.execute(method + ' ' + url, CircuitBreaker.forURL(nexusURL), new RetryPolicy.Operation<T>() {
+
+			public T call() throws IOException {
+				final int[] status = new int[1];
+				boolean failed = true;
+				long start = System.nanoTime();
+				try {
+					T result = transport.execute(method, url, headers, payload, new NexusTransport.ResponseHandler<T>() {
+
+						public T handle(int responseStatus, InputStream body) throws IOException {
+							status[0] = responseStatus;
+							return handler.handle(responseStatus, body);
+						}
+					});
+					// client errors such as the 404 of a probe are answers, the handler throws if it disagrees.
+					failed = status[0] >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+					return result;
+				}
+				catch (IOException ex) {
+					throw createStageExceptionForIOException(nexusURL, ex);
+				}
+				finally {
+					long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+					metrics.record(endpoint, millis, failed);
+					NexusMetrics.GLOBAL.record(endpoint, millis, failed);
+				}
+			}
+		});
+	}
+
+
 	private StageException createStageExceptionForIOException(URL url, IOException ex) {
 		if (ex instanceof StageException) {
 			return (StageException) ex;
 		}
-		if (ex.getMessage().equals(url.toString())) {
+		if (url.toString().equals(ex.getMessage())) {
 			// Sun JRE (and probably others too) often return just the URL in the error.
 			return new StageException("Unable to connect to " + url, ex);
 		}
@@ -647,24 +1527,6 @@ private StageException createStageExceptionForIOException(URL url, IOException e
 	}
 
 
-	private void drainOutput(HttpURLConnection conn) throws IOException {
-		// for things like unauthorised (401) we won't have any content and getting the inputStream will
-		// cause an IOException as we are in error - but there is no really way to tell this so check the
-		// length instead.
-		if (conn.getContentLength() > 0) {
-			if (conn.getContentLength() < 1024) {
-				byte[] data = new byte[conn.getConnectTimeout()];
-			}
-			if (conn.getErrorStream() != null) {
-				IOUtils.skip(conn.getErrorStream(), conn.getContentLength());
-			}
-			else {
-				IOUtils.skip(conn.getInputStream(), conn.getContentLength());
-			}
-		}
-	}
-
-
 	/**
 	 * Get the URL used to query the activity on the specified Stage.
 	 * 
@@ -699,7 +1561,7 @@ private URL getRepositoryURL(Stage stage) throws StageException {
 	 */
 	private URL constructURL(String format, Stage stage) throws StageException {
 		try {
-			return new URL(nexusURL, String.format(format, stage.getStageID()));
+			return new URL(nexusURL, String.format(format, stage.getStageID(), stage.getProfileID()));
 		}
 		catch (MalformedURLException ex) {
 			throw createStageExceptionForIOException(nexusURL, ex);
@@ -35,6 +35,12 @@ public class StageException extends IOException {
 
 	private static final long serialVersionUID = 3414907597198914915L;
 
+	/** The HTTP status returned by the server, or 0 if the failure was not an HTTP error. */
+	private final int status;
+
+	/** <code>true</code> if retrying the request can not succeed, e.g. a staging rule failed. */
+	private final boolean permanent;
+
 	/**
 	 * Constructs an {@code IOException} with the specified detail message and cause.
 	 * 
@@ -45,6 +51,8 @@ public class StageException extends IOException {
 	 */
 	public StageException(String message, Throwable cause) {
 		super(message, cause);
+		this.status = 0;
+		this.permanent = false;
 	}
 
 	/**
@@ -54,7 +62,37 @@ public StageException(String message, Throwable cause) {
 	 *        the message that should be shown to the end user to explain what went wrong.
 	 */
 	public StageException(String message) {
+		this(message, false);
+	}
+
+
+	/**
+	 * Constructs a {@code StageException} for a failure that is known to be permanent (or not).
+	 * 
+	 * @param message
+	 *        the message that should be shown to the end user to explain what went wrong.
+	 * @param permanent
+	 *        <code>true</code> if retrying can not succeed.
+	 */
+	public StageException(String message, boolean permanent) {
 		super(message);
+		this.status = 0;
+		this.permanent = permanent;
+	}
+
+
+	/**
+	 * Constructs a {@code StageException} for an HTTP error returned by the server.
+	 * 
+	 * @param message
+	 *        the message that should be shown to the end user to explain what went wrong.
+	 * @param status
+	 *        the HTTP status returned by the server.
+	 */
+	public StageException(String message, int status) {
+		super(message);
+		this.status = status;
+		this.permanent = false;
 	}
 
 	/**
@@ -66,6 +104,24 @@ public StageException(String message) {
 	 */
 	public StageException(Throwable cause) {
 		super(cause);
+		this.status = 0;
+		this.permanent = false;
+	}
+
+
+	/**
+	 * @return the HTTP status returned by the server, or 0 if the failure was not an HTTP error.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+
+	/**
+	 * @return <code>true</code> if the failure is known to be permanent, see {@link RetryPolicy#isTransient}.
+	 */
+	public boolean isPermanent() {
+		return permanent;
 	}
 
 }
@@ -0,0 +1,417 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import hudson.util.DaemonThreadFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controller wide service that waits for staging actions on behalf of all the builds. Builds register the stages
+ * they are waiting on and each tick the watcher fetches the staging repositories once per Nexus server (and
+ * user) for all the stages that are being watched, so the load on Nexus does not grow with the number of
+ * concurrent releases. Stages that the listing does not report on (e.g. older servers that do not include the
+ * transitioning flag) are polled individually.
+ * <p>
+ * Each server and user is polled with a client of its own, on a thread of its own so that a slow server does not
+ * delay the others. The requests of a poll are recorded in the {@link NexusMetrics} of the builds it was made for.
+ * <p>
+ * The watcher is started and stopped by the {@link org.jvnet.hudson.plugins.m2release.PluginImpl}, if it is not
+ * running {@link StageClient}s poll for their own stages.
+ */
+public final class StageTransitionWatcher {
+
+	/** Default time in milliseconds between fetches of the staging repositories. */
+	public static final long DEFAULT_POLL_INTERVAL = 2000L;
+
+	/** Number of fetches in a row that may fail before the watches for that server are failed. */
+	static final int MAX_CONSECUTIVE_FAILURES = 5;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StageTransitionWatcher.class);
+
+	private static StageTransitionWatcher instance;
+
+	/** Watched stages grouped by Nexus server and user. */
+	private final Map<String, WatchGroup> groups = new HashMap<String, WatchGroup>();
+
+	private final Timer timer;
+
+	/** Runs the polls of the groups, at most one at a time per group. */
+	private final ExecutorService pollExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+
+	private StageTransitionWatcher(long pollInterval) {
+		timer = new Timer("m2release Nexus staging transition watcher", true);
+		timer.schedule(new TimerTask() {
+
+			@Override
+			public void run() {
+				try {
+					poll();
+				}
+				catch (RuntimeException ex) {
+					// never let the timer thread die.
+					LOGGER.warn("Unexpected failure whilst watching staging repositories", ex);
+				}
+			}
+		}, pollInterval, pollInterval);
+	}
+
+
+	/**
+	 * Start the controller wide watcher if it is not already running.
+	 */
+	public static void start() {
+		start(DEFAULT_POLL_INTERVAL);
+	}
+
+
+	/**
+	 * Start the controller wide watcher if it is not already running.
+	 * 
+	 * @param pollInterval time in milliseconds between fetches of the staging repositories.
+	 */
+	public static synchronized void start(long pollInterval) {
+		if (instance == null) {
+			instance = new StageTransitionWatcher(pollInterval);
+		}
+	}
+
+
+	/**
+	 * Stop the watcher, failing any stages that are still being watched.
+	 */
+	public static void stop() {
+		StageTransitionWatcher watcher;
+		synchronized (StageTransitionWatcher.class) {
+			watcher = instance;
+			instance = null;
+		}
+		if (watcher != null) {
+			watcher.shutdown();
+		}
+	}
+
+
+	/**
+	 * @return the running watcher or <code>null</code> if the watcher has not been started.
+	 */
+	public static synchronized StageTransitionWatcher getInstance() {
+		return instance;
+	}
+
+
+	/**
+	 * Start watching the stage until it is no longer transitioning.
+	 * 
+	 * @param client the client of the build - its server and user are polled and the polls are recorded in its
+	 *            metrics.
+	 * @param stage the stage to watch.
+	 * @return the future for the stage which completes once the stage has finished transitioning.
+	 */
+	public Watch watch(StageClient client, Stage stage) {
+		Watch watch = new Watch(stage, client.getMetrics());
+		synchronized (groups) {
+			String key = client.getWatchKey();
+			WatchGroup group = groups.get(key);
+			if (group == null) {
+				group = new WatchGroup(client.createWatchClient());
+				groups.put(key, group);
+			}
+			group.watches.add(watch);
+		}
+		return watch;
+	}
+
+
+	/**
+	 * @return the number of stages that are currently being watched.
+	 */
+	public int getWatchCount() {
+		int count = 0;
+		synchronized (groups) {
+			for (WatchGroup group : groups.values()) {
+				count += group.watches.size();
+			}
+		}
+		return count;
+	}
+
+
+	void poll() {
+		List<WatchGroup> toPoll;
+		synchronized (groups) {
+			for (Iterator<WatchGroup> it = groups.values().iterator(); it.hasNext();) {
+				WatchGroup group = it.next();
+				for (Iterator<Watch> watches = group.watches.iterator(); watches.hasNext();) {
+					if (watches.next().isDone()) {
+						watches.remove();
+					}
+				}
+				if (group.watches.isEmpty()) {
+					it.remove();
+				}
+			}
+			toPoll = new ArrayList<WatchGroup>(groups.values());
+		}
+		for (WatchGroup group : toPoll) {
+			if (group.polling.compareAndSet(false, true)) {
+				pollExecutor.execute(group);
+			}
+		}
+	}
+
+
+	private void shutdown() {
+		timer.cancel();
+		pollExecutor.shutdownNow();
+		synchronized (groups) {
+			for (WatchGroup group : groups.values()) {
+				for (Watch watch : group.watches) {
+					watch.fail(new StageException("The staging transition watcher was stopped"));
+				}
+			}
+			groups.clear();
+		}
+	}
+
+
+	/**
+	 * The stages being watched on one Nexus server by one user.
+	 */
+	private final class WatchGroup implements Runnable {
+
+		/** Client used to fetch the staging repositories, owned by the group. */
+		private final StageClient client;
+
+		/** guarded by {@link StageTransitionWatcher#groups} */
+		private final List<Watch> watches = new ArrayList<Watch>();
+
+		/** Set whilst a poll of the group is queued or running. */
+		private final AtomicBoolean polling = new AtomicBoolean();
+
+		/** only accessed by the poll of the group. */
+		private int consecutiveFailures;
+
+
+		WatchGroup(StageClient client) {
+			this.client = client;
+		}
+
+
+		public void run() {
+			try {
+				poll();
+			}
+			catch (RuntimeException ex) {
+				LOGGER.warn("Unexpected failure whilst watching staging repositories", ex);
+			}
+			finally {
+				polling.set(false);
+			}
+		}
+
+
+		void poll() {
+			List<Watch> active;
+			synchronized (groups) {
+				active = new ArrayList<Watch>(watches);
+			}
+			long start = System.currentTimeMillis();
+			Map<String, Boolean> transitions;
+			// the listing is made for all the active watches.
+			NexusMetrics listing = new NexusMetrics();
+			client.setMetrics(listing);
+			try {
+				transitions = client.getStageTransitions();
+				consecutiveFailures = 0;
+			}
+			catch (StageException ex) {
+				if (++consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+					LOGGER.warn("Giving up watching " + active.size() + " stages after repeated failures", ex);
+					for (Watch watch : active) {
+						watch.fail(ex);
+					}
+				}
+				else {
+					LOGGER.debug("Failed to fetch the staging repositories, will retry", ex);
+				}
+				return;
+			}
+			finally {
+				for (Watch watch : active) {
+					watch.metrics.add(listing);
+				}
+			}
+			long pollTime = System.currentTimeMillis() - start;
+			for (Watch watch : active) {
+				watch.recordPoll(pollTime);
+				Boolean transitioning = transitions.get(watch.stage.getStageID());
+				try {
+					if (transitioning == null) {
+						client.setMetrics(watch.metrics);
+						transitioning = Boolean.valueOf(client.isTransitioning(watch.stage));
+					}
+					if (!transitioning.booleanValue()) {
+						watch.complete();
+					}
+				}
+				catch (StageException ex) {
+					watch.fail(ex);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * The future for a stage that is being watched. Completes normally once the stage has finished transitioning,
+	 * or with a {@link StageException} if the stage could not be polled.
+	 */
+	public static final class Watch implements Future<Void> {
+
+		private final Stage stage;
+		/** the metrics of the build that waits for the stage. */
+		private final NexusMetrics metrics;
+		private final long started = System.currentTimeMillis();
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		/** guarded by this */
+		private boolean completed;
+		private boolean cancelled;
+		private StageException failure;
+		private int polls;
+		private long totalPollTime;
+		private long maxPollTime;
+
+
+		Watch(Stage stage, NexusMetrics metrics) {
+			this.stage = stage;
+			this.metrics = metrics;
+		}
+
+
+		public Stage getStage() {
+			return stage;
+		}
+
+
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			synchronized (this) {
+				if (completed) {
+					return false;
+				}
+				completed = true;
+				cancelled = true;
+			}
+			done.countDown();
+			return true;
+		}
+
+
+		public synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+
+		public synchronized boolean isDone() {
+			return completed;
+		}
+
+
+		public Void get() throws InterruptedException, ExecutionException {
+			done.await();
+			return getResult();
+		}
+
+
+		public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+		      TimeoutException {
+			if (!done.await(timeout, unit)) {
+				throw new TimeoutException();
+			}
+			return getResult();
+		}
+
+
+		/**
+		 * @return the statistics of the polls made for this stage since it was registered.
+		 */
+		public synchronized WaitStatistics getStatistics() {
+			return new WaitStatistics(polls, totalPollTime, maxPollTime, System.currentTimeMillis() - started);
+		}
+
+
+		private synchronized Void getResult() throws ExecutionException {
+			if (cancelled) {
+				throw new CancellationException();
+			}
+			if (failure != null) {
+				throw new ExecutionException(failure);
+			}
+			return null;
+		}
+
+
+		synchronized void recordPoll(long pollTime) {
+			polls++;
+			totalPollTime += pollTime;
+			maxPollTime = Math.max(maxPollTime, pollTime);
+		}
+
+
+		void complete() {
+			finish(null);
+		}
+
+
+		void fail(StageException ex) {
+			finish(ex);
+		}
+
+
+		private void finish(StageException ex) {
+			synchronized (this) {
+				if (completed) {
+					return;
+				}
+				completed = true;
+				failure = ex;
+			}
+			done.countDown();
+		}
+	}
+}
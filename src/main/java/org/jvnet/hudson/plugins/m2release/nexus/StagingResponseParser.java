@@ -0,0 +1,430 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pull parser for the responses of the Nexus staging REST API. Only the elements that the {@link StageClient} is
+ * interested in are read, the rest of the response is skipped without building a DOM. Parsers are stateless and
+ * may be shared between threads.
+ * 
+ * @param <T> the type of the value extracted from the response.
+ */
+public abstract class StagingResponseParser<T> {
+
+	/** Shared factory - creating a factory per request is expensive and the factory is thread safe once configured. */
+	private static final XMLInputFactory FACTORY;
+
+	static {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		FACTORY = factory;
+	}
+
+	/** Parses a list of <code>stagingProfileRepository</code>s (or a single one) into the stages that are open. */
+	public static final StagingResponseParser<List<Stage>> OPEN_STAGES = new StagingResponseParser<List<Stage>>() {
+
+		@Override
+		protected List<Stage> parse(XMLStreamReader reader) throws XMLStreamException {
+			List<Stage> stages = new ArrayList<Stage>();
+			while (nextStartElement(reader, "stagingProfileRepository")) {
+				Map<String, String> fields = readChildText(reader);
+				// type will be "open" or "closed"
+				if ("open".equals(fields.get("type"))) {
+					stages.add(new Stage(fields.get("profileId"), fields.get("repositoryId"),
+					                     emptyToNull(fields.get("userId")), emptyToNull(fields.get("ipAddress")),
+					                     emptyToNull(fields.get("description"))));
+				}
+			}
+			return stages;
+		}
+	};
+
+	/**
+	 * Parses a list of <code>stagingProfileRepository</code>s to find which stages are transitioning, keyed by the
+	 * stage ID. Stages are omitted if the server does not report whether they are transitioning.
+	 */
+	public static final StagingResponseParser<Map<String, Boolean>> STAGE_TRANSITIONS =
+	      new StagingResponseParser<Map<String, Boolean>>() {
+
+		      @Override
+		      protected Map<String, Boolean> parse(XMLStreamReader reader) throws XMLStreamException {
+			      Map<String, Boolean> transitions = new HashMap<String, Boolean>();
+			      while (nextStartElement(reader, "stagingProfileRepository")) {
+				      Map<String, String> fields = readChildText(reader);
+				      String transitioning = fields.get("transitioning");
+				      if (fields.get("repositoryId") != null && transitioning != null) {
+					      transitions.put(fields.get("repositoryId"), Boolean.valueOf(transitioning.trim()));
+				      }
+			      }
+			      return transitions;
+		      }
+	      };
+
+	/** Parses a <code>stagingProfileRepository</code> to find if the stage is currently transitioning. */
+	public static final StagingResponseParser<Boolean> TRANSITIONING = new StagingResponseParser<Boolean>() {
+
+		@Override
+		protected Boolean parse(XMLStreamReader reader) throws XMLStreamException {
+			if (reader.nextTag() == XMLStreamConstants.START_ELEMENT
+			    && "stagingProfileRepository".equals(reader.getLocalName())) {
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					if ("transitioning".equals(reader.getLocalName())) {
+						return Boolean.valueOf(reader.getElementText().trim());
+					}
+					skipElement(reader);
+				}
+			}
+			return Boolean.FALSE;
+		}
+	};
+
+	/** Parses the status response for the server version, <code>null</code> if the response has no version. */
+	public static final StagingResponseParser<String> SERVER_VERSION = new StagingResponseParser<String>() {
+
+		@Override
+		protected String parse(XMLStreamReader reader) throws XMLStreamException {
+			if (nextStartElement(reader, "version")) {
+				return reader.getElementText();
+			}
+			return null;
+		}
+	};
+
+	/** Parses the status response for the permissions of the logged in user, keyed by the permission id. */
+	public static final StagingResponseParser<Map<String, String>> PERMISSIONS =
+	      new StagingResponseParser<Map<String, String>>() {
+
+		      @Override
+		      protected Map<String, String> parse(XMLStreamReader reader) throws XMLStreamException {
+			      Map<String, String> permissions = new HashMap<String, String>();
+			      if (nextStartElement(reader, "clientPermissions") && nextStartElement(reader, "permissions")) {
+				      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					      if ("permission".equals(reader.getLocalName())) {
+						      Map<String, String> fields = readChildText(reader);
+						      if (fields.containsKey("id")) {
+							      permissions.put(fields.get("id"), fields.get("value"));
+						      }
+					      }
+					      else {
+						      skipElement(reader);
+					      }
+				      }
+			      }
+			      return permissions;
+		      }
+	      };
+
+	/** Parses a profile evaluation for the IDs of the matching staging profiles. */
+	public static final StagingResponseParser<List<String>> PROFILE_IDS = new StagingResponseParser<List<String>>() {
+
+		@Override
+		protected List<String> parse(XMLStreamReader reader) throws XMLStreamException {
+			List<String> ids = new ArrayList<String>();
+			while (nextStartElement(reader, "stagingProfile")) {
+				String id = readChildText(reader).get("id");
+				if (id != null) {
+					ids.add(id);
+				}
+			}
+			return ids;
+		}
+	};
+
+	/** Parses the activity of a stage for the outcome of the most recent close, <code>null</code> if never closed. */
+	public static final StagingResponseParser<CloseActivity> LAST_CLOSE_ACTIVITY =
+	      new StagingResponseParser<CloseActivity>() {
+
+		      @Override
+		      protected CloseActivity parse(XMLStreamReader reader) throws XMLStreamException {
+			      CloseActivity last = null;
+			      while (nextStartElement(reader, "stagingActivity")) {
+				      CloseActivity activity = readActivity(reader);
+				      if (activity != null) {
+					      last = activity;
+				      }
+			      }
+			      return last;
+		      }
+	      };
+
+
+	/**
+	 * Parse the response.
+	 * 
+	 * @param in the response body, which is not closed by this method.
+	 * @return the value extracted from the response.
+	 * @throws StageException if the response is not well formed.
+	 */
+	public T parse(InputStream in) throws StageException {
+		XMLStreamReader reader = null;
+		try {
+			reader = FACTORY.createXMLStreamReader(in);
+			return parse(reader);
+		}
+		catch (XMLStreamException ex) {
+			throw new StageException("Could not parse the response from the server", ex);
+		}
+		finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				}
+				catch (XMLStreamException ignored) {
+					// nothing we can do.
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Extract the value from the response.
+	 * 
+	 * @param reader reader positioned at the start of the document.
+	 * @return the value extracted from the response.
+	 * @throws XMLStreamException if the response is not well formed.
+	 */
+	protected abstract T parse(XMLStreamReader reader) throws XMLStreamException;
+
+
+	/**
+	 * Advance the reader to the next start element with the given name.
+	 * 
+	 * @return <code>true</code> if the element was found, <code>false</code> if the end of the document was
+	 *         reached.
+	 */
+	static boolean nextStartElement(XMLStreamReader reader, String name) throws XMLStreamException {
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT && name.equals(reader.getLocalName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Read the text of the simple child elements of the current element, skipping any complex children. On return
+	 * the reader is positioned on the end element of the current element.
+	 * 
+	 * @return the text of the children keyed by element name - the first occurrence wins.
+	 */
+	static Map<String, String> readChildText(XMLStreamReader reader) throws XMLStreamException {
+		Map<String, String> fields = new HashMap<String, String>();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String name = reader.getLocalName();
+			String text = readSimpleText(reader);
+			if (text != null && !fields.containsKey(name)) {
+				fields.put(name, text);
+			}
+		}
+		return fields;
+	}
+
+
+	/**
+	 * Read the text of the current element, or skip it if it has child elements.
+	 * 
+	 * @return the text or <code>null</code> if the element had child elements.
+	 */
+	private static String readSimpleText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		while (true) {
+			int event = reader.next();
+			switch (event) {
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					text.append(reader.getText());
+					break;
+				case XMLStreamConstants.START_ELEMENT:
+					// skip the child and the remainder of this element.
+					skipElement(reader, 2);
+					return null;
+				case XMLStreamConstants.END_ELEMENT:
+					return text.toString();
+				default:
+					// comments and processing instructions.
+					break;
+			}
+		}
+	}
+
+
+	/** Skip the current element including all its children, leaving the reader on its end element. */
+	static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		skipElement(reader, 1);
+	}
+
+
+	private static void skipElement(XMLStreamReader reader, int depth) throws XMLStreamException {
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+
+	private static CloseActivity readActivity(XMLStreamReader reader) throws XMLStreamException {
+		String name = null;
+		boolean closed = false;
+		String cause = null;
+		boolean failed = false;
+		List<String> ruleFailures = new ArrayList<String>();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String element = reader.getLocalName();
+			if ("name".equals(element)) {
+				name = reader.getElementText();
+			}
+			else if ("events".equals(element)) {
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					if (!"stagingActivityEvent".equals(reader.getLocalName())) {
+						skipElement(reader);
+						continue;
+					}
+					String eventName = null;
+					List<String[]> properties = new ArrayList<String[]>();
+					while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+						String eventElement = reader.getLocalName();
+						if ("name".equals(eventElement)) {
+							eventName = reader.getElementText();
+						}
+						else if ("properties".equals(eventElement)) {
+							while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+								Map<String, String> property = readChildText(reader);
+								properties.add(new String[] {property.get("name"), property.get("value")});
+							}
+						}
+						else {
+							skipElement(reader);
+						}
+					}
+					if ("repositoryClosed".equals(eventName)) {
+						closed = true;
+					}
+					else if ("repositoryCloseFailed".equals(eventName) && !failed) {
+						failed = true;
+						cause = getProperty(properties, "cause");
+					}
+					else if ("ruleFailed".equals(eventName)) {
+						for (String[] property : properties) {
+							if ("failureMessage".equals(property[0]) && property[1] != null) {
+								ruleFailures.add(property[1]);
+							}
+						}
+					}
+				}
+			}
+			else {
+				skipElement(reader);
+			}
+		}
+		if (!"close".equals(name)) {
+			return null;
+		}
+		return new CloseActivity(closed, failed, cause, ruleFailures);
+	}
+
+
+	private static String getProperty(List<String[]> properties, String name) {
+		for (String[] property : properties) {
+			if (name.equals(property[0])) {
+				return property[1] == null ? "" : property[1];
+			}
+		}
+		return "";
+	}
+
+
+	private static String emptyToNull(String value) {
+		return (value == null || value.length() == 0) ? null : value;
+	}
+
+
+	/**
+	 * The outcome of a close action on a stage as recorded in the stage's activity.
+	 */
+	public static class CloseActivity {
+
+		private final boolean closed;
+		private final boolean failed;
+		private final String cause;
+		private final List<String> ruleFailures;
+
+
+		CloseActivity(boolean closed, boolean failed, String cause, List<String> ruleFailures) {
+			this.closed = closed;
+			this.failed = failed;
+			this.cause = cause;
+			this.ruleFailures = Collections.unmodifiableList(ruleFailures);
+		}
+
+
+		/**
+		 * @return <code>true</code> if the repository was closed successfully.
+		 */
+		public boolean isClosed() {
+			return closed;
+		}
+
+
+		/**
+		 * @return <code>true</code> if the close was recorded as failed.
+		 */
+		public boolean isFailed() {
+			return failed;
+		}
+
+
+		/**
+		 * @return the cause of the failure, empty if the close did not fail.
+		 */
+		public String getCause() {
+			return cause == null ? "" : cause;
+		}
+
+
+		/**
+		 * @return the failure messages of any staging rules that failed.
+		 */
+		public List<String> getRuleFailures() {
+			return ruleFailures;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import hudson.ProxyConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link NexusTransport} that sends the requests to a single Nexus host over {@link HttpURLConnection}s, so that
+ * consecutive requests (from the same or different builds) reuse the keep-alive connections cached by the JVM
+ * instead of each paying for a new TCP/TLS handshake. A connection only goes back to the cache once its response
+ * has been read to the end, so the transport drains whatever the handler leaves unread.
+ * <p>
+ * Connections are opened through the proxy configured in Jenkins (or the JVM proxy settings if there is none) and
+ * HTTPS connections verify the host name of the server. The number of requests that are sent to the host at the
+ * same time is bounded by the maximum number of connections of the settings.
+ * <p>
+ * The transport does not keep connections itself. The JVM caches at most <code>http.maxConnections</code> (5 by
+ * default) idle connections per host and closes the others once their response has been read, so a limit above
+ * that only lets more requests run at the same time, the extra connections are not reused.
+ */
+public class ThrottledNexusTransport implements NexusTransport {
+
+	private final NexusConnectionSettings settings;
+
+	/** One permit per connection that may be in use at the same time. */
+	private final Semaphore connections;
+
+
+	public ThrottledNexusTransport(NexusConnectionSettings settings) {
+		this.settings = settings;
+		this.connections = new Semaphore(settings.getMaxConnectionsPerHost(), true);
+	}
+
+
+	public <T> T execute(String method, URL url, Map<String, String> headers, byte[] payload,
+	                     ResponseHandler<T> handler) throws IOException {
+		acquireConnection(url);
+		try {
+			HttpURLConnection conn = openConnection(url);
+			conn.setRequestMethod(method);
+			// redirects are only safe to follow for requests that do not change anything.
+			conn.setInstanceFollowRedirects(!"POST".equals(method));
+			for (Map.Entry<String, String> header : headers.entrySet()) {
+				conn.setRequestProperty(header.getKey(), header.getValue());
+			}
+			if (payload != null) {
+				conn.setDoOutput(true);
+				conn.setFixedLengthStreamingMode(payload.length);
+				OutputStream out = conn.getOutputStream();
+				try {
+					out.write(payload);
+				}
+				finally {
+					out.close();
+				}
+			}
+			int status = conn.getResponseCode();
+			InputStream body = getBody(conn, status);
+			try {
+				return handler.handle(status, body);
+			}
+			finally {
+				// hands the connection back to the keep-alive cache.
+				drain(body);
+			}
+		}
+		finally {
+			connections.release();
+		}
+	}
+
+
+	public NexusConnectionSettings getSettings() {
+		return settings;
+	}
+
+
+	private void acquireConnection(URL url) throws IOException {
+		try {
+			// the connect timeout also limits how long to wait for a free connection.
+			if (!connections.tryAcquire(settings.getConnectTimeout(), TimeUnit.MILLISECONDS)) {
+				throw new NoFreeConnectionException("Timed out waiting for a free connection to " + url.getHost());
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new StageException("Interrupted whilst waiting for a free connection to " + url.getHost(), ex);
+		}
+	}
+
+
+	private HttpURLConnection openConnection(URL url) throws IOException {
+		URLConnection conn = ProxyConfiguration.open(url);
+		if (!(conn instanceof HttpURLConnection)) {
+			throw new IOException("Not an HTTP URL: " + url);
+		}
+		conn.setConnectTimeout(settings.getConnectTimeout());
+		conn.setReadTimeout(settings.getReadTimeout());
+		conn.setUseCaches(false);
+		return (HttpURLConnection) conn;
+	}
+
+
+	private static InputStream getBody(HttpURLConnection conn, int status) throws IOException {
+		if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+			return conn.getErrorStream();
+		}
+		return conn.getInputStream();
+	}
+
+
+	private static void drain(InputStream body) {
+		if (body == null) {
+			return;
+		}
+		try {
+			byte[] buffer = new byte[4096];
+			while (body.read(buffer) >= 0) {
+				// discard
+			}
+		}
+		catch (IOException ex) {
+			// the connection is not reused.
+		}
+		finally {
+			try {
+				body.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+	}
+}
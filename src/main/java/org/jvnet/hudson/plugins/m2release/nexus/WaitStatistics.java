@@ -0,0 +1,78 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+/**
+ * Statistics for a single wait on a staging action: how often Nexus was polled, how long the polls took and the
+ * overall time spent waiting. Instances are immutable.
+ */
+public class WaitStatistics {
+
+	private final int polls;
+	private final long totalPollTime;
+	private final long maxPollTime;
+	private final long totalWaitTime;
+
+
+	WaitStatistics(int polls, long totalPollTime, long maxPollTime, long totalWaitTime) {
+		this.polls = polls;
+		this.totalPollTime = totalPollTime;
+		this.maxPollTime = maxPollTime;
+		this.totalWaitTime = totalWaitTime;
+	}
+
+
+	/**
+	 * @return the number of times the stage was polled.
+	 */
+	public int getPolls() {
+		return polls;
+	}
+
+
+	/**
+	 * @return the mean latency of a poll in milliseconds.
+	 */
+	public long getAveragePollTime() {
+		return polls == 0 ? 0L : totalPollTime / polls;
+	}
+
+
+	/**
+	 * @return the latency of the slowest poll in milliseconds.
+	 */
+	public long getMaxPollTime() {
+		return maxPollTime;
+	}
+
+
+	/**
+	 * @return the time in milliseconds from the start of the wait until the action completed (or the wait was
+	 *         abandoned).
+	 */
+	public long getTotalWaitTime() {
+		return totalWaitTime;
+	}
+
+
+	@Override
+	public String toString() {
+		return "waited " + totalWaitTime + "ms, " + polls + " polls (avg " + getAveragePollTime() + "ms, max "
+		       + maxPollTime + "ms)";
+	}
+}
@@ -0,0 +1,89 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class FinalizationGateTest {
+
+    @Test
+    public void finalizationsBeyondTheLimitWaitForTheirTurn() throws Exception {
+        final FinalizationGate gate = new FinalizationGate("http://nexus/");
+        final PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+        FinalizationGate.Permit first = gate.acquire(1, logger);
+        assertEquals(1, gate.getRunning());
+
+        final ByteArrayOutputStream waitingLog = new ByteArrayOutputStream();
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    gate.acquire(1, new PrintStream(waitingLog, true)).release();
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                    // fails the test below.
+                }
+            }
+        };
+        waiter.start();
+        while (gate.getWaiting() == 0) {
+            Thread.sleep(10L);
+        }
+        assertEquals(1, acquired.getCount());
+        assertTrue(waitingLog.toString().contains("position 1 of 1"));
+
+        first.release();
+        first.release();
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        waiter.join();
+        assertEquals(0, gate.getRunning());
+        assertEquals(0, gate.getWaiting());
+    }
+
+    @Test
+    public void noLimitNeverWaits() throws Exception {
+        FinalizationGate gate = new FinalizationGate("http://nexus/");
+        PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+        for (int i = 0; i < 10; i++) {
+            gate.acquire(0, logger);
+        }
+        assertEquals(10, gate.getRunning());
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void interruptedWaitLeavesTheQueue() throws Exception {
+        FinalizationGate gate = new FinalizationGate("http://nexus/");
+        PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+        gate.acquire(1, logger);
+        Thread.currentThread().interrupt();
+        try {
+            gate.acquire(1, logger);
+        } finally {
+            assertEquals(0, gate.getWaiting());
+        }
+    }
+}
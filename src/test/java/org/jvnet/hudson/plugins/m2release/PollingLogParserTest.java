@@ -0,0 +1,90 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.plugins.m2release.PollingLogParser.RemoteScmInfo;
+
+public class PollingLogParserTest {
+
+    private static final String LOG = "Started on Oct 17, 2016 10:00:00 AM\n"
+            + "Using strategy: Default\n"
+            + "[poll] Last Built Revision: Revision 1111111111111111111111111111111111111111 (origin/master)\n"
+            + " > git ls-remote -h https://github.com/wso2/carbon-kernel.git # timeout=10\n"
+            + "[poll] Latest remote head revision on refs/heads/master is: 3b9f0e9b5a0c6e1d2f3a4b5c6d7e8f9a0b1c2d3e\n"
+            + "Done. Took 0.52 sec\n"
+            + "Changes found\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findsTheRemoteHead() {
+        RemoteScmInfo info = PollingLogParser.parse(LOG);
+        assertEquals("refs/heads/master", info.getRemoteBranch());
+        assertEquals("3b9f0e9b5a0c6e1d2f3a4b5c6d7e8f9a0b1c2d3e", info.getRemoteRevision());
+        assertEquals(Boolean.TRUE, info.getChangesFound());
+    }
+
+    @Test
+    public void readsTheLogFile() throws Exception {
+        File file = folder.newFile("scm-polling.log");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(LOG.getBytes());
+        } finally {
+            out.close();
+        }
+        RemoteScmInfo info = PollingLogParser.parse(file);
+        assertEquals("refs/heads/master", info.getRemoteBranch());
+        assertEquals(Boolean.TRUE, info.getChangesFound());
+    }
+
+    @Test
+    public void invalidBytesDoNotStopTheParsing() throws Exception {
+        File file = folder.newFile("scm-polling.log");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            // not valid in UTF-8 (nor in most other default encodings)
+            out.write(new byte[] {'x', (byte) 0xC3, (byte) 0x28, (byte) 0xFF, '\n'});
+            out.write(LOG.getBytes());
+        } finally {
+            out.close();
+        }
+        RemoteScmInfo info = PollingLogParser.parse(file);
+        assertEquals("3b9f0e9b5a0c6e1d2f3a4b5c6d7e8f9a0b1c2d3e", info.getRemoteRevision());
+        assertEquals(Boolean.TRUE, info.getChangesFound());
+    }
+
+    @Test
+    public void noChanges() {
+        RemoteScmInfo info = PollingLogParser.parse("Started\n[poll] Latest remote head revision on "
+                + "refs/heads/master is: 3b9f0e9b\nDone. Took 0.1 sec\nNo changes\n");
+        assertEquals("3b9f0e9b", info.getRemoteRevision());
+        assertNull(info.getChangesFound());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PomVersionReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void clearCache() {
+        PomVersionReader.clearCache();
+    }
+
+    @Test
+    public void readsTheProjectVersion() throws Exception {
+        File pom = write("<project><parent><version>1</version></parent>"
+                + "<dependencies><dependency><version>2.0</version></dependency></dependencies>"
+                + "<version>4.4.10-SNAPSHOT</version></project>");
+        assertEquals("4.4.10-SNAPSHOT", new PomVersionReader().invoke(pom, null));
+    }
+
+    @Test
+    public void fallsBackToTheParentVersion() throws Exception {
+        File pom = write("<project xmlns=\"http://maven.apache.org/POM/4.0.0\"><parent><groupId>org.wso2</groupId>"
+                + "<version>5.1.0</version></parent><build><version>x</version></build></project>");
+        assertEquals("5.1.0", new PomVersionReader().invoke(pom, null));
+    }
+
+    @Test
+    public void missingPomIsNotANumber() throws Exception {
+        assertEquals(M2ReleaseBuildWrapper.NOT_A_NUMBER,
+                new PomVersionReader().invoke(new File(folder.getRoot(), "pom.xml"), null));
+    }
+
+    @Test
+    public void rereadsAChangedPom() throws Exception {
+        File pom = write("<project><version>1.0.0-SNAPSHOT</version></project>");
+        assertEquals("1.0.0-SNAPSHOT", new PomVersionReader().invoke(pom, null));
+        write("<project><version>1.0.1-SNAPSHOT-changed</version></project>");
+        assertEquals("1.0.1-SNAPSHOT-changed", new PomVersionReader().invoke(pom, null));
+    }
+
+    private File write(String content) throws IOException {
+        File pom = new File(folder.getRoot(), "pom.xml");
+        OutputStream out = new FileOutputStream(pom);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return pom;
+    }
+}
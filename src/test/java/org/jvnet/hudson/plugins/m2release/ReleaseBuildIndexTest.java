@@ -0,0 +1,153 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.util.RunList;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReleaseBuildIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void indexIsBuiltOnceFromTheBuildHistory() throws Exception {
+        File rootDir = folder.newFolder("job");
+        List<Run> builds = new ArrayList<Run>();
+        builds.add(mockRun(4, true, Result.SUCCESS));
+        builds.add(mockRun(3, true, Result.FAILURE));
+        builds.add(mockRun(2, false, Result.SUCCESS));
+        builds.add(mockRun(1, true, Result.SUCCESS));
+        Job job = mockJob(rootDir, builds);
+
+        ReleaseBuildIndex index = ReleaseBuildIndex.forJob(job);
+        assertEquals(3, index.getReleases().size());
+        assertEquals(2, index.getSuccessfulReleases().size());
+        assertEquals(4, index.getSuccessfulReleases().get(0).getNumber());
+        assertEquals(Result.FAILURE, index.getReleases().get(1).getResult());
+        assertTrue(new File(rootDir, Constants.RELEASE_BUILD_INDEX).isFile());
+
+        // the same job directory loaded again must not scan the builds.
+        Job reloaded = mockJob(rootDir, builds);
+        assertEquals(3, ReleaseBuildIndex.forJob(reloaded).getReleases().size());
+        verify(reloaded, never()).getBuilds();
+    }
+
+    @Test
+    public void viewsDoNotWaitForTheIndexToBeBuilt() throws Exception {
+        List<Run> builds = new ArrayList<Run>();
+        builds.add(mockRun(2, true, Result.SUCCESS));
+        builds.add(mockRun(1, true, Result.SUCCESS));
+        Job job = mockJob(folder.newFolder("job"), builds);
+
+        ReleaseBuildIndex index = ReleaseBuildIndex.getIfReady(job);
+        // built in the background
+        for (int i = 0; index == null && i < 500; i++) {
+            Thread.sleep(10L);
+            index = ReleaseBuildIndex.getIfReady(job);
+        }
+        assertNotNull(index);
+        assertEquals(2, index.getLastRelease().getNumber());
+        assertSame(index, ReleaseBuildIndex.forJob(job));
+    }
+
+    @Test
+    public void recordKeepsReleasesNewestFirst() throws Exception {
+        Job job = mockJob(folder.newFolder("job"), new ArrayList<Run>());
+        ReleaseBuildIndex index = ReleaseBuildIndex.forJob(job);
+
+        assertTrue(index.record(mockRun(5, true, Result.SUCCESS)));
+        assertTrue(index.record(mockRun(9, true, Result.SUCCESS)));
+        assertTrue(index.record(mockRun(7, true, Result.UNSTABLE)));
+        assertFalse(index.record(mockRun(8, false, Result.SUCCESS)));
+
+        List<ReleaseBuildIndex.Entry> releases = index.getReleases();
+        assertEquals(3, releases.size());
+        assertEquals(9, releases.get(0).getNumber());
+        assertEquals(7, releases.get(1).getNumber());
+        assertEquals(5, releases.get(2).getNumber());
+        assertEquals(2, index.getSuccessfulReleases().size());
+        assertEquals(Result.UNSTABLE, index.getSummary(7).getResult());
+        assertEquals(Result.SUCCESS, index.getSummary(5).getResult());
+        assertNull(index.getSummary(8));
+
+        index.setKeepLog(9, true);
+        assertTrue(index.getReleases().get(0).isKeepLog());
+        index.remove(7);
+        assertEquals(2, index.getReleases().size());
+    }
+
+    @Test
+    public void lastReleaseIsTheNewestSuccessfulRelease() throws Exception {
+        Job job = mockJob(folder.newFolder("job"), new ArrayList<Run>());
+        ReleaseBuildIndex index = ReleaseBuildIndex.forJob(job);
+        assertNull(index.getLastRelease());
+
+        index.record(mockRun(5, true, Result.SUCCESS));
+        index.record(mockRun(7, true, Result.UNSTABLE));
+        assertEquals(5, index.getLastRelease().getNumber());
+
+        index.record(mockRun(9, true, Result.SUCCESS));
+        assertEquals(9, index.getLastRelease().getNumber());
+
+        index.remove(9);
+        assertEquals(5, index.getLastRelease().getNumber());
+    }
+
+    private static Job mockJob(File rootDir, List<Run> builds) {
+        Job job = mock(Job.class);
+        doReturn(rootDir).when(job).getRootDir();
+        doReturn("job").when(job).getName();
+        doReturn("job").when(job).getFullName();
+        doReturn(RunList.fromRuns(builds)).when(job).getBuilds();
+        return job;
+    }
+
+    private static Run mockRun(int number, boolean release, Result result) {
+        Run run = mock(Run.class);
+        doReturn(Integer.valueOf(number)).when(run).getNumber();
+        doReturn(result).when(run).getResult();
+        if (release) {
+            M2ReleaseBadgeAction badge = new M2ReleaseBadgeAction();
+            badge.onAttached(run);
+            doReturn(badge).when(run).getAction(M2ReleaseBadgeAction.class);
+        }
+        return run;
+    }
+}
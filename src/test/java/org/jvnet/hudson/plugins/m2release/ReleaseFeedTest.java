@@ -0,0 +1,132 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ReleaseFeedTest {
+
+    @Test
+    public void releasesAreNewestFirstAndFilteredByJob() {
+        ReleaseFeed feed = new ReleaseFeed(10);
+        Job a = mockJob("a");
+        Job b = mockJob("b");
+        Run a1 = mockRun(a, 1, 100L);
+        Run b1 = mockRun(b, 1, 200L);
+        Run a2 = mockRun(a, 2, 300L);
+        feed.add(a1);
+        feed.add(a2);
+        feed.add(b1);
+
+        List<Run> releases = feed.getRecentReleases(Arrays.asList(a, b), 20);
+        assertEquals(3, releases.size());
+        assertSame(a2, releases.get(0));
+        assertSame(b1, releases.get(1));
+        assertSame(a1, releases.get(2));
+
+        releases = feed.getRecentReleases(Collections.singletonList(a), 1);
+        assertEquals(1, releases.size());
+        assertSame(a2, releases.get(0));
+
+        feed.remove(a2);
+        assertSame(a1, feed.getRecentReleases(Collections.singletonList(a), 1).get(0));
+    }
+
+    @Test
+    public void feedIsBounded() {
+        ReleaseFeed feed = new ReleaseFeed(5);
+        Job job = mockJob("a");
+        for (int i = 1; i <= 8; i++) {
+            feed.add(mockRun(job, i, i * 100L));
+        }
+        // adding the same build again does not duplicate it
+        feed.add(mockRun(job, 8, 800L));
+
+        assertEquals(5, feed.size());
+        List<Run> releases = feed.getRecentReleases(Collections.singletonList(job), 20);
+        assertEquals(5, releases.size());
+        assertEquals(8, releases.get(0).getNumber());
+        assertEquals(4, releases.get(4).getNumber());
+    }
+
+    @Test
+    public void mergeKeepsTheNewestAcrossJobs() {
+        Map<String, List<ReleaseBuildIndex.Entry>> histories = new HashMap<String, List<ReleaseBuildIndex.Entry>>();
+        // job a released at 1000, 990, ... job b at 995, 985, ... job c long ago
+        histories.put("a", history(1000L, 10));
+        histories.put("b", history(995L, 10));
+        histories.put("c", history(10L, 10));
+
+        List<ReleaseFeed.Item> newest = ReleaseFeed.mergeNewest(histories, 4);
+        assertEquals(4, newest.size());
+        assertEquals("a", newest.get(0).getJobName());
+        assertEquals(10, newest.get(0).getNumber());
+        assertEquals("b", newest.get(1).getJobName());
+        assertEquals("a", newest.get(2).getJobName());
+        assertEquals(9, newest.get(2).getNumber());
+        assertEquals("b", newest.get(3).getJobName());
+        assertEquals(9, newest.get(3).getNumber());
+
+        assertEquals(0, ReleaseFeed.mergeNewest(histories, 0).size());
+        assertEquals(30, ReleaseFeed.mergeNewest(histories, 50).size());
+    }
+
+    /**
+     * @return <code>count</code> releases, newest first, the newest at <code>newest</code> and 10ms apart.
+     */
+    private static List<ReleaseBuildIndex.Entry> history(long newest, int count) {
+        List<ReleaseBuildIndex.Entry> releases = new ArrayList<ReleaseBuildIndex.Entry>();
+        for (int i = 0; i < count; i++) {
+            ReleaseSummary summary = new ReleaseSummary("1." + (count - i), null, false, Result.SUCCESS,
+                    newest - i * 10L, 0L, null);
+            releases.add(new ReleaseBuildIndex.Entry(count - i, summary, false));
+        }
+        return releases;
+    }
+
+    private static Job mockJob(String name) {
+        Job job = mock(Job.class);
+        doReturn(name).when(job).getFullName();
+        return job;
+    }
+
+    private static Run mockRun(Job job, int number, long timestamp) {
+        Run run = mock(Run.class);
+        doReturn(job).when(run).getParent();
+        doReturn(Integer.valueOf(number)).when(run).getNumber();
+        doReturn(Long.valueOf(timestamp)).when(run).getTimeInMillis();
+        doReturn(run).when(job).getBuildByNumber(number);
+        return run;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.queue.CauseOfBlockage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ReleaseGovernorTest {
+
+    private static final String NEXUS = "http://nexus/";
+
+    @After
+    public void reset() {
+        ReleaseGovernor.reset();
+    }
+
+    @Test
+    public void releasesOfTheSameRepositoryAreSerialized() {
+        assertNull(ReleaseGovernor.admit("a", 1, 0L, "git@host:org/repo#master", null, 0));
+        // asked again for another node.
+        assertNull(ReleaseGovernor.admit("a", 1, 0L, "git@host:org/repo#master", null, 0));
+
+        CauseOfBlockage blockage = ReleaseGovernor.admit("b", 2, 0L, "git@host:org/repo#master", null, 0);
+        assertNotNull(blockage);
+        assertTrue(blockage.getShortDescription().contains("release of a"));
+        assertNull(ReleaseGovernor.admit("c", 3, 0L, "git@host:org/other#master", null, 0));
+
+        ReleaseGovernor.started("a", 7, null, null, new PrintStream(new ByteArrayOutputStream()));
+        ReleaseGovernor.finished("a", 7);
+        assertNull(ReleaseGovernor.admit("b", 2, 0L, "git@host:org/repo#master", null, 0));
+    }
+
+    @Test
+    public void releasesAgainstANexusAreAdmittedInQueueOrder() {
+        assertNull(ReleaseGovernor.admit("a", 1, 100L, null, NEXUS, 2));
+        assertNull(ReleaseGovernor.admit("b", 2, 200L, null, NEXUS, 2));
+        assertEquals(2, ReleaseGovernor.getRunning(NEXUS));
+
+        // the later item is asked first, but the earlier one is ahead of it.
+        CauseOfBlockage later = ReleaseGovernor.admit("d", 4, 400L, null, NEXUS, 2);
+        assertTrue(later.getShortDescription().contains("position 1"));
+        CauseOfBlockage earlier = ReleaseGovernor.admit("c", 3, 300L, null, NEXUS, 2);
+        assertTrue(earlier.getShortDescription().contains("position 1"));
+        later = ReleaseGovernor.admit("d", 4, 400L, null, NEXUS, 2);
+        assertTrue(later.getShortDescription().contains("position 2"));
+
+        ReleaseGovernor.finished("a", 0);
+        assertNotNull(ReleaseGovernor.admit("d", 4, 400L, null, NEXUS, 2));
+        assertNull(ReleaseGovernor.admit("c", 3, 300L, null, NEXUS, 2));
+        // other servers are not limited.
+        assertNull(ReleaseGovernor.admit("e", 5, 500L, null, "http://other/", 2));
+    }
+
+    @Test
+    public void startedReleasesAreOnlyFreedByTheirOwnBuild() {
+        assertNull(ReleaseGovernor.admit("a", 1, 0L, null, NEXUS, 1));
+        ReleaseGovernor.started("a", 7, null, null, new PrintStream(new ByteArrayOutputStream()));
+        ReleaseGovernor.finished("a", 6);
+        assertEquals(1, ReleaseGovernor.getRunning(NEXUS));
+        ReleaseGovernor.finished("a", 7);
+        assertEquals(0, ReleaseGovernor.getRunning(NEXUS));
+    }
+
+    @Test
+    public void releasesStartedWithoutAdmissionCountAgainstTheLimits() {
+        // e.g. admitted before a restart
+        ReleaseGovernor.started("a", 7, "git@host:org/repo#master", NEXUS,
+                new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(1, ReleaseGovernor.getRunning(NEXUS));
+        assertNotNull(ReleaseGovernor.admit("b", 2, 0L, "git@host:org/repo#master", null, 0));
+        assertNotNull(ReleaseGovernor.admit("c", 3, 0L, null, NEXUS, 1));
+        ReleaseGovernor.finished("a", 7);
+        assertNull(ReleaseGovernor.admit("b", 2, 0L, "git@host:org/repo#master", null, 0));
+    }
+
+    @Test
+    public void releasesWaitForAResumedFinalization() {
+        assertTrue(ReleaseGovernor.resumeStarted("a"));
+        assertFalse(ReleaseGovernor.resumeStarted("a"));
+        CauseOfBlockage blockage = ReleaseGovernor.admit("a", 1, 0L, null, NEXUS, 1);
+        assertNotNull(blockage);
+        assertTrue(blockage.getShortDescription().contains("resumed"));
+        // other jobs are not affected.
+        assertNull(ReleaseGovernor.admit("b", 2, 0L, null, "http://other/", 1));
+        assertFalse(ReleaseGovernor.resumeStarted("b"));
+
+        ReleaseGovernor.resumeFinished("a");
+        assertNull(ReleaseGovernor.admit("a", 1, 0L, null, NEXUS, 1));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import hudson.model.Result;
+import hudson.model.Run;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.plugins.m2release.ReleaseJournal.Step;
+import org.jvnet.hudson.plugins.m2release.nexus.Stage;
+
+public class ReleaseJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void noJournalBeforeTheFinalization() throws Exception {
+        Run build = mockRun(folder.newFolder("build"));
+        assertNull(ReleaseJournal.forBuild(build));
+        assertFalse(ReleaseJournal.exists(build));
+    }
+
+    @Test
+    public void completedStepsSurviveARestart() throws Exception {
+        File rootDir = folder.newFolder("build");
+        ReleaseJournal journal = ReleaseJournal.start(mockRun(rootDir), "release-4.4.10-x001", "refs/heads/master",
+                "3b9f0e9b", "4.4.10", Result.SUCCESS);
+        journal.complete(Step.REVISION_WRITTEN);
+        journal.setReleaseBranchHead("a1b2c3d4");
+        journal.setStages(Arrays.asList(new Stage("12a3", "orgwso2-1001"), new Stage("45b6", "orgwso2-1002")));
+        journal.complete(Step.STAGES_CLOSED);
+        assertTrue(new File(rootDir, Constants.RELEASE_JOURNAL).isFile());
+
+        // a build object loaded after a restart reads the journal from disk
+        ReleaseJournal reloaded = ReleaseJournal.forBuild(mockRun(rootDir));
+        assertEquals("release-4.4.10-x001", reloaded.getReleaseBranch());
+        assertEquals("refs/heads/master", reloaded.getRemoteBranch());
+        assertEquals("3b9f0e9b", reloaded.getRemoteRevision());
+        assertEquals("4.4.10", reloaded.getReleaseVersion());
+        assertEquals("a1b2c3d4", reloaded.getReleaseBranchHead());
+        assertTrue(reloaded.isBuildSuccessful());
+        assertEquals(Arrays.asList(Step.REVISION_WRITTEN, Step.STAGES_FOUND, Step.STAGES_CLOSED),
+                reloaded.getCompleted());
+        assertFalse(reloaded.isDone(Step.STAGES_RELEASED));
+        assertFalse(reloaded.isFinished());
+
+        Iterator<Stage> stages = reloaded.getStages().iterator();
+        Stage first = stages.next();
+        assertEquals("12a3", first.getProfileID());
+        assertEquals("orgwso2-1001", first.getStageID());
+        assertEquals("orgwso2-1002", stages.next().getStageID());
+    }
+
+    @Test
+    public void failedBuildIsNotSuccessful() throws Exception {
+        ReleaseJournal journal = ReleaseJournal.start(mockRun(folder.newFolder("build")), "release-1.0-x001",
+                "refs/heads/master", "3b9f0e9b", "1.0", Result.FAILURE);
+        assertEquals(Result.FAILURE, journal.getBuildResult());
+        assertFalse(journal.isBuildSuccessful());
+        journal.complete(Step.FINISHED);
+        assertTrue(journal.isFinished());
+    }
+
+    private static Run mockRun(File rootDir) {
+        Run run = mock(Run.class);
+        doReturn(rootDir).when(run).getRootDir();
+        return run;
+    }
+}
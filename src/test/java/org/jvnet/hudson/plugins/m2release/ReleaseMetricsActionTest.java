@@ -0,0 +1,65 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.jvnet.hudson.plugins.m2release.ReleaseMetricsAction.Phase;
+import org.jvnet.hudson.plugins.m2release.nexus.NexusMetrics;
+
+public class ReleaseMetricsActionTest {
+
+    @Test
+    public void phasesAddUpPerBuildAndAreObservedOnceEach() {
+        long observed = ReleaseMetricsRootAction.getPhase(Phase.CLOSE_WAIT).getCount();
+        ReleaseMetricsAction metrics = new ReleaseMetricsAction();
+        assertEquals(-1L, metrics.getPhaseMillis(Phase.CLOSE_WAIT));
+
+        metrics.add(Phase.CLOSE_WAIT, 20000L);
+        metrics.add(Phase.CLOSE_WAIT, 5000L);
+        assertEquals(25000L, metrics.getPhaseMillis(Phase.CLOSE_WAIT));
+        assertEquals(1, metrics.getPhases().size());
+        assertEquals(observed + 2, ReleaseMetricsRootAction.getPhase(Phase.CLOSE_WAIT).getCount());
+    }
+
+    @Test
+    public void mavenIsOnlyRecordedOnceItWasStarted() {
+        ReleaseMetricsAction metrics = new ReleaseMetricsAction();
+        metrics.mavenFinished();
+        assertEquals(-1L, metrics.getPhaseMillis(Phase.MAVEN));
+        metrics.mavenStarted();
+        metrics.mavenFinished();
+        assertTrue(metrics.getPhaseMillis(Phase.MAVEN) >= 0L);
+    }
+
+    @Test
+    public void prometheusOutputHasAHistogramPerPhaseAndEndpoint() {
+        new ReleaseMetricsAction().add(Phase.KEEP_LOG, 2000L);
+        NexusMetrics.GLOBAL.record("GET staging/repository/{id}", 40L, true);
+
+        String text = ReleaseMetricsRootAction.toPrometheus();
+        assertTrue(text.contains("# TYPE m2release_phase_duration_seconds histogram\n"));
+        assertTrue(text.contains("m2release_phase_duration_seconds_bucket{phase=\"keep_log\",le=\"+Inf\"} "));
+        assertTrue(text.contains("m2release_phase_duration_seconds_count{phase=\"validation\"} "));
+        String endpoint = "endpoint=\"GET staging/repository/{id}\"";
+        assertTrue(text.contains("m2release_nexus_request_duration_seconds_bucket{" + endpoint + ",le=\"0.05\"} "));
+        assertTrue(text.contains("m2release_nexus_request_failures_total{" + endpoint + "} "));
+    }
+}
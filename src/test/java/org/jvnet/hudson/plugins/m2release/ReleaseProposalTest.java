@@ -0,0 +1,70 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReleaseProposalTest {
+
+    private MavenModuleSet project;
+    private MavenModule rootModule;
+
+    @Before
+    public void setUp() {
+        project = mock(MavenModuleSet.class);
+        rootModule = mock(MavenModule.class);
+        when(project.getRootModule()).thenReturn(rootModule);
+        when(rootModule.getName()).thenReturn("carbon-kernel");
+        when(rootModule.getVersion()).thenReturn("4.4.10-SNAPSHOT");
+    }
+
+    @Test
+    public void computesTheProposalOnce() {
+        M2ReleaseAction action = new M2ReleaseAction(project, false, false, false, false, false);
+        ReleaseProposal proposal = action.getProposal("");
+        assertEquals("4.4.10", proposal.getReleaseVersion());
+        assertEquals("4.4.11-SNAPSHOT", proposal.getNextVersion());
+        assertEquals(Constants.DEFAULT_SCM_TAG_PREFIX + "4.4.10", proposal.getScmTag());
+        assertEquals("carbon-kernel", proposal.getModuleName());
+
+        assertEquals("4.4.10", action.computeReleaseVersion());
+        assertEquals("4.4.11-SNAPSHOT", action.computeNextVersion());
+        assertSame(proposal, action.getProposal("4.4.10-SNAPSHOT"));
+    }
+
+    @Test
+    public void changedRootVersionRecomputes() {
+        M2ReleaseAction action = new M2ReleaseAction(project, false, false, false, false, false);
+        ReleaseProposal proposal = action.getProposal("");
+        when(rootModule.getVersion()).thenReturn("4.5.0-SNAPSHOT");
+        ReleaseProposal changed = action.getProposal("");
+        assertNotSame(proposal, changed);
+        assertEquals("4.5.0", changed.getReleaseVersion());
+        assertEquals("4.5.0", action.computeReleaseVersion());
+    }
+}
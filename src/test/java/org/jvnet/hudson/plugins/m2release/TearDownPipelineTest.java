@@ -0,0 +1,145 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.jvnet.hudson.plugins.m2release.TearDownPipeline.Outcome;
+
+public class TearDownPipelineTest {
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    private final TearDownPipeline pipeline = new TearDownPipeline(new PrintStream(log, true));
+
+    @Test
+    public void independentPhasesRunConcurrently() throws Exception {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        Callable<Boolean> waitForTheOther = new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                bothStarted.countDown();
+                return bothStarted.await(10, TimeUnit.SECONDS);
+            }
+        };
+        pipeline.add("git", waitForTheOther);
+        pipeline.add("nexus", waitForTheOther);
+        pipeline.add("push", succeed(), "git", "nexus");
+        pipeline.run();
+
+        assertEquals(Outcome.SUCCEEDED, pipeline.getOutcome("git"));
+        assertEquals(Outcome.SUCCEEDED, pipeline.getOutcome("nexus"));
+        assertEquals(Outcome.SUCCEEDED, pipeline.getOutcome("push"));
+        assertTrue(log.toString().contains("tearDown phase push succeeded in"));
+    }
+
+    @Test
+    public void failedPhaseSkipsItsDependents() throws Exception {
+        pipeline.add("git", succeed());
+        pipeline.add("nexus", new Callable<Boolean>() {
+            public Boolean call() {
+                return false;
+            }
+        });
+        pipeline.add("push", succeed(), "git", "nexus");
+        pipeline.add("tag", succeed(), "push");
+        pipeline.run();
+
+        assertEquals(Outcome.SUCCEEDED, pipeline.getOutcome("git"));
+        assertEquals(Outcome.FAILED, pipeline.getOutcome("nexus"));
+        assertNull(pipeline.getFailure("nexus"));
+        assertEquals(Outcome.SKIPPED, pipeline.getOutcome("push"));
+        assertEquals(Outcome.SKIPPED, pipeline.getOutcome("tag"));
+    }
+
+    @Test
+    public void exceptionIsKept() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("merge conflict");
+        pipeline.add("git", new Callable<Boolean>() {
+            public Boolean call() {
+                throw failure;
+            }
+        });
+        pipeline.run();
+
+        assertEquals(Outcome.FAILED, pipeline.getOutcome("git"));
+        assertEquals(failure, pipeline.getFailure("git"));
+    }
+
+    @Test
+    public void interruptWaitsForTheRunningPhases() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean cleanedUp = new AtomicBoolean();
+        pipeline.add("nexus", new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                    return true;
+                } finally {
+                    // e.g. hand back a permit that was acquired just before the interrupt
+                    long end = System.currentTimeMillis() + 200;
+                    while (System.currentTimeMillis() < end) {
+                        Thread.yield();
+                    }
+                    cleanedUp.set(true);
+                }
+            }
+        });
+        final Thread runner = Thread.currentThread();
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    started.await();
+                    runner.interrupt();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        }.start();
+        try {
+            pipeline.run();
+            fail("the pipeline should have been interrupted");
+        } catch (InterruptedException e) {
+            assertTrue(cleanedUp.get());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDependency() {
+        pipeline.add("push", succeed(), "git");
+    }
+
+    private static Callable<Boolean> succeed() {
+        return new Callable<Boolean>() {
+            public Boolean call() {
+                return true;
+            }
+        };
+    }
+}
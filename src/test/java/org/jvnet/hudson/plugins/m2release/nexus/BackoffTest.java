@@ -0,0 +1,55 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class BackoffTest {
+
+	@Test
+	public void delayGrowsExponentiallyUpToTheMaximum() {
+		Backoff backoff = new Backoff(100L, 1000L, 2.0d, 0.0d);
+		assertThat(backoff.getDelay(0), is(100L));
+		assertThat(backoff.getDelay(1), is(200L));
+		assertThat(backoff.getDelay(3), is(800L));
+		assertThat(backoff.getDelay(4), is(1000L));
+		assertThat(backoff.getDelay(100), is(1000L));
+	}
+
+
+	@Test
+	public void jitterOnlyShortensTheDelay() {
+		Backoff backoff = new Backoff(1000L, 1000L, 1.0d, 0.5d);
+		for (int i = 0; i < 100; i++) {
+			long delay = backoff.getDelay(i);
+			assertThat(delay, greaterThanOrEqualTo(500L));
+			assertThat(delay, lessThanOrEqualTo(1000L));
+		}
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsShrinkingDelays() {
+		new Backoff(100L, 1000L, 0.5d, 0.0d);
+	}
+}
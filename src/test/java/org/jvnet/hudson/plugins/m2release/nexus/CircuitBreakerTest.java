@@ -0,0 +1,89 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+	@After
+	public void resetBreakers() {
+		CircuitBreaker.configure(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.DEFAULT_OPEN_TIME);
+		CircuitBreaker.reset();
+	}
+
+
+	@Test
+	public void breakersAreSharedPerURL() throws Exception {
+		URL url = new URL("http://localhost/nexus/");
+		assertThat(CircuitBreaker.forURL(url), sameInstance(CircuitBreaker.forURL(new URL("http://localhost/nexus/"))));
+	}
+
+
+	@Test
+	public void opensAfterConsecutiveFailures() {
+		CircuitBreaker.configure(3, 60000L);
+		CircuitBreaker breaker = new CircuitBreaker("http://localhost/nexus/");
+		breaker.recordFailure();
+		breaker.recordFailure();
+		breaker.recordSuccess();
+		breaker.recordFailure();
+		breaker.recordFailure();
+		assertTrue(breaker.allowRequest());
+		breaker.recordFailure();
+		assertTrue(breaker.isOpen());
+		assertFalse(breaker.allowRequest());
+	}
+
+
+	@Test
+	public void letsASingleProbeThroughOnceTheOpenTimeHasPassed() {
+		CircuitBreaker.configure(1, 0L);
+		CircuitBreaker breaker = new CircuitBreaker("http://localhost/nexus/");
+		breaker.recordFailure();
+		assertTrue(breaker.isOpen());
+		assertTrue(breaker.allowRequest());
+		assertFalse(breaker.allowRequest());
+		breaker.recordFailure();
+		assertTrue(breaker.isOpen());
+		assertTrue(breaker.allowRequest());
+		breaker.recordSuccess();
+		assertFalse(breaker.isOpen());
+		assertTrue(breaker.allowRequest());
+		assertTrue(breaker.allowRequest());
+	}
+
+
+	@Test
+	public void thresholdOfZeroNeverOpens() {
+		CircuitBreaker.configure(0, 60000L);
+		CircuitBreaker breaker = new CircuitBreaker("http://localhost/nexus/");
+		for (int i = 0; i < 100; i++) {
+			breaker.recordFailure();
+		}
+		assertFalse(breaker.isOpen());
+	}
+}
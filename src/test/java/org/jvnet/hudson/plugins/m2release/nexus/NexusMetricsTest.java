@@ -0,0 +1,78 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.net.URL;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class NexusMetricsTest {
+
+	@Test
+	public void endpointsHideTheStageAndProfileIDs() throws Exception {
+		URL nexusURL = new URL("http://localhost/nexus/");
+		assertThat(NexusMetrics.endpointOf("GET", nexusURL,
+		                                   new URL(nexusURL, "service/local/staging/repository/abc-1001/activity")),
+		           is("GET staging/repository/{id}/activity"));
+		assertThat(NexusMetrics.endpointOf("POST", nexusURL,
+		                                   new URL(nexusURL, "service/local/staging/profiles/12ab/finish")),
+		           is("POST staging/profiles/{id}/finish"));
+		URL content = new URL(nexusURL, "service/local/repositories/abc-1001/content/org/foo/1.0/?isLocal");
+		assertThat(NexusMetrics.endpointOf("HEAD", nexusURL, content), is("HEAD repositories/{id}/content"));
+		assertThat(NexusMetrics.endpointOf("GET", nexusURL, new URL(nexusURL, "service/local/status?perms=1")),
+		           is("GET status"));
+	}
+
+
+	@Test
+	public void histogramCountsObservationsUpToEachBound() {
+		LatencyHistogram histogram = new LatencyHistogram(new long[] {10L, 100L});
+		histogram.record(5L);
+		histogram.record(10L);
+		histogram.record(50L);
+		histogram.record(500L);
+		assertArrayEquals(new long[] {2L, 3L, 4L}, histogram.getCumulativeCounts());
+		assertThat(histogram.getCount(), is(4L));
+		assertThat(histogram.getSum(), is(565L));
+		assertThat(histogram.getMax(), is(500L));
+	}
+
+
+	@Test
+	public void addMergesEndpointsAndFailures() {
+		NexusMetrics build = new NexusMetrics();
+		build.record("GET status", 20L, false);
+		NexusMetrics client = new NexusMetrics();
+		client.record("GET status", 30L, true);
+		client.record("POST staging/bulk/close", 200L, false);
+
+		build.add(client);
+		assertThat(build.getLatencies().size(), is(2));
+		assertThat(build.getLatencies().get("GET status").getCount(), is(2L));
+		assertThat(build.getLatencies().get("GET status").getSum(), is(50L));
+		assertThat(build.getFailures("GET status"), is(1L));
+		assertThat(build.getFailures("POST staging/bulk/close"), is(0L));
+		// the merged metrics are copies.
+		client.record("GET status", 30L, true);
+		assertThat(build.getLatencies().get("GET status").getCount(), is(2L));
+	}
+}
@@ -0,0 +1,392 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process simulation of the parts of the Nexus Pro REST API that the {@link StageClient} uses: the status,
+ * the staging repositories and their activity, the staging actions (single and bulk) and browsing the content of a
+ * staging repository. Requests can be slowed down, staging actions take a configurable time to finish
+ * transitioning and a fraction of the requests can be failed with a <code>503</code> to simulate a flaky server.
+ */
+@SuppressWarnings("restriction")
+public class NexusStagingSimulator {
+
+	private static final Pattern STAGE_ID = Pattern.compile("<(?:stagedRepositoryId|string)>([^<]+)</");
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Map<String, SimulatedStage> stages = new LinkedHashMap<String, SimulatedStage>();
+	private final Random random = new Random(42L);
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private volatile long latency;
+	private volatile long transitionDuration;
+	private volatile double failureRate;
+	private volatile boolean failReadsOnly;
+
+
+	public NexusStagingSimulator() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+		executor = Executors.newFixedThreadPool(32);
+		server.setExecutor(executor);
+		server.createContext("/nexus/", new HttpHandler() {
+
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					dispatch(exchange);
+				}
+				catch (RuntimeException ex) {
+					respond(exchange, 500, "<error>" + ex + "</error>");
+				}
+				finally {
+					exchange.close();
+				}
+			}
+		});
+	}
+
+
+	public void start() {
+		server.start();
+	}
+
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+
+	/**
+	 * @return the base URL of the simulated Nexus server.
+	 */
+	public URL getURL() throws IOException {
+		return new URL("http", "127.0.0.1", server.getAddress().getPort(), "/nexus/");
+	}
+
+
+	/**
+	 * @param latency time in milliseconds every request takes before it is answered.
+	 */
+	public void setLatency(long latency) {
+		this.latency = latency;
+	}
+
+
+	/**
+	 * @param transitionDuration time in milliseconds a stage is transitioning after a staging action.
+	 */
+	public void setTransitionDuration(long transitionDuration) {
+		this.transitionDuration = transitionDuration;
+	}
+
+
+	/**
+	 * @param failureRate fraction (0 to 1) of requests that are answered with a <code>503</code>.
+	 */
+	public void setFailureRate(double failureRate) {
+		this.failureRate = failureRate;
+	}
+
+
+	/**
+	 * @param failReadsOnly <code>true</code> to only fail GET and HEAD requests, e.g. to check that the retries of
+	 *           the client hide the failures.
+	 */
+	public void setFailReadsOnly(boolean failReadsOnly) {
+		this.failReadsOnly = failReadsOnly;
+	}
+
+
+	/**
+	 * Add an open stage holding the given GAV.
+	 * 
+	 * @return the new stage.
+	 */
+	public synchronized Stage addOpenStage(String profileID, String groupID, String artifactID, String version,
+	                                       String userID) {
+		String stageID = profileID + '-' + (1000 + stages.size());
+		stages.put(stageID, new SimulatedStage(profileID, stageID, groupID, artifactID, version, userID));
+		return new Stage(profileID, stageID, userID, "127.0.0.1", null);
+	}
+
+
+	/**
+	 * @return the state of the stage ("open", "closed", "released" or "dropped").
+	 */
+	public synchronized String getState(String stageID) {
+		return stages.get(stageID).state;
+	}
+
+
+	/**
+	 * @return the number of requests the server has received.
+	 */
+	public int getRequestCount() {
+		return requests.get();
+	}
+
+
+	private void dispatch(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		if (latency > 0) {
+			try {
+				Thread.sleep(latency);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		String method = exchange.getRequestMethod();
+		boolean read = "GET".equals(method) || "HEAD".equals(method);
+		if (failureRate > 0 && (read || !failReadsOnly) && nextDouble() < failureRate) {
+			respond(exchange, 503, "<error>Service Unavailable</error>");
+			return;
+		}
+		String path = exchange.getRequestURI().getPath().substring("/nexus/service/local/".length());
+		String[] parts = path.split("/");
+
+		if (path.equals("status")) {
+			respond(exchange, 200, statusXML());
+		}
+		else if (path.equals("staging/profile_repositories")) {
+			respond(exchange, 200, profileRepositoriesXML(null));
+		}
+		else if (path.startsWith("staging/profile_repositories/")) {
+			respond(exchange, 200, profileRepositoriesXML(parts[2]));
+		}
+		else if (path.equals("staging/profile_evaluate")) {
+			respond(exchange, 200, profileEvaluateXML(getQueryParameter(exchange, "g")));
+		}
+		else if (path.startsWith("staging/repository/") && parts.length == 3) {
+			SimulatedStage stage = getStage(parts[2]);
+			respond(exchange, stage == null ? 404 : 200, stage == null ? "" : stage.toXML());
+		}
+		else if (path.startsWith("staging/repository/") && parts.length == 4 && parts[3].equals("activity")) {
+			SimulatedStage stage = getStage(parts[2]);
+			respond(exchange, stage == null ? 404 : 200, stage == null ? "" : stage.activityXML());
+		}
+		else if (method.equals("POST") && path.startsWith("staging/profiles/")) {
+			respond(exchange, performAction(parts[3], readBody(exchange)), "");
+		}
+		else if (method.equals("POST") && path.startsWith("staging/bulk/")) {
+			respond(exchange, performAction(parts[2], readBody(exchange)), "");
+		}
+		else if (path.startsWith("repositories/") && parts.length > 2 && parts[2].equals("content")) {
+			SimulatedStage stage = getStage(parts[1]);
+			boolean found = stage != null && stage.contains(path.substring(path.indexOf("/content/") + 9));
+			respond(exchange, found ? 200 : 404, "");
+		}
+		else {
+			respond(exchange, 404, "");
+		}
+	}
+
+
+	private synchronized double nextDouble() {
+		return random.nextDouble();
+	}
+
+
+	private synchronized SimulatedStage getStage(String stageID) {
+		SimulatedStage stage = stages.get(stageID);
+		return (stage == null || stage.state.equals("dropped")) ? null : stage;
+	}
+
+
+	private synchronized int performAction(String action, String body) {
+		List<SimulatedStage> targets = new ArrayList<SimulatedStage>();
+		Matcher matcher = STAGE_ID.matcher(body);
+		while (matcher.find()) {
+			SimulatedStage stage = stages.get(matcher.group(1));
+			if (stage == null || stage.isTransitioning()) {
+				return 400;
+			}
+			targets.add(stage);
+		}
+		String newState;
+		if (action.equals("finish") || action.equals("close")) {
+			newState = "closed";
+		}
+		else if (action.equals("promote")) {
+			newState = "released";
+		}
+		else if (action.equals("drop")) {
+			newState = "dropped";
+		}
+		else {
+			return 404;
+		}
+		for (SimulatedStage stage : targets) {
+			stage.state = newState;
+			stage.transitionEnd = System.currentTimeMillis() + transitionDuration;
+		}
+		return targets.isEmpty() ? 400 : 201;
+	}
+
+
+	private String statusXML() {
+		StringBuilder sb = new StringBuilder("<status><data><version>2.5.0-04</version>");
+		sb.append("<clientPermissions><permissions>");
+		for (String perm : new String[] {"nexus:stagingprofiles", "nexus:stagingfinish", "nexus:stagingprofilerepos",
+		                                 "nexus:stagingpromote", "nexus:stagingdrop"}) {
+			sb.append("<permission><id>").append(perm).append("</id><value>15</value></permission>");
+		}
+		return sb.append("</permissions></clientPermissions></data></status>").toString();
+	}
+
+
+	private synchronized String profileRepositoriesXML(String profileID) {
+		StringBuilder sb = new StringBuilder("<stagingRepositories><data>");
+		for (SimulatedStage stage : stages.values()) {
+			if (!stage.state.equals("dropped") && (profileID == null || profileID.equals(stage.profileID))) {
+				sb.append(stage.toXML());
+			}
+		}
+		return sb.append("</data></stagingRepositories>").toString();
+	}
+
+
+	private synchronized String profileEvaluateXML(String groupID) {
+		StringBuilder sb = new StringBuilder("<stagingProfiles><data>");
+		List<String> profiles = new ArrayList<String>();
+		for (SimulatedStage stage : stages.values()) {
+			if (stage.groupID.equals(groupID) && !profiles.contains(stage.profileID)) {
+				profiles.add(stage.profileID);
+				sb.append("<stagingProfile><id>").append(stage.profileID).append("</id></stagingProfile>");
+			}
+		}
+		return sb.append("</data></stagingProfiles>").toString();
+	}
+
+
+	private static String getQueryParameter(HttpExchange exchange, String name) {
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (String param : query.split("&")) {
+				if (param.startsWith(name + '=')) {
+					return param.substring(name.length() + 1);
+				}
+			}
+		}
+		return null;
+	}
+
+
+	private static String readBody(HttpExchange exchange) throws IOException {
+		InputStream in = exchange.getRequestBody();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int len;
+		while ((len = in.read(buf)) != -1) {
+			out.write(buf, 0, len);
+		}
+		return out.toString("UTF-8");
+	}
+
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		if (exchange.getRequestMethod().equals("HEAD") || body.length() == 0) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		byte[] data = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().add("Content-Type", "application/xml");
+		exchange.sendResponseHeaders(status, data.length);
+		OutputStream os = exchange.getResponseBody();
+		os.write(data);
+		os.close();
+	}
+
+
+	/**
+	 * The state of a simulated staging repository, guarded by the simulator.
+	 */
+	private static final class SimulatedStage {
+
+		private final String profileID;
+		private final String stageID;
+		private final String groupID;
+		private final String artifactID;
+		private final String version;
+		private final String userID;
+		private String state = "open";
+		private long transitionEnd;
+
+
+		SimulatedStage(String profileID, String stageID, String groupID, String artifactID, String version,
+		               String userID) {
+			this.profileID = profileID;
+			this.stageID = stageID;
+			this.groupID = groupID;
+			this.artifactID = artifactID;
+			this.version = version;
+			this.userID = userID;
+		}
+
+
+		boolean isTransitioning() {
+			return System.currentTimeMillis() < transitionEnd;
+		}
+
+
+		boolean contains(String contentPath) {
+			String gavPath = groupID.replace('.', '/') + '/' + artifactID + '/';
+			return contentPath.equals(gavPath) || contentPath.equals(gavPath + version + '/');
+		}
+
+
+		String toXML() {
+			return "<stagingProfileRepository><profileId>" + profileID + "</profileId><repositoryId>" + stageID
+			       + "</repositoryId><type>" + state + "</type><userId>" + userID
+			       + "</userId><ipAddress>127.0.0.1</ipAddress><transitioning>" + isTransitioning() + "</transitioning></stagingProfileRepository>";
+		}
+
+
+		String activityXML() {
+			StringBuilder sb = new StringBuilder("<list>");
+			if (!state.equals("open")) {
+				sb.append("<stagingActivity><name>close</name><events><stagingActivityEvent>");
+				sb.append("<name>repositoryClosed</name><properties/></stagingActivityEvent></events>");
+				sb.append("</stagingActivity>");
+			}
+			return sb.append("</list>").toString();
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryPolicyTest {
+
+	private static final RetryPolicy POLICY = new RetryPolicy(3, new Backoff(1L, 1L, 1.0d, 0.0d));
+
+
+	@After
+	public void resetBreakers() {
+		CircuitBreaker.configure(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.DEFAULT_OPEN_TIME);
+		CircuitBreaker.reset();
+	}
+
+
+	@Test
+	public void classifiesFailures() {
+		assertTrue(RetryPolicy.isTransient(new IOException("Connection reset")));
+		assertTrue(RetryPolicy.isTransient(new SocketTimeoutException("Read timed out")));
+		assertTrue(RetryPolicy.isTransient(new StageException("Service Unavailable", 503)));
+		assertTrue(RetryPolicy.isTransient(new StageException("wrapped", new StageException("Too Many", 429))));
+		assertFalse(RetryPolicy.isTransient(new StageException("Incorrect username / password supplied.", 401)));
+		assertFalse(RetryPolicy.isTransient(new StageException("Closing stage failed.", true)));
+		assertFalse(RetryPolicy.isTransient(new StageException("Interrupted", new InterruptedException())));
+	}
+
+
+	@Test
+	public void retriesTransientFailuresUntilTheOperationSucceeds() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+		String result = POLICY.execute("test", null, new RetryPolicy.Operation<String>() {
+
+			public String call() throws IOException {
+				if (calls.incrementAndGet() < 3) {
+					throw new StageException("Service Unavailable", 503);
+				}
+				return "done";
+			}
+		});
+		assertThat(result, is("done"));
+		assertThat(calls.get(), is(3));
+	}
+
+
+	@Test
+	public void doesNotRetryPermanentFailures() {
+		final AtomicInteger calls = new AtomicInteger();
+		try {
+			POLICY.execute("test", null, new RetryPolicy.Operation<Void>() {
+
+				public Void call() throws IOException {
+					calls.incrementAndGet();
+					throw new StageException("Incorrect username / password supplied.", 401);
+				}
+			});
+			fail("expected the failure to be thrown");
+		}
+		catch (StageException ex) {
+			assertThat(ex.getStatus(), is(401));
+		}
+		assertThat(calls.get(), is(1));
+	}
+
+
+	@Test
+	public void throwsTheLastFailureOnceAllAttemptsFailed() {
+		final AtomicInteger calls = new AtomicInteger();
+		final AtomicInteger retries = new AtomicInteger();
+		try {
+			POLICY.execute("test", null, new RetryPolicy.Operation<Void>() {
+
+				public Void call() throws IOException {
+					throw new IOException("failure " + calls.incrementAndGet());
+				}
+			}, new RetryPolicy.Listener() {
+
+				public void retrying(int attempt, long delay, StageException cause) {
+					assertThat(attempt, is(retries.incrementAndGet()));
+				}
+			});
+			fail("expected the failure to be thrown");
+		}
+		catch (StageException ex) {
+			assertThat(ex.getMessage(), is("failure 3"));
+		}
+		assertThat(calls.get(), is(3));
+		assertThat(retries.get(), is(2));
+	}
+
+
+	@Test
+	public void openBreakerFailsFastWithoutCallingTheServer() throws Exception {
+		CircuitBreaker.configure(2, 60000L);
+		CircuitBreaker breaker = new CircuitBreaker("http://localhost/nexus/");
+		final AtomicInteger calls = new AtomicInteger();
+		RetryPolicy policy = new RetryPolicy(5, new Backoff(1L, 1L, 1.0d, 0.0d));
+		try {
+			policy.execute("test", breaker, new RetryPolicy.Operation<Void>() {
+
+				public Void call() throws IOException {
+					calls.incrementAndGet();
+					throw new IOException("down");
+				}
+			});
+			fail("expected the failure to be thrown");
+		}
+		catch (StageException ex) {
+			assertTrue(breaker.isOpen());
+		}
+		assertThat(calls.get(), is(2));
+	}
+
+
+	@Test
+	public void localConnectionTimeoutsDoNotOpenTheBreaker() throws Exception {
+		CircuitBreaker.configure(1, 60000L);
+		CircuitBreaker breaker = new CircuitBreaker("http://localhost/nexus/");
+		try {
+			POLICY.execute("test", breaker, new RetryPolicy.Operation<Void>() {
+
+				public Void call() throws IOException {
+					throw new NoFreeConnectionException("Timed out waiting for a free connection to localhost");
+				}
+			});
+			fail("expected the failure to be thrown");
+		}
+		catch (NoFreeConnectionException ex) {
+			assertFalse(breaker.isOpen());
+		}
+	}
+
+
+	@Test
+	public void unexpectedFailuresOfAProbeLetTheNextOneThrough() throws Exception {
+		CircuitBreaker.configure(1, 0L);
+		CircuitBreaker breaker = new CircuitBreaker("http://localhost/nexus/");
+		breaker.recordFailure();
+		try {
+			POLICY.execute("test", breaker, new RetryPolicy.Operation<Void>() {
+
+				public Void call() {
+					throw new IllegalStateException("bug");
+				}
+			});
+			fail("expected the failure to be thrown");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(breaker.allowRequest());
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Drives concurrent releases against a {@link NexusStagingSimulator} and reports throughput and latency. Every
+ * release performs the same sequence of staging calls as a release build: find the open stage of its GAV, close it
+ * and release it.
+ */
+public class StageClientLoadTest {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StageClientLoadTest.class);
+
+	private static final int PROFILES = 10;
+
+	private static final int STAGES = 200;
+
+	private static final int RELEASES = 10;
+
+	private NexusStagingSimulator simulator;
+
+
+	@Before
+	public void startSimulator() throws Exception {
+		NexusCapabilityCache.clear();
+		simulator = new NexusStagingSimulator();
+		simulator.setLatency(2L);
+		simulator.setTransitionDuration(50L);
+		simulator.start();
+		// stages of other users and other GAVs that the lookups have to skip.
+		for (int i = RELEASES; i < STAGES; i++) {
+			simulator.addOpenStage("profile" + (i % PROFILES), "com.example.group" + (i % PROFILES), "other" + i,
+			                       "1.0", i % 2 == 0 ? "username" : "someoneelse");
+		}
+	}
+
+
+	@After
+	public void stopSimulator() {
+		simulator.stop();
+		NexusCapabilityCache.clear();
+	}
+
+
+	/**
+	 * Tests that concurrent releases all close and release their own stage.
+	 */
+	@Test
+	public void concurrentReleases() throws Exception {
+		List<Stage> stages = addReleaseStages();
+		LoadResult result = runReleases();
+		LOGGER.info("Reliable server: {}", result);
+
+		assertThat(result.failures, is(0));
+		for (Stage stage : stages) {
+			assertThat(simulator.getState(stage.getStageID()), is("released"));
+		}
+	}
+
+
+	/**
+	 * Tests that the retry policy hides the failed reads of a flaky server: every release still closes and releases
+	 * its stage. Staging actions are not retried by the client, so only reads are failed.
+	 */
+	@Test
+	public void concurrentReleasesAgainstFlakyServer() throws Exception {
+		List<Stage> stages = addReleaseStages();
+		simulator.setFailureRate(0.05d);
+		simulator.setFailReadsOnly(true);
+		LoadResult result = runReleases();
+		LOGGER.info("Flaky server: {}", result);
+
+		assertThat(result.failures, is(0));
+		for (Stage stage : stages) {
+			assertThat(simulator.getState(stage.getStageID()), is("released"));
+		}
+	}
+
+
+	/**
+	 * Tests that failed staging actions, which are not retried, only fail the releases they hit.
+	 */
+	@Test
+	public void failedStagingActionsOnlyFailTheirRelease() throws Exception {
+		List<Stage> stages = addReleaseStages();
+		simulator.setFailureRate(0.02d);
+		LoadResult result = runReleases();
+		LOGGER.info("Flaky server: {}", result);
+
+		int released = 0;
+		for (Stage stage : stages) {
+			if ("released".equals(simulator.getState(stage.getStageID()))) {
+				released++;
+			}
+		}
+		// a release fails when one of its two staging actions does, the reads are retried.
+		assertThat(result.failures, is(RELEASES - released));
+		assertThat(result.failures, lessThanOrEqualTo(RELEASES / 2));
+	}
+
+
+	private List<Stage> addReleaseStages() {
+		List<Stage> stages = new ArrayList<Stage>();
+		for (int i = 0; i < RELEASES; i++) {
+			stages.add(simulator.addOpenStage("profile" + (i % PROFILES), "com.example.group" + (i % PROFILES),
+			                                  "app" + i, "1.0", "username"));
+		}
+		return stages;
+	}
+
+
+	private LoadResult runReleases() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(RELEASES);
+		try {
+			List<Future<Long>> futures = new ArrayList<Future<Long>>();
+			long start = System.nanoTime();
+			for (int i = 0; i < RELEASES; i++) {
+				futures.add(executor.submit(new Release("com.example.group" + (i % PROFILES), "app" + i, "1.0")));
+			}
+			LoadResult result = new LoadResult();
+			for (Future<Long> future : futures) {
+				try {
+					result.latencies.add(future.get(2, TimeUnit.MINUTES));
+				}
+				catch (ExecutionException ex) {
+					result.failures++;
+				}
+			}
+			result.elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			result.requests = simulator.getRequestCount();
+			return result;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * A single release of a GAV, returning its duration in milliseconds.
+	 */
+	private class Release implements Callable<Long> {
+
+		private final String groupID;
+		private final String artifactID;
+		private final String version;
+
+
+		Release(String groupID, String artifactID, String version) {
+			this.groupID = groupID;
+			this.artifactID = artifactID;
+			this.version = version;
+		}
+
+
+		public Long call() throws Exception {
+			long start = System.nanoTime();
+			StageClient client = new StageClient(simulator.getURL(), "username", "password");
+			client.setActionBackoff(new Backoff(10L, 100L, 2.0d, 0.25d));
+			client.setActionTimeout(TimeUnit.SECONDS.toMillis(30));
+			Stage stage = client.findOpenStage(groupID, artifactID, version, null);
+			if (stage == null) {
+				throw new StageException("No open stage found for " + groupID + ':' + artifactID + ':' + version);
+			}
+			client.closeStage(stage, "Load test release of " + artifactID);
+			client.releaseStage(stage, "Load test release of " + artifactID);
+			return Long.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+
+	private static class LoadResult {
+
+		private final List<Long> latencies = new ArrayList<Long>();
+		private int failures;
+		private long elapsed;
+		private int requests;
+
+
+		private long percentile(int percent) {
+			if (latencies.isEmpty()) {
+				return 0L;
+			}
+			List<Long> sorted = new ArrayList<Long>(latencies);
+			Collections.sort(sorted);
+			int index = (int) Math.ceil(percent / 100.0d * sorted.size()) - 1;
+			return sorted.get(Math.max(index, 0)).longValue();
+		}
+
+
+		@Override
+		public String toString() {
+			double throughput = elapsed == 0 ? 0 : latencies.size() * 1000.0d / elapsed;
+			return String.format("%d releases (%d failed) in %dms, %.1f releases/s, p50=%dms, p99=%dms, %d requests",
+			                     Integer.valueOf(latencies.size() + failures), Integer.valueOf(failures),
+			                     Long.valueOf(elapsed), Double.valueOf(throughput), Long.valueOf(percentile(50)),
+			                     Long.valueOf(percentile(99)), Integer.valueOf(requests));
+		}
+	}
+}
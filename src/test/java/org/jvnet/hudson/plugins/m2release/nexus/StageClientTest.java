@@ -14,18 +14,23 @@
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -41,9 +46,11 @@
 import com.sun.net.httpserver.HttpServer;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.hasXPath;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
@@ -57,6 +64,7 @@
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -73,28 +81,81 @@ public StageClientTest() throws MalformedURLException {
 	}
 
 
+	@Before
+	public void clearCapabilityCache() {
+		NexusCapabilityCache.clear();
+	}
+
+
 	/**
 	 * Tests that the wait successfully blocks until the repository is no longer transitioning
 	 */
 	@Test
 	public void waitForActionToCompleteTest() throws Exception {
-		final Document transitioning = getDocument("stageClientTest/repository__transitioning.xml");
-		final Document transitioned = getDocument("stageClientTest/repository__transitioned.xml");
+		final Answer<Object> transitioning = respondWith("stageClientTest/repository__transitioning.xml");
+		final Answer<Object> transitioned = respondWith("stageClientTest/repository__transitioned.xml");
 
 		StageClient spy = spy(new StageClient(testURL, "username", "password"));
 
-		doAnswer(new Answer<Document>() {
+		doAnswer(new Answer<Object>() {
 
 			private int calls = 1;
 
 
-			public Document answer(InvocationOnMock invocation) {
-				return (calls++ % 3 == 0) ? transitioned : transitioning;
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				return (calls++ % 3 == 0) ? transitioned.answer(invocation) : transitioning.answer(invocation);
 			}
-		}).when(spy).getDocument(any(URL.class));
+		}).when(spy).getResponse(any(URL.class), any(StagingResponseParser.class));
 		spy.waitForActionToComplete(testStage);
 
-		verify(spy, times(3)).getDocument(any(URL.class));
+		verify(spy, times(3)).getResponse(any(URL.class), any(StagingResponseParser.class));
+		assertThat(spy.getLastWaitStatistics().getPolls(), is(3));
+	}
+
+
+	/**
+	 * Tests that the wait gives up once the action timeout has passed.
+	 */
+	@Test
+	public void waitForActionToCompleteTimesOut() throws Exception {
+		StageClient spy = spy(new StageClient(testURL, "username", "password"));
+		doAnswer(respondWith("stageClientTest/repository__transitioning.xml")).when(spy)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
+		spy.setActionBackoff(new Backoff(10L, 20L, 2.0d, 0.0d));
+		spy.setActionTimeout(100L);
+
+		try {
+			spy.waitForActionToComplete(testStage);
+			fail("Exception should have been thrown");
+		}
+		catch (StageException ex) {
+			assertThat(ex.getMessage(), containsString("Timed out"));
+		}
+		assertThat(spy.getLastWaitStatistics().getPolls(), greaterThan(1));
+	}
+
+
+	/**
+	 * Tests that the wait stops straight away if the thread is interrupted and leaves the thread interrupted.
+	 */
+	@Test
+	public void waitForActionToCompleteInterrupted() throws Exception {
+		StageClient spy = spy(new StageClient(testURL, "username", "password"));
+		doAnswer(respondWith("stageClientTest/repository__transitioning.xml")).when(spy)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
+
+		Thread.currentThread().interrupt();
+		try {
+			spy.waitForActionToComplete(testStage);
+			fail("Exception should have been thrown");
+		}
+		catch (StageException ex) {
+			assertThat(ex.getCause(), is(instanceOf(InterruptedException.class)));
+		}
+		finally {
+			assertThat(Thread.interrupted(), is(true));
+		}
+		verify(spy, never()).getResponse(any(URL.class), any(StagingResponseParser.class));
 	}
 
 
@@ -104,13 +165,13 @@ public Document answer(InvocationOnMock invocation) {
 	 */
 	@Test
 	public void closeFailureThrowsExceptionTest() throws Exception {
-		Document doc = getDocument("stageClientTest/activity__closed_failed.xml");
 
 		StageClient spy = spy(new StageClient(new URL("http://localhost:1234/nexus/"), "username", "password"));
 
 		doNothing().when(spy).performStageAction(any(StageAction.class), same(testStage), any(String.class));
 		doNothing().when(spy).waitForActionToComplete(testStage);
-		doReturn(doc).when(spy).getDocument(any(URL.class));
+		doAnswer(respondWith("stageClientTest/activity__closed_failed.xml")).when(spy)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
 		doReturn(Boolean.TRUE).when(spy).isAsyncClose();
 		try {
 			spy.closeStage(testStage, "myDescription");
@@ -132,13 +193,13 @@ public void closeFailureThrowsExceptionTest() throws Exception {
 	 */
 	@Test
 	public void closeSucessTest() throws Exception {
-		Document doc = getDocument("stageClientTest/activity__closed_ok.xml");
 
 		StageClient spy = spy(new StageClient(new URL("http://localhost:1234/nexus"), "username", "password"));
 
 		doNothing().when(spy).performStageAction(any(StageAction.class), same(testStage), any(String.class));
 		doNothing().when(spy).waitForActionToComplete(testStage);
-		doReturn(doc).when(spy).getDocument(any(URL.class));
+		doAnswer(respondWith("stageClientTest/activity__closed_ok.xml")).when(spy)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
 		doReturn(Boolean.TRUE).when(spy).isAsyncClose();
 
 		// no exception should be thrown here!
@@ -148,17 +209,46 @@ public void closeSucessTest() throws Exception {
 
 	@Test
 	public void getServerVersionTest() throws Exception {
-		final Document okPerms = getDocument("stageClientTest/status__ok_perms.xml");
-
 		StageClient spy = spy(new StageClient(testURL, "username", "password"));
 
-		doReturn(okPerms).when(spy).getDocument(any(URL.class));
+		doAnswer(respondWith("stageClientTest/status__ok_perms.xml")).when(spy)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
 
 		String version = spy.getServerVersion();
 		assertThat("Icorrect version", version, is("2.5.0-04"));
 	}
 
 
+	/**
+	 * Tests that a new client for the same server reuses the capabilities and authentication of the first.
+	 */
+	@Test
+	public void capabilitiesAreSharedBetweenClients() throws Exception {
+		StageClient first = spy(new StageClient(testURL, "username", "password"));
+		doAnswer(respondWith("stageClientTest/status__ok_perms.xml")).when(first)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
+		first.checkAuthentication();
+		assertThat(first.isAsyncClose(), is(true));
+
+		StageClient second = spy(new StageClient(testURL, "username", "password"));
+		second.checkAuthentication();
+		assertThat(second.isAsyncClose(), is(true));
+		verify(second, never()).getResponse(any(URL.class), any(StagingResponseParser.class));
+
+		// other users still need to be checked
+		StageClient other = spy(new StageClient(testURL, "other", "password"));
+		doAnswer(respondWith("stageClientTest/status__bad_perms.xml")).when(other)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
+		try {
+			other.checkAuthentication();
+			fail("Exception should have been thrown");
+		}
+		catch (StageException ex) {
+			assertThat(ex.getMessage(), containsString("insufficient privileges"));
+		}
+	}
+
+
 	@Test
 	public void isAsyncCloseTest() throws Exception {
 		StageClient sc = new StageClient(testURL, "username", "password");
@@ -232,6 +322,62 @@ public void testPromotionEscaping() throws Exception {
 		assertThat(list.item(0).getTextContent(), is(text));
 	}
 
+	@Test
+	public void testBulkRequestPayload() throws Exception {
+		StageClient client = new StageClient(testURL, "ignored", "ignored");
+		List<Stage> stages = Arrays.asList(new Stage("profile-1", "stage-1"), new Stage("profile-2", "stage-2"));
+		String xmlStr = client.createBulkRequestPayload(stages, "<A Test ]]> String", Boolean.FALSE);
+
+		DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		Document doc = builder.parse(new ByteArrayInputStream(xmlStr.getBytes("UTF-8")));
+		assertThat(doc, hasXPath("count(/stagingActionRequest/data/stagedRepositoryIds/string)", is("2")));
+		assertThat(doc, hasXPath("/stagingActionRequest/data/stagedRepositoryIds/string[2]", is("stage-2")));
+		assertThat(doc, hasXPath("/stagingActionRequest/data/description", is("<A Test ]]> String")));
+		assertThat(doc, hasXPath("/stagingActionRequest/data/autoDropAfterRelease", is("false")));
+	}
+
+
+	/**
+	 * Tests that several stages are closed with one bulk request and one wait.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void closeStagesUsesBulkRequest() throws Exception {
+		List<Stage> stages = Arrays.asList(testStage, new Stage("profile-2", "stage-2"));
+		StageClient spy = spy(new StageClient(testURL, "username", "password"));
+
+		doNothing().when(spy).performBulkStageAction(any(StageAction.class), any(Collection.class), any(String.class));
+		doNothing().when(spy).waitForActionsToComplete(any(Collection.class));
+		doAnswer(respondWith("stageClientTest/activity__closed_ok.xml")).when(spy)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
+		doReturn(Boolean.TRUE).when(spy).isAsyncClose();
+
+		spy.closeStages(stages, "myDescription");
+
+		verify(spy).performBulkStageAction(StageAction.CLOSE, stages, "myDescription");
+		verify(spy).waitForActionsToComplete(stages);
+		verify(spy, never()).performStageAction(any(StageAction.class), any(Stage.class), any(String.class));
+	}
+
+
+	/**
+	 * Tests that nothing is sent to the server for an empty set of stages.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void bulkActionsIgnoreNoStages() throws Exception {
+		StageClient spy = spy(new StageClient(testURL, "username", "password"));
+		doReturn(Boolean.TRUE).when(spy).isAsyncClose();
+
+		spy.closeStages(Collections.<Stage> emptyList(), "myDescription");
+		spy.releaseStages(Collections.<Stage> emptyList(), "myDescription");
+		spy.dropStages(Collections.<Stage> emptyList());
+
+		verify(spy, never()).performBulkStageAction(any(StageAction.class), any(Collection.class), any(String.class));
+		verify(spy, never()).waitForActionsToComplete(any(Collection.class));
+	}
+
+
 	@Test
 	public void testPromotionAsync() throws Exception {
 		StageClient spy = spy(new StageClient(testURL, "ignored", "ignored"));
@@ -260,11 +406,10 @@ public void testPromotionNonAsync() throws Exception {
 	 */
 	@Test
 	public void authenticationPassWithCorrectPermissionsTest() throws Exception {
-		final Document okPerms = getDocument("stageClientTest/status__ok_perms.xml");
-
 		StageClient spy = spy(new StageClient(testURL, "username", "password"));
 
-		doReturn(okPerms).when(spy).getDocument(any(URL.class));
+		doAnswer(respondWith("stageClientTest/status__ok_perms.xml")).when(spy)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
 
 		spy.checkAuthentication();
 	}
@@ -275,11 +420,11 @@ public void authenticationPassWithCorrectPermissionsTest() throws Exception {
 	 */
 	@Test
 	public void authenticationPassWithIncorrectPermissionsTest() throws Exception {
-		final Document okPerms = getDocument("stageClientTest/status__bad_perms.xml");
 
 		StageClient spy = spy(new StageClient(testURL, "username", "password"));
 
-		doReturn(okPerms).when(spy).getDocument(any(URL.class));
+		doAnswer(respondWith("stageClientTest/status__bad_perms.xml")).when(spy)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
 
 		try {
 			spy.checkAuthentication();
@@ -322,11 +467,11 @@ public void openStagesMethodShouldReturnCorrectStages() throws Exception {
 		Stage expectedStage1 = new Stage("3e1e1bad64f", "test-001");
 		Stage expectedStage2 = new Stage("3e1e1bad64f", "test-005");
 
-		Document doc = getDocument("stageClientTest/profile_repositories.xml");
 
 		StageClient spy = spy(new StageClient(testURL, "username", "password"));
 
-		doReturn(doc).when(spy).getDocument(any(URL.class));
+		doAnswer(respondWith("stageClientTest/profile_repositories.xml")).when(spy)
+		      .getResponse(any(URL.class), any(StagingResponseParser.class));
 
 		List<Stage> stages = spy.getOpenStageIDs();
 
@@ -366,6 +511,82 @@ public void checkStageForGAVReturnsCorrectStage() throws Exception {
 	}
 
 
+	@Test
+	public void openStagesIncludeCreatorDetails() throws Exception {
+		StageClient client = new StageClient(testURL, "username", "password");
+		List<Stage> stages = client.getOpenStageIDs(getDocument("stageClientTest/profile_repositories.xml"));
+		assertThat(stages, hasSize(2));
+		assertThat(stages.get(0).getUserID(), is("deploy_release"));
+		assertThat(stages.get(0).getIpAddress(), is("127.0.3.1"));
+		assertThat(stages.get(0).getDescription(), is(nullValue()));
+	}
+
+
+	@Test
+	public void profileScopedLookupPrefersOwnStagesAndSkipsFullScan() throws Exception {
+		Stage otherUsers = new Stage("profile1", "profile1-1000", "someoneelse", null, null);
+		Stage ours = new Stage("profile1", "profile1-1001", "username", null, null);
+
+		StageClient spy = spy(new StageClient(testURL, "username", "password"));
+		doReturn(Collections.singletonList("profile1")).when(spy).getStagingProfileIDs("org.example.test", "test", "1.2.3-4");
+		doReturn(new ArrayList<Stage>(Arrays.asList(otherUsers, ours))).when(spy).getOpenStageIDs("profile1");
+		doReturn(Boolean.TRUE).when(spy).checkStageForGAV(ours, "org.example.test", "test", "1.2.3-4");
+
+		assertThat(spy.findOpenStage("org.example.test", "test", "1.2.3-4", null), is(ours));
+		verify(spy, never()).checkStageForGAV(otherUsers, "org.example.test", "test", "1.2.3-4");
+		verify(spy, never()).getOpenStageIDs();
+	}
+
+
+	@Test
+	public void moduleLookupTriesTheHintsAndNeverScansAllStages() throws Exception {
+		Stage hinted = new Stage("profile2", "profile2-1001");
+
+		StageClient spy = spy(new StageClient(testURL, "username", "password"));
+		doReturn(null).when(spy).getStage("profile1-1000");
+		doReturn(hinted).when(spy).getStage("profile2-1001");
+		doReturn(Boolean.TRUE).when(spy).checkStageForGAV(hinted, "org.example.other", "other", "1.2.3-4");
+		doReturn(Collections.emptyList()).when(spy).getStagingProfileIDs("org.example.none", "none", "1.2.3-4");
+
+		assertThat(spy.findOpenStageInProfiles("org.example.other", "other", "1.2.3-4",
+		                                       Arrays.asList("profile1-1000", "profile2-1001")), is(hinted));
+		assertThat(spy.findOpenStageInProfiles("org.example.none", "none", "1.2.3-4",
+		                                       Collections.<String> emptyList()), is(nullValue()));
+		verify(spy, never()).getOpenStageIDs();
+	}
+
+
+	@Test
+	public void concurrentLookupReturnsCorrectStage() throws Exception {
+		List<Stage> stages = new ArrayList<Stage>();
+		for (int i = 1000; i < 1020; i++) {
+			stages.add(new Stage("profile1", "profile1-" + i));
+		}
+		Stage targetStage = stages.get(13);
+
+		HttpServer httpServer =
+		      createAuthenticatingHttpServer("", "username", "password",
+		                                     "/nexus/service/local/repositories/profile1-1013/content/org/example/test/test/1.2.3-4/");
+
+		try {
+			httpServer.start();
+			URL url =
+			      new URL("http", httpServer.getAddress().getHostName(), httpServer.getAddress().getPort(),
+			              "/nexus/");
+			StageClient spy = spy(new StageClient(url, "username", "password"));
+			doReturn(stages).when(spy).getOpenStageIDs();
+			spy.setLookupConcurrency(4);
+			spy.setDetectDuplicateStages(false);
+
+			assertThat(spy.getOpenStageID("org.example.test", "test", "1.2.3-4"), is(targetStage));
+			assertThat(spy.getOpenStageID("org.example.test", "test", "9.9.9"), is(nullValue()));
+		}
+		finally {
+			httpServer.stop(0);
+		}
+	}
+
+
 	/**
 	 * Creates an HTTP Server bound to a random port on 127.0.0.1. The Caller must start and stop this server
 	 * when it is no longer required.
@@ -439,6 +660,30 @@ public void handle(HttpExchange exchange) throws IOException {
 	}
 
 
+	/**
+	 * Create an answer for {@link StageClient#getResponse(URL, StagingResponseParser)} that parses the test
+	 * resource with the parser the client passed.
+	 */
+	private static Answer<Object> respondWith(final String testResource) {
+		final URL url = StageClientTest.class.getResource(testResource);
+		assertThat("resource not found for: " + testResource, url, is(notNullValue()));
+
+		return new Answer<Object>() {
+
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				StagingResponseParser<?> parser = (StagingResponseParser<?>) invocation.getArguments()[1];
+				InputStream in = url.openStream();
+				try {
+					return parser.parse(in);
+				}
+				finally {
+					in.close();
+				}
+			}
+		};
+	}
+
+
 	private static Document getDocument(String testResource) throws ParserConfigurationException,
 	                                                        SAXException, IOException {
 		URL url = StageClientTest.class.getResource(testResource);
@@ -0,0 +1,144 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class StageTransitionWatcherTest {
+
+	@After
+	public void stopWatcher() {
+		StageTransitionWatcher.stop();
+	}
+
+
+	/**
+	 * @return a spy of the client the watcher polls with for the (spied) client of a build.
+	 */
+	private static StageClient spyWatchClient(StageClient client) {
+		StageClient watchClient = spy(client.createWatchClient());
+		doReturn(watchClient).when(client).createWatchClient();
+		return watchClient;
+	}
+
+
+	/**
+	 * Tests that many waiting stages are served by one fetch of the staging repositories per tick.
+	 */
+	@Test
+	public void watchesShareOneFetchPerTick() throws Exception {
+		final List<Stage> stages = new ArrayList<Stage>();
+		for (int i = 0; i < 20; i++) {
+			stages.add(new Stage("profile1", "profile1-" + (1000 + i)));
+		}
+		StageClient client = spy(new StageClient(new URL("http://127.0.1.2:3456/nexus/"), "username", "password"));
+		StageClient watchClient = spyWatchClient(client);
+		final int[] fetches = new int[1];
+		doAnswer(new Answer<Map<String, Boolean>>() {
+
+			public Map<String, Boolean> answer(InvocationOnMock invocation) {
+				// every stage is transitioning on the first fetch and done on the second.
+				boolean transitioning = fetches[0]++ == 0;
+				Map<String, Boolean> transitions = new HashMap<String, Boolean>();
+				for (Stage stage : stages) {
+					transitions.put(stage.getStageID(), Boolean.valueOf(transitioning));
+				}
+				return transitions;
+			}
+		}).when(watchClient).getStageTransitions();
+
+		StageTransitionWatcher.start(10L);
+		StageTransitionWatcher watcher = StageTransitionWatcher.getInstance();
+		List<StageTransitionWatcher.Watch> watches = new ArrayList<StageTransitionWatcher.Watch>();
+		for (Stage stage : stages) {
+			watches.add(watcher.watch(client, stage));
+		}
+		for (StageTransitionWatcher.Watch watch : watches) {
+			watch.get(5, TimeUnit.SECONDS);
+		}
+
+		assertThat(fetches[0], lessThanOrEqualTo(3));
+		verify(watchClient, never()).isTransitioning(any(Stage.class));
+	}
+
+
+	/**
+	 * Tests that stages the listing does not report on are polled individually.
+	 */
+	@Test
+	public void unlistedStagesArePolledIndividually() throws Exception {
+		Stage stage = new Stage("profile1", "profile1-1000");
+		StageClient client = spy(new StageClient(new URL("http://127.0.1.2:3456/nexus/"), "username", "password"));
+		StageClient watchClient = spyWatchClient(client);
+		doReturn(new HashMap<String, Boolean>()).when(watchClient).getStageTransitions();
+		doReturn(Boolean.FALSE).when(watchClient).isTransitioning(stage);
+
+		StageTransitionWatcher.start(10L);
+		StageTransitionWatcher.getInstance().watch(client, stage).get(5, TimeUnit.SECONDS);
+
+		verify(watchClient, atLeastOnce()).isTransitioning(stage);
+		verify(client, never()).isTransitioning(stage);
+	}
+
+
+	/**
+	 * Tests that the waiting stages fail once the server can not be reached repeatedly.
+	 */
+	@Test
+	public void repeatedFetchFailuresFailTheWatch() throws Exception {
+		StageClient client = spy(new StageClient(new URL("http://127.0.1.2:3456/nexus/"), "username", "password"));
+		StageClient watchClient = spyWatchClient(client);
+		doThrow(new StageException("Server down")).when(watchClient).getStageTransitions();
+
+		StageTransitionWatcher.start(10L);
+		StageTransitionWatcher.Watch watch =
+		      StageTransitionWatcher.getInstance().watch(client, new Stage("profile1", "profile1-1000"));
+		try {
+			watch.get(5, TimeUnit.SECONDS);
+			fail("Exception should have been thrown");
+		}
+		catch (ExecutionException ex) {
+			assertThat(ex.getCause().getMessage(), is("Server down"));
+		}
+		assertThat(watch.getStatistics().getPolls(), is(0));
+	}
+}
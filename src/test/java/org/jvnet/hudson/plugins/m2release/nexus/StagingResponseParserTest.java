@@ -0,0 +1,110 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+public class StagingResponseParserTest {
+
+	@Test
+	public void openStagesMatchTheDomParser() throws Exception {
+		List<Stage> streamed = parse(StagingResponseParser.OPEN_STAGES, "stageClientTest/profile_repositories.xml");
+
+		InputStream in = getResource("stageClientTest/profile_repositories.xml").openStream();
+		List<Stage> dom;
+		try {
+			dom = new StageClient(new URL("http://127.0.1.2:3456/nexus/"), "username", "password")
+			      .getOpenStageIDs(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in));
+		}
+		finally {
+			in.close();
+		}
+
+		assertThat(streamed, is(dom));
+		assertThat(streamed, hasSize(2));
+		assertThat(streamed.get(1).getUserID(), is("deploy_release"));
+	}
+
+
+	@Test
+	public void transitioning() throws Exception {
+		assertThat(parse(StagingResponseParser.TRANSITIONING, "stageClientTest/repository__transitioning.xml"),
+		           is(Boolean.TRUE));
+		assertThat(parse(StagingResponseParser.TRANSITIONING, "stageClientTest/repository__transitioned.xml"),
+		           is(Boolean.FALSE));
+	}
+
+
+	@Test
+	public void serverVersionAndPermissions() throws Exception {
+		assertThat(parse(StagingResponseParser.SERVER_VERSION, "stageClientTest/status__ok_perms.xml"),
+		           is("2.5.0-04"));
+		Map<String, String> permissions =
+		      parse(StagingResponseParser.PERMISSIONS, "stageClientTest/status__ok_perms.xml");
+		assertThat(permissions.get("nexus:stagingdrop"), is("15"));
+		assertThat(permissions.get("nexus:bogus"), is(nullValue()));
+	}
+
+
+	@Test
+	public void lastCloseActivity() throws Exception {
+		StagingResponseParser.CloseActivity ok =
+		      parse(StagingResponseParser.LAST_CLOSE_ACTIVITY, "stageClientTest/activity__closed_ok.xml");
+		assertThat(ok, is(notNullValue()));
+		assertThat(ok.isClosed(), is(true));
+
+		StagingResponseParser.CloseActivity failed =
+		      parse(StagingResponseParser.LAST_CLOSE_ACTIVITY, "stageClientTest/activity__closed_failed.xml");
+		assertThat(failed.isClosed(), is(false));
+		assertThat(failed.isFailed(), is(true));
+		assertThat(failed.getCause(), startsWith("com.sonatype.nexus.staging.StagingRulesFailedException"));
+		assertThat(failed.getRuleFailures(), hasSize(1));
+	}
+
+
+	private static <T> T parse(StagingResponseParser<T> parser, String testResource) throws Exception {
+		InputStream in = getResource(testResource).openStream();
+		try {
+			return parser.parse(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+
+	private static URL getResource(String testResource) {
+		URL url = StagingResponseParserTest.class.getResource(testResource);
+		assertThat("resource not found for: " + testResource, url, is(notNullValue()));
+		return url;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+*  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.jvnet.hudson.plugins.m2release.nexus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings("restriction")
+public class ThrottledNexusTransportTest {
+
+	/**
+	 * Tests that consecutive requests to the same host are sent over the same (kept alive) connection.
+	 */
+	@Test
+	public void connectionIsReusedBetweenRequests() throws Exception {
+		final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+		HttpServer httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1);
+		httpServer.createContext("/", new HttpHandler() {
+
+			public void handle(HttpExchange exchange) throws IOException {
+				clientPorts.add(Integer.valueOf(exchange.getRemoteAddress().getPort()));
+				byte[] data = "<hello/>".getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, data.length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(data);
+				os.close();
+			}
+		});
+		ThrottledNexusTransport transport = new ThrottledNexusTransport(new NexusConnectionSettings(2, 5000, 5000));
+		try {
+			httpServer.start();
+			URL url =
+			      new URL("http", httpServer.getAddress().getHostName(), httpServer.getAddress().getPort(),
+			              "/nexus/");
+			for (int i = 0; i < 5; i++) {
+				int status =
+				      transport.execute("GET", url, new HashMap<String, String>(), null,
+				                        new NexusTransport.ResponseHandler<Integer>() {
+
+					                        public Integer handle(int status, InputStream body) {
+						                        // deliberately leave the body unread
+						                        return Integer.valueOf(status);
+					                        }
+				                        }).intValue();
+				assertThat(status, is(200));
+			}
+			assertThat("all requests should have used the same connection", clientPorts, hasSize(1));
+		}
+		finally {
+			httpServer.stop(0);
+		}
+	}
+}